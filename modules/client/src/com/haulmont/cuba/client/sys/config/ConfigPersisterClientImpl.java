@@ -20,12 +20,14 @@ import com.haulmont.cuba.core.app.ConfigStorageService;
 import com.haulmont.cuba.core.config.ConfigPersister;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.AppProperties;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ConfigPersisterClientImpl implements ConfigPersister {
     private static final Logger log = LoggerFactory.getLogger(ConfigPersisterClientImpl.class);
@@ -34,6 +36,7 @@ public class ConfigPersisterClientImpl implements ConfigPersister {
 
     protected volatile boolean cacheLoaded;
     protected boolean caching;
+    protected AtomicLong cacheVersion = new AtomicLong();
 
     protected ConfigStorageService configStorageService;
 
@@ -100,12 +103,30 @@ public class ConfigPersisterClientImpl implements ConfigPersister {
                     cache.remove(name);
                 }
                 getConfigStorage().setDbProperty(name, value);
+                cacheVersion.incrementAndGet();
                 break;
             default:
                 throw new UnsupportedOperationException("Unsupported config source type: " + sourceType);
         }
     }
 
+    @Override
+    public long getVersion(SourceType sourceType) {
+        AppProperties appProperties = AppContext.Internals.getAppProperties();
+        if (appProperties == null) {
+            return NO_VERSION;
+        }
+        switch (sourceType) {
+            case APP:
+                return appProperties.getVersion();
+            case DATABASE:
+                // without caching, DB-stored properties are requested from the middleware each time
+                return caching ? appProperties.getVersion() + cacheVersion.get() : NO_VERSION;
+            default:
+                return NO_VERSION;
+        }
+    }
+
     protected ConfigStorageService getConfigStorage() {
         return configStorageService;
     }
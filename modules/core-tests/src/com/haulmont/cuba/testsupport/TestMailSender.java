@@ -22,9 +22,13 @@ import junit.framework.Assert;
 import org.springframework.mail.MailException;
 import org.springframework.mail.MailSendException;
 
+import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Used by functional tests.
@@ -57,6 +61,18 @@ public class TestMailSender extends CubaMailSender {
         myMessages.add(mimeMessage);
     }
 
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        if (mustFail) {
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            for (MimeMessage mimeMessage : mimeMessages) {
+                failedMessages.put(mimeMessage, new MessagingException("Smtp server not available"));
+            }
+            throw new MailSendException("Smtp server not available", null, failedMessages);
+        }
+        myMessages.addAll(Arrays.asList(mimeMessages));
+    }
+
     public boolean isEmpty() {
         return myMessages.isEmpty();
     }
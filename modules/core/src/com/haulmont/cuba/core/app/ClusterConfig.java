@@ -55,15 +55,32 @@ public interface ClusterConfig extends Config {
 
     /**
      * @return Maximum size of thread pool which is used to send messages to the cluster members
+     * @deprecated asynchronous messages are sent in batches by a single thread to keep their order
      */
+    @Deprecated
     @Property("cuba.cluster.messageSendingThreadPoolSize")
     @DefaultInt(100)
     int getClusterMessageSendingThreadPoolSize();
 
     /**
-     * @return Maximum queue capacity which is used  by executor to store messages to the cluster members. By default is unbounded
+     * @return Maximum queue capacity which is used to store messages to the cluster members. By default is unbounded
      */
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return Time in milliseconds the sender waits for more messages to put them into one cluster message.
+     * 0 means that only messages already waiting in the queue are sent together.
+     */
+    @Property("cuba.cluster.messageBatchWindowMs")
+    @DefaultInt(5)
+    int getClusterMessageBatchWindowMs();
+
+    /**
+     * @return Maximum number of messages sent to the cluster members in one cluster message
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(100)
+    int getClusterMessageBatchMaxSize();
 }
@@ -16,6 +16,12 @@
  */
 package com.haulmont.cuba.core.app;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Interface to be implemented by middleware cluster listeners. A cluster listener receives messages from other nodes
  * in the cluster.
@@ -50,4 +56,35 @@ public interface ClusterListener<T> {
      * @param state byte array containing the state
      */
     void setState(byte[] state);
+
+    /**
+     * Write state of this cluster node to the stream to send it to other nodes.
+     *
+     * <p>This method is invoked by clustering implementation instead of {@link #getState()}. The default
+     * implementation writes the result of {@link #getState()}, override it to avoid building the whole state
+     * in memory.</p>
+     *
+     * @param outputStream stream to write the state to, must not be closed
+     */
+    default void writeState(OutputStream outputStream) throws IOException {
+        byte[] state = getState();
+        if (state != null) {
+            outputStream.write(state);
+        }
+    }
+
+    /**
+     * Read state of this cluster node from the stream written by {@link #writeState(OutputStream)} on other node.
+     *
+     * <p>This method is invoked by clustering implementation instead of {@link #setState(byte[])}. The default
+     * implementation passes the whole stream content to {@link #setState(byte[])}.</p>
+     *
+     * @param inputStream stream containing the state, must not be closed
+     */
+    default void readState(InputStream inputStream) throws IOException {
+        byte[] state = IOUtils.toByteArray(inputStream);
+        if (state.length > 0) {
+            setState(state);
+        }
+    }
 }
@@ -17,7 +17,6 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.global.Events;
 import com.haulmont.cuba.core.global.GlobalConfig;
@@ -25,7 +24,8 @@ import com.haulmont.cuba.core.global.Resources;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.events.AppContextInitializedEvent;
 import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
-import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.jgroups.*;
 import org.jgroups.conf.XmlConfigurator;
 import org.jgroups.jmx.JmxConfigurator;
@@ -43,10 +43,9 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
@@ -63,7 +62,12 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected View currentView;
 
-    protected ThreadPoolExecutor executor;
+    protected BlockingQueue<Serializable> sendQueue;
+
+    protected volatile Thread batchSenderThread;
+
+    // the batch sender thread and threads sending messages synchronously
+    protected final AtomicInteger sendingThreads = new AtomicInteger();
 
     @Inject
     protected Resources resources;
@@ -72,12 +76,14 @@ public class ClusterManager implements ClusterManagerAPI {
     protected GlobalConfig globalConfig;
     @Inject
     protected ClusterConfig clusterConfig;
+    @Inject
+    protected ClusterMessageCodec messageCodec;
 
     protected ThreadLocal<Boolean> forceSyncSending = new ThreadLocal<>();
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
-    protected static final String STATE_MAGIC = "CUBA_STATE";
+    protected static final String STATE_MAGIC = "CUBA_STREAMED_STATE";
 
     public JChannel getChannel() {
         return channel;
@@ -85,17 +91,7 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @PostConstruct
     protected void init() {
-        int nThreads = clusterConfig.getClusterMessageSendingThreadPoolSize();
-        executor = new ThreadPoolExecutor(nThreads, nThreads,
-                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity()),
-                new ThreadFactoryBuilder().setNameFormat("ClusterManagerMessageSender-%d").build(),
-                new RejectedExecutionHandler() {
-                    @Override
-                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
-                        SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
-                        log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
-                    }
-                });
+        sendQueue = new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity());
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -108,13 +104,12 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
-        executor.shutdown();
         stop();
     }
 
     @Override
     public void send(final Serializable message) {
-        if (channel == null)
+        if (!isStarted())
             return;
 
         Boolean sync = forceSyncSending.get();
@@ -122,7 +117,9 @@ public class ClusterManager implements ClusterManagerAPI {
             internalSend(message, true);
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
-            executor.execute(new SendMessageRunnable(message));
+            if (!sendQueue.offer(message)) {
+                log.info("Queue capacity is exceeded. Message: {}: {}", message.getClass(), message);
+            }
         }
     }
 
@@ -134,29 +131,157 @@ public class ClusterManager implements ClusterManagerAPI {
         internalSend(message, true);
     }
 
-    protected void internalSend(Serializable message, boolean sync) {
-        StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
+    protected synchronized void startBatchSender() {
+        if (batchSenderThread == null) {
+            batchSenderThread = new Thread(this::sendBatches, "ClusterManagerBatchSender");
+            batchSenderThread.setDaemon(true);
+            batchSenderThread.start();
+        }
+    }
+
+    protected synchronized void stopBatchSender() {
+        if (batchSenderThread != null) {
+            batchSenderThread.interrupt();
+            batchSenderThread = null;
+        }
+        sendQueue.clear();
+    }
+
+    /**
+     * Takes messages from the send queue, collects them into batches and sends the batches one by one.
+     * Runs in a dedicated thread until interrupted. As the batches are sent by a single thread, messages
+     * are sent in the order they were submitted.
+     */
+    protected void sendBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<Serializable> batch = coalesce(collectBatch());
+                sendingThreads.incrementAndGet();
+                try {
+                    if (isStarted()) {
+                        internalSend(batch);
+                    }
+                } finally {
+                    sendingThreads.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Error sending messages", e);
+            }
+        }
+    }
+
+    protected List<Serializable> collectBatch() throws InterruptedException {
+        int maxSize = Math.max(clusterConfig.getClusterMessageBatchMaxSize(), 1);
+        List<Serializable> batch = new ArrayList<>();
+        batch.add(sendQueue.take());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(clusterConfig.getClusterMessageBatchWindowMs());
+        while (batch.size() < maxSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                sendQueue.drainTo(batch, maxSize - batch.size());
+                break;
+            }
+            Serializable message = sendQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (message == null) {
+                break;
+            }
+            batch.add(message);
+        }
+        return batch;
+    }
+
+    /**
+     * Leaves only the last of {@link CoalescingClusterMessage}s having the same class and key. The remaining
+     * messages keep their relative order, a coalesced message takes the place of its last occurrence.
+     */
+    protected List<Serializable> coalesce(List<Serializable> batch) {
+        if (batch.size() == 1) {
+            return batch;
+        }
+        Map<Object, Serializable> messages = new LinkedHashMap<>();
+        for (Serializable message : batch) {
+            Object key;
+            if (message instanceof CoalescingClusterMessage) {
+                key = Arrays.asList(message.getClass(), ((CoalescingClusterMessage) message).getCoalescingKey());
+                if (messages.remove(key) != null) {
+                    MessageStat stat = messagesStat.get(message.getClass().getName());
+                    if (stat != null) {
+                        stat.updateCoalesced();
+                    }
+                }
+            } else {
+                key = new Object();
+            }
+            messages.put(key, message);
+        }
+        return new ArrayList<>(messages.values());
+    }
+
+    protected void internalSend(List<Serializable> messages) {
+        if (messages.size() == 1) {
+            internalSend(messages.get(0), false);
+            return;
+        }
+        StopWatch sw = new Slf4JStopWatch("sendClusterMessageBatch");
         try {
-            byte[] bytes;
+            List<byte[]> serialized = new ArrayList<>(messages.size());
+            for (Serializable message : messages) {
+                try {
+                    serialized.add(serialize(message));
+                } catch (RuntimeException e) {
+                    // already logged, send the rest of the batch
+                }
+            }
+            byte[] bytes = serialize(new ClusterMessageBatch(serialized.toArray(new byte[0][])));
+            log.debug("Sending batch of {} messages ({} bytes)", serialized.size(), bytes.length);
             try {
-                bytes = SerializationSupport.serialize(message);
+                channel.send(new Message(null, null, bytes));
             } catch (Exception e) {
-                log.error("Cluster message serialization error", e);
-                throw new RuntimeException("Cluster message serialization error", e);
+                log.error("Error sending message", e);
             }
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected byte[] serialize(Serializable message) {
+        byte[] bytes;
+        try {
+            bytes = messageCodec.encode(message);
+        } catch (Exception e) {
+            log.error("Cluster message serialization error", e);
+            throw new RuntimeException("Cluster message serialization error", e);
+        }
+        if (!(message instanceof ClusterMessageBatch)) {
             log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
             MessageStat stat = messagesStat.get(message.getClass().getName());
             if (stat != null) {
                 stat.updateSent(bytes.length);
             }
+        }
+        return bytes;
+    }
+
+    protected void internalSend(Serializable message, boolean sync) {
+        StopWatch sw = new Slf4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
+        try {
+            byte[] bytes = serialize(message);
             Message msg = new Message(null, null, bytes);
             if (sync) {
                 msg.setFlag(Message.Flag.RSVP);
+                sendingThreads.incrementAndGet();
             }
             try {
                 channel.send(msg);
             } catch (Exception e) {
                 log.error("Error sending message", e);
+            } finally {
+                if (sync) {
+                    sendingThreads.decrementAndGet();
+                }
             }
         } finally {
             sw.stop();
@@ -222,6 +347,7 @@ public class ClusterManager implements ClusterManagerAPI {
                 }
             }
             registerJmxBeans();
+            startBatchSender();
         } catch (Exception e) {
             channel = null;
             throw new RuntimeException("Error starting cluster", e);
@@ -272,12 +398,12 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getActiveThreadsCount() {
-        return executor.getActiveCount();
+        return sendingThreads.get();
     }
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        return sendQueue.size();
     }
 
     @Override
@@ -286,6 +412,7 @@ public class ClusterManager implements ClusterManagerAPI {
             return;
 
         log.info("Stopping cluster");
+        stopBatchSender();
         unregisterJmxBeans();
         try {
             channel.close();
@@ -323,16 +450,18 @@ public class ClusterManager implements ClusterManagerAPI {
     public String printSharedStateStat() {
         StringBuilder clusterStateStat = new StringBuilder();
         for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-            byte[] data;
+            CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
             StopWatch sw = new StopWatch();
             try {
-                data = entry.getValue().getState();
+                entry.getValue().writeState(out);
+            } catch (IOException e) {
+                log.error("Error serializing state {}", entry.getKey(), e);
             } finally {
                 sw.stop();
             }
             clusterStateStat
                     .append(String.format("State: %s, size: %s bytes, serialize time: %s ms\n",
-                            entry.getKey(), data != null ? data.length : -1, sw.getElapsedTime()));
+                            entry.getKey(), out.getByteCount(), sw.getElapsedTime()));
         }
         return clusterStateStat.toString();
     }
@@ -344,9 +473,9 @@ public class ClusterManager implements ClusterManagerAPI {
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes; coalesced: %s\n",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
-                                stat.getSentMessages(), stat.getSentBytes()));
+                                stat.getSentMessages(), stat.getSentBytes(), stat.getCoalescedMessages()));
             }
         }
         return messagesStats.toString();
@@ -401,16 +530,33 @@ public class ClusterManager implements ClusterManagerAPI {
                 log.debug("Null buffer received");
                 return;
             }
+            receiveMessage(bytes);
+        }
+
+        protected void receiveMessage(byte[] bytes) {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
                 Serializable data;
                 try {
-                    data = (Serializable) SerializationSupport.deserialize(bytes);
+                    data = (Serializable) messageCodec.decode(bytes);
                 } catch (Exception e) {
                     log.error("Cluster message deserialization error", e);
                     throw new RuntimeException("Cluster message deserialization error", e);
                 }
+                if (data instanceof ClusterMessageBatch) {
+                    simpleClassName = ClusterMessageBatch.class.getSimpleName();
+                    byte[][] messages = ((ClusterMessageBatch) data).messages;
+                    log.debug("Received batch of {} messages ({} bytes)", messages.length, bytes.length);
+                    for (byte[] message : messages) {
+                        try {
+                            receiveMessage(message);
+                        } catch (RuntimeException e) {
+                            log.error("Error receiving message from batch", e);
+                        }
+                    }
+                    return;
+                }
                 String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
@@ -438,30 +584,21 @@ public class ClusterManager implements ClusterManagerAPI {
         public void getState(OutputStream output) {
             log.debug("Sending state");
             try (DataOutputStream out = new DataOutputStream(output)) {
-                Map<String, byte[]> state = new HashMap<>();
+                out.writeUTF(STATE_MAGIC);
                 for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-                    byte[] data;
+                    out.writeBoolean(true);
+                    out.writeUTF(entry.getKey());
+                    StateChunkOutputStream stateOut = new StateChunkOutputStream(out);
                     StopWatch sw = new Slf4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
                     try {
-                        data = entry.getValue().getState();
+                        entry.getValue().writeState(stateOut);
+                        stateOut.finish();
                     } finally {
                         sw.stop();
                     }
-                    if (data != null && data.length > 0) {
-                        state.put(entry.getKey(), data);
-                    }
-                }
-
-                if (state.size() > 0) {
-                    out.writeUTF(STATE_MAGIC);
-                    out.writeInt(state.size());
-                    for (Map.Entry<String, byte[]> entry : state.entrySet()) {
-                        log.debug("Sending state: {} ({} bytes)", entry.getKey(), entry.getValue().length);
-                        out.writeUTF(entry.getKey());
-                        out.writeInt(entry.getValue().length);
-                        out.write(entry.getValue());
-                    }
+                    log.debug("Sending state: {} ({} bytes)", entry.getKey(), stateOut.getSize());
                 }
+                out.writeBoolean(false);
             } catch (RuntimeException | IOException e) {
                 log.error("Error sending state", e);
             }
@@ -485,23 +622,17 @@ public class ClusterManager implements ClusterManagerAPI {
                     log.debug("Invalid magic in state received");
                     return;
                 }
-                int count = in.readInt();
-                for (int i = 0; i < count; i++) {
+                while (in.readBoolean()) {
                     String name = in.readUTF();
-                    int len = in.readInt();
+                    StateChunkInputStream stateIn = new StateChunkInputStream(in);
                     StopWatch sw = new Slf4JStopWatch(String.format("setClusterState(%s)", name));
                     try {
-                        log.debug("Receiving state: {} ({} bytes)", name, len);
-                        byte[] data = new byte[len];
-                        int c = in.read(data);
-                        if (c != len) {
-                            log.error("Error receiving state: invalid data length");
-                            return;
-                        }
                         ClusterListener listener = listeners.get(name);
                         if (listener != null) {
-                            listener.setState(data);
+                            listener.readState(stateIn);
                         }
+                        stateIn.skipToEnd();
+                        log.debug("Received state: {} ({} bytes)", name, stateIn.getSize());
                     } finally {
                         sw.stop();
                     }
@@ -521,16 +652,140 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
-    protected class SendMessageRunnable implements Runnable {
-        protected Serializable message;
+    /**
+     * Writes state of a single listener as a sequence of chunks prefixed with length, terminated by an empty chunk.
+     * Allows the receiving side to skip the state of an unknown listener without materializing it.
+     */
+    protected static class StateChunkOutputStream extends OutputStream {
+        protected final DataOutputStream out;
+        protected final byte[] buffer = new byte[8192];
+        protected int count;
+        protected long size;
+
+        public StateChunkOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        public void finish() throws IOException {
+            writeChunk();
+            out.writeInt(0);
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        protected void writeChunk() throws IOException {
+            if (count > 0) {
+                out.writeInt(count);
+                out.write(buffer, 0, count);
+                size += count;
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads state of a single listener written by {@link StateChunkOutputStream}.
+     */
+    protected static class StateChunkInputStream extends InputStream {
+        protected final DataInputStream in;
+        protected int remaining;
+        protected boolean finished;
+        protected long size;
 
-        public SendMessageRunnable(Serializable message) {
-            this.message = message;
+        public StateChunkInputStream(DataInputStream in) {
+            this.in = in;
         }
 
         @Override
-        public void run() {
-            internalSend(message, false);
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            remaining--;
+            size++;
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, remaining);
+            in.readFully(b, off, n);
+            remaining -= n;
+            size += n;
+            return n;
+        }
+
+        public void skipToEnd() throws IOException {
+            while (nextChunk()) {
+                in.readFully(new byte[remaining]);
+                size += remaining;
+                remaining = 0;
+            }
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        protected boolean nextChunk() throws IOException {
+            while (remaining == 0) {
+                if (finished) {
+                    return false;
+                }
+                remaining = in.readInt();
+                if (remaining == 0) {
+                    finished = true;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Envelope for several messages sent to the cluster together. Contains serialized messages.
+     */
+    protected static class ClusterMessageBatch implements Serializable {
+        private static final long serialVersionUID = -2470383914442352457L;
+
+        protected final byte[][] messages;
+
+        public ClusterMessageBatch(byte[][] messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public String toString() {
+            return "ClusterMessageBatch{size=" + messages.length + "}";
         }
     }
 
@@ -539,6 +794,7 @@ public class ClusterManager implements ClusterManagerAPI {
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder coalescedMessages = new LongAdder();
 
         public void updateReceived(int bytes) {
             receivedMessages.increment();
@@ -550,6 +806,10 @@ public class ClusterManager implements ClusterManagerAPI {
             sentBytes.add(bytes);
         }
 
+        public void updateCoalesced() {
+            coalescedMessages.increment();
+        }
+
         public long getSentBytes() {
             return sentBytes.longValue();
         }
@@ -565,5 +825,9 @@ public class ClusterManager implements ClusterManagerAPI {
         public long getReceivedMessages() {
             return receivedMessages.longValue();
         }
+
+        public long getCoalescedMessages() {
+            return coalescedMessages.longValue();
+        }
     }
 }
\ No newline at end of file
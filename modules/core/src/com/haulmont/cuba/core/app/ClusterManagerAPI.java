@@ -101,7 +101,8 @@ public interface ClusterManagerAPI {
     boolean isStarted();
 
     /**
-     * @return threads count that are actively sending cluster messages
+     * @return threads count that are actively sending cluster messages: the batch sender thread
+     * and threads sending messages synchronously
      */
     int getActiveThreadsCount();
 
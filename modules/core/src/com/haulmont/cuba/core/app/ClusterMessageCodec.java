@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+/**
+ * Converts messages sent between middleware cluster members and pieces of cluster state to bytes and back.
+ * <p>
+ * All cluster members must use the same implementation.
+ */
+public interface ClusterMessageCodec {
+
+    String NAME = "cuba_ClusterMessageCodec";
+
+    /**
+     * Serializes the object.
+     *
+     * @param object message or part of cluster state
+     * @return serialized object
+     */
+    byte[] encode(Object object);
+
+    /**
+     * Deserializes an object serialized by {@link #encode(Object)}.
+     *
+     * @param bytes serialized object
+     * @return deserialized object
+     */
+    Object decode(byte[] bytes);
+
+    /**
+     * @return number of objects, bytes and time spent for encoding and decoding, grouped by object class
+     */
+    String printStatistics();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import java.io.Serializable;
+
+/**
+ * Cluster message which makes previous messages of the same class and with the same key obsolete.
+ * <p>
+ * If several such messages are waiting to be sent asynchronously, {@link ClusterManagerAPI} sends only the last one.
+ */
+public interface CoalescingClusterMessage extends Serializable {
+
+    /**
+     * @return key identifying messages that replace each other, e.g. an id of the changed object
+     */
+    Object getCoalescingKey();
+}
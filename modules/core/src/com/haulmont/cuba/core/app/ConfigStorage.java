@@ -28,12 +28,12 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.stereotype.Component;
 import javax.inject.Inject;
-import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -52,14 +52,22 @@ public class ConfigStorage implements ConfigStorageAPI {
 
     protected Map<String, String> cache;
 
+    protected AtomicLong cacheVersion = new AtomicLong();
+
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
     protected Lock readLock = lock.readLock();
     protected Lock writeLock = lock.writeLock();
 
     private static final Logger log = LoggerFactory.getLogger(ConfigStorage.class);
 
-    private static class InvalidateCacheMsg implements Serializable {
+    private static class InvalidateCacheMsg implements CoalescingClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public Object getCoalescingKey() {
+            // all messages are equivalent
+            return InvalidateCacheMsg.class;
+        }
     }
     
     @Inject
@@ -83,11 +91,17 @@ public class ConfigStorage implements ConfigStorageAPI {
         writeLock.lock();
         try {
             cache = null;
+            cacheVersion.incrementAndGet();
         } finally {
             writeLock.unlock();
         }
     }
 
+    @Override
+    public long getCacheVersion() {
+        return cacheVersion.get();
+    }
+
     @Override
     public Map<String, String> getDbProperties() {
         readLock.lock();
@@ -16,6 +16,8 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.haulmont.cuba.core.config.ConfigPersister;
+
 import javax.annotation.Nullable;
 import java.util.Map;
 
@@ -59,4 +61,13 @@ public interface ConfigStorageAPI {
      * Clear properties cache. Invoke this method if you changed the properties directly in the database.
      */
     void clearCache();
+
+    /**
+     * @return number which is changed every time the properties cache is cleared on this node,
+     * or {@link ConfigPersister#NO_VERSION} if the implementation does not track it and values of database
+     * properties must not be cached by configuration interfaces
+     */
+    default long getCacheVersion() {
+        return ConfigPersister.NO_VERSION;
+    }
 }
@@ -32,6 +32,8 @@ import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
@@ -45,6 +47,9 @@ import javax.mail.Part;
 import javax.mail.internet.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component(EmailSenderAPI.NAME)
 public class EmailSender implements EmailSenderAPI {
@@ -72,6 +77,51 @@ public class EmailSender implements EmailSenderAPI {
         log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
     }
 
+    @Override
+    public Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new LinkedHashMap<>();
+        Map<MimeMessage, SendingMessage> messages = new LinkedHashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                messages.put(createMimeMessage(sendingMessage), sendingMessage);
+            } catch (Exception e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+
+        // JavaMailSender sends all messages of the array over a single transport connection
+        StopWatch sw = new Slf4JStopWatch("EmailSender.sendBatch");
+        try {
+            mailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                messages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+            } else {
+                for (Map.Entry<Object, Exception> entry : failedMessages.entrySet()) {
+                    SendingMessage sendingMessage = messages.get(entry.getKey());
+                    if (sendingMessage != null) {
+                        failures.put(sendingMessage, new MailSendException("Unable to send email", entry.getValue()));
+                    }
+                }
+            }
+        } catch (MailException e) {
+            messages.values().forEach(sendingMessage -> failures.put(sendingMessage, e));
+        } finally {
+            sw.stop();
+        }
+
+        int sent = sendingMessages.size() - failures.size();
+        long elapsed = sw.getElapsedTime();
+        log.info("Batch of {} emails has been sent in {} ms ({} msg/sec), {} failed",
+                sent, elapsed, elapsed > 0 ? sent * 1000L / elapsed : sent, failures.size());
+
+        return failures;
+    }
+
     protected MimeMessage createMimeMessage(SendingMessage sendingMessage) throws MessagingException {
         MimeMessage msg = mailSender.createMimeMessage();
         assignRecipient(Message.RecipientType.TO, sendingMessage.getAddress(), msg);
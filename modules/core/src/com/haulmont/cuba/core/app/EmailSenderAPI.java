@@ -20,6 +20,9 @@ package com.haulmont.cuba.core.app;
 import com.haulmont.cuba.core.entity.SendingMessage;
 
 import javax.mail.MessagingException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Adapter to javax.mail email sending API.
@@ -38,4 +41,24 @@ public interface EmailSenderAPI {
      * @throws MessagingException if delivery fails
      */
     void sendEmail(SendingMessage sendingMessage) throws MessagingException;
+
+    /**
+     * Sends a batch of emails. Implementations should reuse a single connection to the SMTP server
+     * for the whole batch.
+     * Message bodies and attachments' content must be loaded from file storage.
+     *
+     * @param sendingMessages messages to send
+     * @return messages that have not been sent, mapped to the delivery failure; empty map if all messages are sent
+     */
+    default Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new LinkedHashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                sendEmail(sendingMessage);
+            } catch (Exception e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        return failures;
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Transaction;
@@ -201,6 +202,78 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void sendSendingMessages(List<SendingMessage> sendingMessages) {
+        for (SendingMessage sendingMessage : sendingMessages) {
+            Objects.requireNonNull(sendingMessage.getAddress(), "sendingMessage.address is null");
+            Objects.requireNonNull(sendingMessage.getCaption(), "sendingMessage.caption is null");
+            Objects.requireNonNull(sendingMessage.getContentText(), "sendingMessage.contentText is null");
+            Objects.requireNonNull(sendingMessage.getFrom(), "sendingMessage.from is null");
+        }
+
+        Map<SendingMessage, Exception> failures;
+        try {
+            failures = emailSender.sendEmails(sendingMessages);
+        } catch (Exception e) {
+            failures = new LinkedHashMap<>();
+            for (SendingMessage sendingMessage : sendingMessages) {
+                failures.put(sendingMessage, e);
+            }
+        }
+
+        for (Map.Entry<SendingMessage, Exception> entry : failures.entrySet()) {
+            log.warn("Unable to send email to '" + entry.getKey().getAddress() + "'", entry.getValue());
+        }
+        updateSendingStatuses(sendingMessages, failures);
+    }
+
+    /**
+     * Updates statuses of a batch of messages in one transaction. If the transaction fails, statuses are updated
+     * in a separate transaction for each message, so the messages accepted by the server are not sent again
+     * because of a failure of another message.
+     */
+    protected void updateSendingStatuses(List<SendingMessage> sendingMessages, Map<SendingMessage, Exception> failures) {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            Date dateSent = timeSource.currentTimestamp();
+            for (SendingMessage sendingMessage : sendingMessages) {
+                updateSendingStatus(em, sendingMessage, failures.get(sendingMessage), dateSent);
+            }
+            tx.commit();
+            return;
+        } catch (Exception e) {
+            log.warn("Error updating statuses of {} sent messages, updating them one by one", sendingMessages.size(), e);
+        }
+
+        for (SendingMessage sendingMessage : sendingMessages) {
+            Exception failure = failures.get(sendingMessage);
+            if (failure == null) {
+                markAsSent(sendingMessage);
+            } else if (isNeedToRetry(failure)) {
+                returnToQueue(sendingMessage);
+            } else {
+                markAsNonSent(sendingMessage);
+            }
+        }
+    }
+
+    protected void updateSendingStatus(EntityManager em, SendingMessage sendingMessage, @Nullable Exception failure,
+                                       Date dateSent) {
+        SendingMessage msg = em.merge(sendingMessage);
+
+        if (failure == null) {
+            msg.setStatus(SendingStatus.SENT);
+            msg.setDateSent(dateSent);
+        } else if (isNeedToRetry(failure)) {
+            msg.setStatus(SendingStatus.QUEUE);
+        } else {
+            msg.setStatus(SendingStatus.NOTSENT);
+        }
+        msg.setAttemptsMade(msg.getAttemptsMade() + 1);
+        if (config.isFileStorageUsed()) {
+            msg.setContentText(null);
+        }
+    }
+
     protected void persistAndSendEmail(EmailInfo emailInfo) throws EmailException {
         Objects.requireNonNull(emailInfo.getAddresses(), "addresses are null");
         Objects.requireNonNull(emailInfo.getCaption(), "caption is null");
@@ -300,8 +373,15 @@ public class Emailer implements EmailerAPI {
     protected String sendQueuedEmails() {
         List<SendingMessage> messagesToSend = loadEmailsToSend();
 
-        for (SendingMessage msg : messagesToSend) {
-            submitExecutorTask(msg);
+        int batchSize = config.getSendingBatchSize();
+        if (batchSize > 1) {
+            for (List<SendingMessage> batch : Lists.partition(messagesToSend, batchSize)) {
+                submitExecutorTask(new ArrayList<>(batch));
+            }
+        } else {
+            for (SendingMessage msg : messagesToSend) {
+                submitExecutorTask(msg);
+            }
         }
 
         if (messagesToSend.isEmpty()) {
@@ -341,6 +421,24 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected void submitExecutorTask(List<SendingMessage> batch) {
+        try {
+            Runnable mailSendTask = new EmailBatchSendTask(batch);
+            mailSendTaskExecutor.execute(mailSendTask);
+        } catch (RejectedExecutionException e) {
+            batch.forEach(this::returnToQueue);
+        } catch (Exception e) {
+            log.error("Exception while sending emails: ", e);
+            for (SendingMessage msg : batch) {
+                if (isNeedToRetry(e)) {
+                    returnToQueue(msg);
+                } else {
+                    markAsNonSent(msg);
+                }
+            }
+        }
+    }
+
     protected List<SendingMessage> loadEmailsToSend() {
         Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -config.getSendingTimeoutSec());
 
@@ -753,6 +851,33 @@ public class Emailer implements EmailerAPI {
         }
     }
 
+    protected static class EmailBatchSendTask implements Runnable {
+
+        private List<SendingMessage> sendingMessages;
+        private static final Logger log = LoggerFactory.getLogger(EmailBatchSendTask.class);
+
+        public EmailBatchSendTask(List<SendingMessage> messages) {
+            sendingMessages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Authentication authentication = AppBeans.get(Authentication.NAME);
+                Emailer emailer = AppBeans.get(EmailerAPI.NAME);
+
+                authentication.begin(emailer.getEmailerLogin());
+                try {
+                    emailer.sendSendingMessages(sendingMessages);
+                } finally {
+                    authentication.end();
+                }
+            } catch (Exception e) {
+                log.error("Exception while sending emails: ", e);
+            }
+        }
+    }
+
     protected static class MessagePersistingContext {
         public final List<FileDescriptor> files = new ArrayList<>();
 
@@ -149,6 +149,17 @@ public interface EmailerConfig extends Config {
     @DefaultInt(240)
     int getSendingTimeoutSec();
 
+    /**
+     * Max number of queued messages sent by a single task over one SMTP connection.
+     * The statuses of the messages of a batch are updated in one transaction.
+     * <br> If set to 1 (default), each message is sent by a separate task.
+     */
+    @Property("cuba.email.sendingBatchSize")
+    @DefaultInt(1)
+    int getSendingBatchSize();
+
+    void setSendingBatchSize(int sendingBatchSize);
+
     /**
      * All emails go to this address if {@link #getSendAllToAdmin()} is enabled, regardless of actual recipient.
      */
@@ -31,13 +31,20 @@ import com.haulmont.cuba.core.sys.CubaXStream;
 import com.haulmont.cuba.security.entity.User;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.mapper.MapperWrapper;
+import org.apache.commons.io.IOUtils;
 import org.dom4j.*;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
@@ -45,6 +52,11 @@ import static java.lang.String.format;
 @Component(EntitySnapshotAPI.NAME)
 public class EntitySnapshotManager implements EntitySnapshotAPI {
 
+    /**
+     * Prefix of the snapshot content stored gzipped and Base64-encoded.
+     */
+    protected static final String COMPRESSED_PREFIX = "gz:";
+
     @Inject
     protected Persistence persistence;
 
@@ -75,6 +87,11 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
     @Inject
     protected DataManager dataManager;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected volatile XStream cachedXStream;
+
     @Override
     public List<EntitySnapshot> getSnapshots(MetaClass metaClass, Object id) {
         metaClass = extendedEntities.getOriginalOrThisMetaClass(metaClass);
@@ -155,6 +172,9 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
     @Override
     public EntitySnapshot createSnapshot(Entity entity, View view, Date snapshotDate, User author) {
         EntitySnapshot snapshot = createEntitySnapshot(entity, view, snapshotDate, author);
+        if (serverConfig.getEntitySnapshotCompression()) {
+            snapshot.setSnapshotXml(compress(snapshot.getSnapshotXml()));
+        }
 
         Transaction tx = persistence.createTransaction();
         try {
@@ -171,10 +191,10 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public Entity extractEntity(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getSnapshotXml();
+        String rawResult = decompress(snapshot.getSnapshotXml());
         BaseGenericIdEntity entity;
         if (isXml(rawResult)) {
-            entity = (BaseGenericIdEntity) fromXML(snapshot.getSnapshotXml());
+            entity = (BaseGenericIdEntity) fromXML(rawResult);
         } else {
             entity = entitySerializationAPI.entityFromJson(rawResult, metadata.getClass(snapshot.getEntityMetaClass()));
         }
@@ -183,7 +203,7 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public View extractView(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getViewXml();
+        String rawResult = decompress(snapshot.getViewXml());
         View view;
         if (isXml(rawResult)) {
             view = (View) fromXML(rawResult);
@@ -199,6 +219,24 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
     }
 
     protected Object fromXML(String xml) {
+        XStream result = cachedXStream;
+        if (result == null) {
+            synchronized (this) {
+                result = cachedXStream;
+                if (result == null) {
+                    result = createXStream();
+                    cachedXStream = result;
+                }
+            }
+        }
+        return result.fromXML(xml);
+    }
+
+    /**
+     * Creates XStream reading snapshots stored in the legacy XML format. The instance is created once and
+     * then shared, as XStream is thread-safe after it is configured.
+     */
+    protected XStream createXStream() {
         final List exclUpdateFields = Arrays.asList("updateTs", "updatedBy");
         XStream xStream = new CubaXStream() {
             @Override
@@ -232,7 +270,36 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         xStream.omitField(BaseGenericIdEntity.class, "createTs");
         xStream.omitField(BaseGenericIdEntity.class, "createdBy");
 
-        return xStream.fromXML(xml);
+        return xStream;
+    }
+
+    /**
+     * @return the content gzipped and Base64-encoded, or the content itself if it is not made shorter this way
+     */
+    protected String compress(String content) {
+        if (content == null || content.startsWith(COMPRESSED_PREFIX)) {
+            return content;
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream)) {
+            gzipStream.write(content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compress snapshot", e);
+        }
+        String compressed = COMPRESSED_PREFIX + Base64.getEncoder().encodeToString(outputStream.toByteArray());
+        return compressed.length() < content.length() ? compressed : content;
+    }
+
+    protected String decompress(String value) {
+        if (value == null || !value.startsWith(COMPRESSED_PREFIX)) {
+            return value;
+        }
+        byte[] bytes = Base64.getDecoder().decode(value.substring(COMPRESSED_PREFIX.length()));
+        try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return IOUtils.toString(gzipStream, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decompress snapshot", e);
+        }
     }
 
     protected boolean isXml(String value) {
@@ -18,7 +18,10 @@ package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.FileStorageException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
@@ -63,6 +66,37 @@ public interface FileStorageAPI {
      */
     InputStream openStream(FileDescriptor fileDescr) throws FileStorageException;
 
+    /**
+     * Return an input stream to load a part of a file contents.
+     * @param fileDescr             file descriptor
+     * @param position              position of the first byte to load
+     * @param length                maximum number of bytes to load
+     * @return                      input stream, must be closed after use
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default InputStream openStream(FileDescriptor fileDescr, long position, long length) throws FileStorageException {
+        InputStream inputStream = openStream(fileDescr);
+        try {
+            IOUtils.skipFully(inputStream, position);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
+        }
+        return new BoundedInputStream(inputStream, length);
+    }
+
+    /**
+     * Return the size of a stored file.
+     * @param fileDescr             file descriptor
+     * @return                      file size in bytes or -1 if it is unknown
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default long getFileSize(FileDescriptor fileDescr) throws FileStorageException {
+        return fileDescr.getSize() != null ? fileDescr.getSize() : -1;
+    }
+
     /**
      * Load a file contents into byte array.
      * @param fileDescr             file descriptor
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.haulmont.cuba.core.global.LockInfo;
+import com.haulmont.cuba.core.sys.entitycache.EntityCacheConnection;
+import com.haulmont.cuba.core.sys.serialization.KryoSerialization;
+import com.haulmont.cuba.security.app.UserSessions;
+import com.haulmont.cuba.security.global.UserSession;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster message codec based on {@link KryoSerialization}.
+ * <p>
+ * Frequently sent classes are registered with fixed ids, so their names are not written to each message.
+ */
+@Component(ClusterMessageCodec.NAME)
+public class KryoClusterMessageCodec implements ClusterMessageCodec {
+
+    protected static final int FIRST_CLASS_ID = 1000;
+
+    protected KryoSerialization serialization = new ClusterKryoSerialization();
+
+    protected Map<String, CodecStat> statistics = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] encode(Object object) {
+        long start = System.nanoTime();
+        byte[] bytes = serialization.serialize(object);
+        getStat(object).updateEncoded(bytes.length, System.nanoTime() - start);
+        return bytes;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        long start = System.nanoTime();
+        Object object = serialization.deserialize(bytes);
+        getStat(object).updateDecoded(bytes.length, System.nanoTime() - start);
+        return object;
+    }
+
+    @Override
+    public String printStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, CodecStat> entry : statistics.entrySet()) {
+            CodecStat stat = entry.getValue();
+            sb.append(String.format("Class: %s; encoded: %s, %s bytes, %s ms; decoded: %s, %s bytes, %s ms\n",
+                    entry.getKey(),
+                    stat.encoded.longValue(), stat.encodedBytes.longValue(),
+                    TimeUnit.NANOSECONDS.toMillis(stat.encodeTime.longValue()),
+                    stat.decoded.longValue(), stat.decodedBytes.longValue(),
+                    TimeUnit.NANOSECONDS.toMillis(stat.decodeTime.longValue())));
+        }
+        return sb.toString();
+    }
+
+    protected CodecStat getStat(Object object) {
+        String className = object != null ? object.getClass().getName() : "null";
+        return statistics.computeIfAbsent(className, name -> new CodecStat());
+    }
+
+    /**
+     * Registers classes sent to the cluster. Ids must be the same on all cluster members, so new classes must be
+     * added to the end of the list.
+     */
+    protected void registerClasses(Kryo kryo) {
+        int id = FIRST_CLASS_ID;
+        kryo.register(ClusterManager.ClusterMessageBatch.class, id++);
+        kryo.register(UserSessions.UserSessionInfo.class, id++);
+        kryo.register(UserSessions.UserSessionTouchMessage.class, id++);
+        kryo.register(UserSession.class, id++);
+        kryo.register(LockInfo.class, id++);
+        // EclipseLink commands inside rely on Java serialization
+        kryo.register(EntityCacheConnection.Message.class, new KryoSerialization.CubaJavaSerializer(), id++);
+        kryo.register(UserSessions.UserSessionRequestMessage.class, id);
+    }
+
+    protected class ClusterKryoSerialization extends KryoSerialization {
+        @Override
+        protected Kryo newKryoInstance() {
+            Kryo kryo = super.newKryoInstance();
+            registerClasses(kryo);
+            return kryo;
+        }
+    }
+
+    protected static class CodecStat {
+        protected LongAdder encoded = new LongAdder();
+        protected LongAdder encodedBytes = new LongAdder();
+        protected LongAdder encodeTime = new LongAdder();
+        protected LongAdder decoded = new LongAdder();
+        protected LongAdder decodedBytes = new LongAdder();
+        protected LongAdder decodeTime = new LongAdder();
+
+        public void updateEncoded(int bytes, long nanos) {
+            encoded.increment();
+            encodedBytes.add(bytes);
+            encodeTime.add(nanos);
+        }
+
+        public void updateDecoded(int bytes, long nanos) {
+            decoded.increment();
+            decodedBytes.add(bytes);
+            decodeTime.add(nanos);
+        }
+    }
+}
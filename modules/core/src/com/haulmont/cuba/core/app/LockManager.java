@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.LockDescriptor;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.security.entity.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,11 +34,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 
 @Component(LockManagerAPI.NAME)
 public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
@@ -73,12 +72,50 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         }
     }
 
+    private static class LockExpiration implements Comparable<LockExpiration> {
+
+        private final LockKey key;
+        private final LockInfo lockInfo;
+        private final long time;
+
+        private LockExpiration(LockKey key, LockInfo lockInfo, long time) {
+            this.key = key;
+            this.lockInfo = lockInfo;
+            this.time = time;
+        }
+
+        @Override
+        public int compareTo(LockExpiration o) {
+            return Long.compare(time, o.time);
+        }
+    }
+
+    /**
+     * Cluster message containing a set of locks and unlocks, sent instead of separate {@link LockInfo} messages
+     * by bulk operations.
+     */
+    private static class LockInfoBatch implements Serializable {
+
+        private static final long serialVersionUID = 2817438214796212741L;
+
+        private final List<LockInfo> locks;
+
+        private LockInfoBatch(List<LockInfo> locks) {
+            this.locks = locks;
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(LockManager.class);
 
     private volatile Map<String, LockDescriptor> config;
 
     private Map<LockKey, LockInfo> locks = new ConcurrentHashMap<>();
 
+    // expiration times of locks having timeout, the head is the nearest one
+    private Queue<LockExpiration> expirations = new PriorityBlockingQueue<>();
+
+    private volatile boolean rescanLocks;
+
     @Inject
     private Persistence persistence;
 
@@ -88,12 +125,26 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     @Inject
     private UserSessionSource userSessionSource;
 
+    @Inject
+    private ClusterMessageCodec clusterMessageCodec;
+
+    @Inject
+    private TimeSource timeSource;
+
     private ClusterManagerAPI clusterManager;
 
     @Inject
     public void setClusterManager(ClusterManagerAPI clusterManager) {
         this.clusterManager = clusterManager;
         this.clusterManager.addListener(LockInfo.class, this);
+        this.clusterManager.addListener(LockInfoBatch.class, new ClusterListenerAdapter<LockInfoBatch>() {
+            @Override
+            public void receive(LockInfoBatch message) {
+                for (LockInfo lockInfo : message.locks) {
+                    LockManager.this.receive(lockInfo);
+                }
+            }
+        });
     }
 
     private Map<String, LockDescriptor> getConfig() {
@@ -138,7 +189,12 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         }
 
         lockInfo = new LockInfo(userSessionSource.getUserSession().getCurrentOrSubstitutedUser(), name, id);
-        locks.put(key, lockInfo);
+        LockInfo existingLockInfo = locks.putIfAbsent(key, lockInfo);
+        if (existingLockInfo != null) {
+            log.debug("Already locked: " + existingLockInfo);
+            return existingLockInfo;
+        }
+        scheduleExpiration(key, lockInfo);
         log.debug("Locked " + name + "/" + id);
 
         clusterManager.send(lockInfo);
@@ -146,21 +202,70 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         return null;
     }
 
+    @Override
+    public List<LockInfo> lock(Collection<? extends Entity> entities) {
+        Preconditions.checkNotNullArgument(entities, "entities is null");
+
+        User user = userSessionSource.getUserSession().getCurrentOrSubstitutedUser();
+        Map<LockKey, LockInfo> acquired = new LinkedHashMap<>();
+        List<LockInfo> conflicts = new ArrayList<>();
+        for (Entity entity : entities) {
+            LockKey key = getLockKey(entity);
+            if (acquired.containsKey(key) || getConfig().get(key.name) == null) {
+                continue;
+            }
+            LockInfo existingLockInfo;
+            if (conflicts.isEmpty()) {
+                LockInfo lockInfo = new LockInfo(user, key.name, key.id);
+                existingLockInfo = locks.putIfAbsent(key, lockInfo);
+                if (existingLockInfo == null) {
+                    acquired.put(key, lockInfo);
+                    continue;
+                }
+            } else {
+                // nothing will be locked, just collect the rest of conflicts
+                existingLockInfo = locks.get(key);
+            }
+            if (existingLockInfo != null) {
+                log.debug("Already locked: " + existingLockInfo);
+                conflicts.add(existingLockInfo);
+            }
+        }
+
+        if (!conflicts.isEmpty()) {
+            acquired.forEach(locks::remove);
+            return conflicts;
+        }
+        if (!acquired.isEmpty()) {
+            acquired.forEach(this::scheduleExpiration);
+            log.debug("Locked {} objects", acquired.size());
+
+            clusterManager.send(new LockInfoBatch(new ArrayList<>(acquired.values())));
+        }
+        return conflicts;
+    }
+
     @Nullable
     @Override
     public LockInfo lock(Entity entity) {
         Preconditions.checkNotNullArgument(entity, "entity is null");
 
+        LockKey key = getLockKey(entity);
+        return lock(key.name, key.id);
+    }
+
+    private LockKey getLockKey(Entity entity) {
         MetaClass metaClass = metadata.getClassNN(entity.getClass());
         MetaClass originalMetaClass = metadata.getExtendedEntities().getOriginalOrThisMetaClass(metaClass);
 
-        return lock(originalMetaClass.getName(), entity.getId().toString());
+        return new LockKey(originalMetaClass.getName(), entity.getId().toString());
     }
 
     @Override
     public void unlock(String name, String id) {
         LockInfo lockInfo = locks.remove(new LockKey(name, id));
         if (lockInfo != null) {
+            cancelExpirations(Collections.singletonList(lockInfo));
             log.debug("Unlocked " + name + "/" + id);
 
             clusterManager.send(new LockInfo(null, name, id));
@@ -171,10 +276,30 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     public void unlock(Entity entity) {
         Preconditions.checkNotNullArgument(entity, "entity is null");
 
-        MetaClass metaClass = metadata.getClassNN(entity.getClass());
-        MetaClass originalMetaClass = metadata.getExtendedEntities().getOriginalOrThisMetaClass(metaClass);
+        LockKey key = getLockKey(entity);
+        unlock(key.name, key.id);
+    }
+
+    @Override
+    public void unlock(Collection<? extends Entity> entities) {
+        Preconditions.checkNotNullArgument(entities, "entities is null");
+
+        List<LockInfo> released = new ArrayList<>();
+        List<LockInfo> unlocked = new ArrayList<>();
+        for (Entity entity : entities) {
+            LockKey key = getLockKey(entity);
+            LockInfo lockInfo = locks.remove(key);
+            if (lockInfo != null) {
+                released.add(lockInfo);
+                unlocked.add(new LockInfo(null, key.name, key.id));
+            }
+        }
+        if (!unlocked.isEmpty()) {
+            cancelExpirations(released);
+            log.debug("Unlocked {} objects", unlocked.size());
 
-        unlock(originalMetaClass.getName(), entity.getId().toString());
+            clusterManager.send(new LockInfoBatch(unlocked));
+        }
     }
 
     @Override
@@ -195,54 +320,93 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     @Override
     public void expireLocks() {
         log.debug("Expiring locks");
-        ArrayList<LockKey> list = new ArrayList<>(locks.keySet());
-        for (LockKey key : list) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo != null) {
-                LockDescriptor ld = getConfig().get(key.name);
-                if (ld == null) {
-                    log.debug("Lock " + key.name + "/" + key.id + " configuration not found, remove it");
-                    locks.remove(key);
+        if (rescanLocks) {
+            rescanLocks = false;
+            expirations.clear();
+            locks.forEach(this::scheduleExpiration);
+        }
+
+        long now = timeSource.currentTimeMillis();
+        LockExpiration expiration;
+        while ((expiration = expirations.poll()) != null) {
+            if (expiration.time > now) {
+                expirations.add(expiration);
+                break;
+            }
+            // the lock could be released or taken again since the expiration was scheduled
+            if (locks.remove(expiration.key, expiration.lockInfo)) {
+                if (getConfig().get(expiration.key.name) == null) {
+                    log.debug("Lock " + expiration.key.name + "/" + expiration.key.id + " configuration not found, remove it");
                 } else {
-                    Integer timeoutSec = ld.getTimeoutSec();
-                    if (timeoutSec != null && timeoutSec > 0) {
-                        Date since = lockInfo.getSince();
-                        if (since.getTime() + timeoutSec * 1000 < AppBeans.get(TimeSource.class).currentTimestamp().getTime()) {
-                            log.debug("Lock " + key.name + "/" + key.id + " expired");
-                            locks.remove(key);
-                        }
-                    }
+                    log.debug("Lock " + expiration.key.name + "/" + expiration.key.id + " expired");
                 }
             }
         }
     }
 
+    private void scheduleExpiration(LockKey key, LockInfo lockInfo) {
+        scheduleExpiration(getConfig(), key, lockInfo);
+    }
+
+    /**
+     * Called on the cluster receive thread, so the configuration is not loaded from the database here. If it is
+     * not loaded yet, the received lock is scheduled by the next {@link #expireLocks()} call.
+     */
+    private void scheduleReceivedExpiration(LockKey key, LockInfo lockInfo) {
+        Map<String, LockDescriptor> config = this.config;
+        if (config == null) {
+            rescanLocks = true;
+        } else {
+            scheduleExpiration(config, key, lockInfo);
+        }
+    }
+
+    private void scheduleExpiration(Map<String, LockDescriptor> config, LockKey key, LockInfo lockInfo) {
+        LockDescriptor ld = config.get(key.name);
+        if (ld == null) {
+            expirations.add(new LockExpiration(key, lockInfo, 0));
+        } else {
+            Integer timeoutSec = ld.getTimeoutSec();
+            if (timeoutSec != null && timeoutSec > 0) {
+                expirations.add(new LockExpiration(key, lockInfo, lockInfo.getSince().getTime() + timeoutSec * 1000L));
+            }
+        }
+    }
+
+    private void cancelExpirations(Collection<LockInfo> released) {
+        Set<LockInfo> releasedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        releasedSet.addAll(released);
+        expirations.removeIf(expiration -> releasedSet.contains(expiration.lockInfo));
+    }
+
     @Override
     public void reloadConfiguration() {
         config = null;
+        rescanLocks = true;
     }
 
     @Override
     public void receive(LockInfo message) {
         LockKey key = new LockKey(message.getEntityName(), message.getEntityId());
         if (message.getUser() != null) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo == null || lockInfo.getSince().before(message.getSince())) {
-                locks.put(key, message);
+            LockInfo lockInfo = locks.compute(key, (k, current) ->
+                    current == null || current.getSince().before(message.getSince()) ? message : current);
+            if (lockInfo == message) {
+                scheduleReceivedExpiration(key, message);
             }
         } else {
-            locks.remove(key);
+            LockInfo lockInfo = locks.remove(key);
+            if (lockInfo != null) {
+                cancelExpirations(Collections.singletonList(lockInfo));
+            }
         }
     }
 
     @Override
     public byte[] getState() {
-        List<LockInfo> list = new ArrayList<>(locks.values());
-
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeObject(list);
+            writeState(bos);
         } catch (IOException e) {
             log.error("Error serializing LockInfo list", e);
             return new byte[0];
@@ -255,18 +419,33 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         if (state == null || state.length == 0)
             return;
 
-        List<LockInfo> list;
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
         try {
-            ObjectInputStream ois = new ObjectInputStream(bis);
-            list = (List<LockInfo>) ois.readObject();
+            readState(new ByteArrayInputStream(state));
         } catch (Exception e) {
             log.error("Error deserializing LockInfo list", e);
-            return;
         }
+    }
 
-        for (LockInfo lockInfo : list) {
-            receive(lockInfo);
+    @Override
+    public void writeState(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        for (LockInfo lockInfo : locks.values()) {
+            byte[] bytes = clusterMessageCodec.encode(lockInfo);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.writeInt(0);
+        out.flush();
+    }
+
+    @Override
+    public void readState(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        int length;
+        while ((length = in.readInt()) > 0) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            receive((LockInfo) clusterMessageCodec.decode(bytes));
         }
     }
 }
\ No newline at end of file
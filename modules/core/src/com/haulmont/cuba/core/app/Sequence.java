@@ -20,12 +20,14 @@ package com.haulmont.cuba.core.app;
  * Represents sequence with name, store, start value and increment.
  * Default data store for sequence is MAIN data store.
  * Default start value 1, and default increment 1.
+ * By default, values are not cached.
  */
 public class Sequence {
     protected String name;
     protected String dataStore;
     protected long startValue = 1;
     protected long increment = 1;
+    protected int cacheSize;
 
     private Sequence(String sequenceName) {
         this.name = sequenceName;
@@ -50,6 +52,23 @@ public class Sequence {
         return this;
     }
 
+    /**
+     * Sets the number of values reserved by a single database call and then returned from memory of this
+     * middleware block. Each reservation makes a single step of the database sequence and reserves as many values
+     * as the sequence increment; if the increment is smaller than the cache size, it is raised to the cache size
+     * first. This also applies to sequences created earlier without cache.
+     * <p>
+     * Reserved values that are not used before restart are lost, and each middleware block returns values from its
+     * own range, so the values are unique but can contain gaps and are not ordered between blocks.
+     * The current value of the sequence is the first value of the last reserved range.
+     *
+     * @param cacheSize number of values to reserve, 0 or 1 means no caching
+     */
+    public Sequence setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
     public String getName() {
         return name;
     }
@@ -65,4 +84,8 @@ public class Sequence {
     public long getIncrement() {
         return increment;
     }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
 }
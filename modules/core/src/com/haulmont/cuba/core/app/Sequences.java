@@ -59,4 +59,12 @@ public interface Sequences {
      * @throws java.lang.IllegalStateException if sequence does not exist
      */
     void deleteSequence(Sequence sequence);
+
+    /**
+     * @return description of value ranges reserved by sequences with cache, see {@link Sequence#setCacheSize(int)},
+     * or empty string if the implementation does not cache values
+     */
+    default String printCachedSequences() {
+        return "";
+    }
 }
@@ -27,6 +27,8 @@ import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.core.sys.persistence.SequenceSupport;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.text.StrTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
@@ -37,8 +39,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
@@ -46,11 +51,14 @@ import java.util.regex.Pattern;
 @Component(Sequences.NAME)
 public class SequencesImpl implements Sequences {
 
+    private static final Logger log = LoggerFactory.getLogger(SequencesImpl.class);
+
     @Inject
     protected Persistence persistence;
 
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
     protected Set<String> existingSequences = ConcurrentHashMap.newKeySet();
+    protected ConcurrentMap<String, CachedSequence> cachedSequences = new ConcurrentHashMap<>();
 
     protected static final Pattern SEQ_PATTERN = Pattern.compile("[a-zA-Z0-9_]+");
 
@@ -58,6 +66,9 @@ public class SequencesImpl implements Sequences {
     public long createNextValue(Sequence sequence) {
         Preconditions.checkNotNull(sequence, "Sequence can't be null");
         checkSequenceName(sequence.getName());
+        if (sequence.getCacheSize() > 1) {
+            return createCachedNextValue(sequence);
+        }
         String sqlScript = getSequenceSupport(sequence).getNextValueSql(sequence.getName());
         return getResult(sequence, sqlScript);
     }
@@ -75,6 +86,7 @@ public class SequencesImpl implements Sequences {
         Preconditions.checkNotNull(sequence, "Sequence can't be null");
         checkSequenceName(sequence.getName());
         String sqlScript = getSequenceSupport(sequence).modifySequenceSql(sequence.getName(), value);
+        cachedSequences.remove(sequence.getName());
         lock.readLock().lock();
         try {
             Transaction tx = persistence.getTransaction(getDataStore(sequence));
@@ -108,6 +120,7 @@ public class SequencesImpl implements Sequences {
             try {
                 executeScript(sequence, sqlScript);
                 existingSequences.remove(sequenceName);
+                cachedSequences.remove(sequenceName);
 
                 tx.commit();
             } finally {
@@ -123,6 +136,110 @@ public class SequencesImpl implements Sequences {
      */
     public void reset() {
         existingSequences.clear();
+        cachedSequences.clear();
+    }
+
+    @Override
+    public String printCachedSequences() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, CachedSequence> entry : cachedSequences.entrySet()) {
+            CachedSequence cachedSequence = entry.getValue();
+            ReservedValues values = cachedSequence.values;
+            sb.append(String.format("%s: cache size: %s, reservations: %s", entry.getKey(),
+                    cachedSequence.cacheSize, cachedSequence.reservations.get()));
+            if (values != null) {
+                sb.append(String.format(", last returned value: %s, last reserved value: %s",
+                        Math.min(values.counter.get(), values.last), values.last));
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    protected long createCachedNextValue(Sequence sequence) {
+        CachedSequence cachedSequence = cachedSequences.compute(sequence.getName(), (name, existing) ->
+                existing != null && existing.cacheSize == sequence.getCacheSize() ?
+                        existing : new CachedSequence(sequence.getCacheSize()));
+
+        ReservedValues values = cachedSequence.values;
+        while (true) {
+            if (values != null) {
+                long next = values.counter.incrementAndGet();
+                if (next <= values.last) {
+                    return next;
+                }
+            }
+            values = reserveValues(sequence, cachedSequence, values);
+        }
+    }
+
+    protected ReservedValues reserveValues(Sequence sequence, CachedSequence cachedSequence,
+                                           ReservedValues exhausted) {
+        synchronized (cachedSequence) {
+            if (cachedSequence.values != exhausted) {
+                return cachedSequence.values;
+            }
+            ReservedValues values = reserveRange(sequence, cachedSequence);
+            cachedSequence.values = values;
+            cachedSequence.reservations.incrementAndGet();
+            return values;
+        }
+    }
+
+    /**
+     * Reserves a range of values by a single step of the database sequence. The range size is the actual increment
+     * of the sequence. If the increment is smaller than the cache size, it is raised first, so values of the range
+     * are never returned by other middleware blocks or by calls without cache.
+     * <p>
+     * The increment is checked only on the first reservation. Increments are never lowered, so the following
+     * reservations take the next value in the current transaction only.
+     */
+    protected ReservedValues reserveRange(Sequence sequence, CachedSequence cachedSequence) {
+        long increment = cachedSequence.increment;
+        if (increment == 0) {
+            increment = prepareIncrement(sequence, cachedSequence);
+            cachedSequence.increment = increment;
+        }
+        String sqlScript = getSequenceSupport(sequence).getNextValueSql(sequence.getName());
+        long first = getResult(sequence, sqlScript);
+        return new ReservedValues(first, first + increment - 1);
+    }
+
+    protected long prepareIncrement(Sequence sequence, CachedSequence cachedSequence) {
+        SequenceSupport sequenceSupport = getSequenceSupport(sequence);
+        lock.readLock().lock();
+        try {
+            // changing the increment is DDL for some databases, so it must not affect the invoking transaction
+            Transaction tx = persistence.createTransaction(getDataStore(sequence));
+            try {
+                checkSequenceExists(sequence);
+                long increment = getIncrement(sequence, sequenceSupport);
+                if (increment < cachedSequence.cacheSize) {
+                    String sqlScript = sequenceSupport.modifyIncrementSql(sequence.getName(), cachedSequence.cacheSize);
+                    if (sqlScript != null) {
+                        executeScript(sequence, sqlScript);
+                        increment = cachedSequence.cacheSize;
+                    } else if (!cachedSequence.incrementWarningLogged) {
+                        log.warn("Increment of sequence '{}' can not be changed to {}, reserving {} value(s) at a time",
+                                sequence.getName(), cachedSequence.cacheSize, increment);
+                        cachedSequence.incrementWarningLogged = true;
+                    }
+                }
+                tx.commit();
+                return increment;
+            } finally {
+                tx.end();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected long getIncrement(Sequence sequence, SequenceSupport sequenceSupport) {
+        String sqlScript = sequenceSupport.getIncrementSql(sequence.getName());
+        Object value = sqlScript != null ? executeScript(sequence, sqlScript) : null;
+        // an unknown increment is treated as 1, so at most one value is reserved
+        return value != null ? Math.max(toLong(value), 1) : 1;
     }
 
     protected long getResult(Sequence sequence, String sqlScript) {
@@ -133,18 +250,7 @@ public class SequencesImpl implements Sequences {
                 checkSequenceExists(sequence);
                 Object value = executeScript(sequence, sqlScript);
                 tx.commit();
-                if (value instanceof Long)
-                    return (Long) value;
-                else if (value instanceof BigDecimal)
-                    return ((BigDecimal) value).longValue();
-                else if (value instanceof BigInteger)
-                    return ((BigInteger) value).longValue();
-                else if (value instanceof String)
-                    return Long.parseLong((String) value);
-                else if (value == null)
-                    throw new IllegalStateException("No value returned");
-                else
-                    throw new IllegalStateException("Unsupported value type: " + value.getClass());
+                return toLong(value);
             } finally {
                 tx.end();
             }
@@ -153,6 +259,21 @@ public class SequencesImpl implements Sequences {
         }
     }
 
+    protected long toLong(Object value) {
+        if (value instanceof Long)
+            return (Long) value;
+        else if (value instanceof BigDecimal)
+            return ((BigDecimal) value).longValue();
+        else if (value instanceof BigInteger)
+            return ((BigInteger) value).longValue();
+        else if (value instanceof String)
+            return Long.parseLong((String) value);
+        else if (value == null)
+            throw new IllegalStateException("No value returned");
+        else
+            throw new IllegalStateException("Unsupported value type: " + value.getClass());
+    }
+
     protected void checkSequenceExists(Sequence sequence) {
         String sequenceName = sequence.getName();
         if (existingSequences.contains(sequenceName)) {
@@ -190,6 +311,29 @@ public class SequencesImpl implements Sequences {
         }
     }
 
+    protected static class CachedSequence {
+        protected final int cacheSize;
+        protected final AtomicLong reservations = new AtomicLong();
+        protected volatile ReservedValues values;
+        // increment of the database sequence, zero until checked by the first reservation
+        protected long increment;
+        protected boolean incrementWarningLogged;
+
+        public CachedSequence(int cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
+    protected static class ReservedValues {
+        protected final AtomicLong counter;
+        protected final long last;
+
+        public ReservedValues(long first, long last) {
+            this.counter = new AtomicLong(first - 1);
+            this.last = last;
+        }
+    }
+
     protected Object executeScript(Sequence sequence, String sqlScript) {
         EntityManager em = persistence.getEntityManager(getDataStore(sequence));
         StrTokenizer tokenizer = new StrTokenizer(sqlScript, SequenceSupport.SQL_DELIMITER);
@@ -86,8 +86,8 @@ public interface ServerConfig extends Config {
 
     /**
      * @return User session ping timeout in cluster.
-     * If ping is performed by {@link UserSessionsAPI#getAndRefresh}, user session is sent to the cluster only
-     * after this timeout
+     * If ping is performed by {@link UserSessionsAPI#getAndRefresh}, last used timestamp of the user session
+     * is sent to the cluster only after this timeout
      */
     @Property("cuba.userSessionSendTimeoutSec")
     @DefaultInt(10)
@@ -102,6 +102,14 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * @return Interval in milliseconds of sending last used timestamps of touched user sessions to the cluster.
+     * Used in the scheduler configuration, so it can be set only in app properties.
+     */
+    @Property("cuba.userSessionTouchesSendInterval")
+    @DefaultInt(1000)
+    int getUserSessionTouchesSendInterval();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -131,6 +139,51 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getImmutableFileStorage();
 
+    /**
+     * @return Number of threads copying files to secondary {@link FileStorageAPI} storage directories.
+     */
+    @Property("cuba.fileStorageReplicationThreads")
+    @DefaultInt(5)
+    int getFileStorageReplicationThreads();
+
+    /**
+     * @return Maximum number of files waiting to be copied to secondary storage directories. If the queue is full,
+     * the thread saving a file copies it itself.
+     */
+    @Property("cuba.fileStorageReplicationQueueCapacity")
+    @DefaultInt(100)
+    int getFileStorageReplicationQueueCapacity();
+
+    /**
+     * @return Number of attempts to copy a file to a secondary storage directory.
+     */
+    @Property("cuba.fileStorageReplicationAttempts")
+    @DefaultInt(3)
+    int getFileStorageReplicationAttempts();
+
+    /**
+     * @return Maximum number of storage.log records waiting to be written. Threads saving and removing files
+     * block when the queue is full.
+     */
+    @Property("cuba.fileStorageLogQueueCapacity")
+    @DefaultInt(10000)
+    int getFileStorageLogQueueCapacity();
+
+    /**
+     * @return Interval in milliseconds of forcing storage.log records to disk.
+     */
+    @Property("cuba.fileStorageLogFlushInterval")
+    @DefaultInt(1000)
+    int getFileStorageLogFlushInterval();
+
+    /**
+     * @return Size of storage.log in megabytes after which it is renamed with a timestamp suffix and a new file
+     * is started. 0 means no rotation.
+     */
+    @Property("cuba.fileStorageLogMaxSize")
+    @DefaultInt(0)
+    int getFileStorageLogMaxSize();
+
     /**
      * @return Scheduled tasks execution control.
      */
@@ -149,6 +202,14 @@ public interface ServerConfig extends Config {
     long getSchedulingInterval();
     void setSchedulingInterval(long value);
 
+    /**
+     * @return Whether singleton scheduled tasks are locked in the database one by one for the time of their start
+     * instead of locking all active tasks for the whole scheduler tick.
+     */
+    @Property("cuba.schedulingLockPerTask")
+    @DefaultBoolean(false)
+    boolean getSchedulingLockPerTask();
+
     /**
      * @return Maximum size of thread pool which is used to process scheduled tasks
      */
@@ -324,4 +385,25 @@ public interface ServerConfig extends Config {
      */
     @Property("cuba.disableEnhancementChecks")
     boolean getDisableEnhancementChecks();
-}
\ No newline at end of file
+
+    /**
+     * Number of entities above which dynamic attribute values are loaded by a single query joined with
+     * entity ids saved to {@code SYS_QUERY_RESULT}, instead of a query per 100 entities.
+     * 0 (default) disables this mode.
+     */
+    @Property("cuba.dynamicAttributesQueryResultsThreshold")
+    @DefaultInt(0)
+    int getDynamicAttributesQueryResultsThreshold();
+
+    void setDynamicAttributesQueryResultsThreshold(int threshold);
+
+    /**
+     * Whether the content of new entity snapshots is stored gzipped and Base64-encoded if it makes the content shorter.
+     * Snapshots are read regardless of the format they were stored in.
+     */
+    @Property("cuba.entitySnapshotCompression")
+    @DefaultBoolean(false)
+    boolean getEntitySnapshotCompression();
+
+    void setEntitySnapshotCompression(boolean compression);
+}
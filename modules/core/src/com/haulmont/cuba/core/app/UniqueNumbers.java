@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.global.Stores;
+import com.haulmont.cuba.core.sys.AppContext;
 import org.apache.commons.lang3.StringUtils;
 
 import org.springframework.stereotype.Component;
@@ -34,32 +35,31 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     @Override
     public long getNextNumber(String domain) {
-        Sequence sequence = Sequence.withName(getSequenceName(domain))
-                .setStore(getDataStore(domain))
-                .setStartValue(1)
-                .setIncrement(1);
-        return sequences.createNextValue(sequence);
+        return sequences.createNextValue(getSequence(domain));
     }
 
     @Override
     public long getCurrentNumber(String domain) {
-        Sequence sequence = Sequence.withName(getSequenceName(domain))
-                .setStore(getDataStore(domain));
-        return sequences.getCurrentValue(sequence);
+        return sequences.getCurrentValue(getSequence(domain));
     }
 
     @Override
     public void setCurrentNumber(String domain, long value) {
-        Sequence sequence = Sequence.withName(getSequenceName(domain))
-                .setStore(getDataStore(domain));
-        sequences.setCurrentValue(sequence, value);
+        sequences.setCurrentValue(getSequence(domain), value);
     }
 
     @Override
     public void deleteSequence(String domain) {
-        Sequence sequence = Sequence.withName(getSequenceName(domain))
-                .setStore(getDataStore(domain));
-        sequences.deleteSequence(sequence);
+        sequences.deleteSequence(getSequence(domain));
+    }
+
+    protected Sequence getSequence(String domain) {
+        int cacheSize = getCacheSize(domain);
+        return Sequence.withName(getSequenceName(domain))
+                .setStore(getDataStore(domain))
+                .setStartValue(1)
+                .setIncrement(cacheSize > 1 ? cacheSize : 1)
+                .setCacheSize(cacheSize);
     }
 
     /**
@@ -72,6 +72,19 @@ public class UniqueNumbers implements UniqueNumbersAPI {
         return Stores.MAIN;
     }
 
+    /**
+     * Override this method or set {@code cuba.uniqueNumbersCacheSize_<domain>} app property if you want
+     * a range of numbers to be reserved by a single database call. See {@link Sequence#setCacheSize(int)}
+     * for details.
+     *
+     * @param domain    sequence identifier passed to the interface methods
+     * @return          number of reserved values (by default, 0 which means no caching)
+     */
+    protected int getCacheSize(String domain) {
+        String cacheSize = AppContext.getProperty("cuba.uniqueNumbersCacheSize_" + domain);
+        return StringUtils.isNotBlank(cacheSize) ? Integer.parseInt(cacheSize.trim()) : 0;
+    }
+
     protected String getSequenceName(String domain) {
         if (StringUtils.isBlank(domain))
             throw new IllegalArgumentException("Domain name can not be blank");
@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.app.dynamicattributes;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
@@ -27,6 +28,9 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.CoalescingClusterMessage;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.app.queryresults.QueryResultsManagerAPI;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import org.apache.commons.collections4.CollectionUtils;
@@ -38,8 +42,9 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -48,6 +53,7 @@ import static java.lang.String.format;
 @Component(DynamicAttributesManagerAPI.NAME)
 public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     public static final int MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH = 100;
+    public static final int MAX_IDS_FOR_ENTITY_VALUES_BATCH = 1000;
 
     private static final Logger log = LoggerFactory.getLogger(DynamicAttributesManager.class);
 
@@ -69,12 +75,27 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     @Inject
     protected PersistentAttributesLoadChecker persistentAttributesLoadChecker;
 
+    @Inject
+    protected QueryResultsManagerAPI queryResultsManager;
+
+    @Inject
+    protected UserSessionSource userSessionSource;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
     protected ClusterManagerAPI clusterManager;
 
     protected ReentrantLock loadCacheLock = new ReentrantLock();
 
     protected volatile DynamicAttributesCache dynamicAttributesCache;
 
+    protected volatile View attributeValuesView;
+
+    protected volatile View attributeValuesWithChildrenView;
+
+    protected Map<String, MetaClass> entityValueMetaClasses = new ConcurrentHashMap<>();
+
     @Inject
     public void setClusterManager(ClusterManagerAPI clusterManager) {
         this.clusterManager = clusterManager;
@@ -129,6 +150,9 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 tx.commit();
 
                 dynamicAttributesCache = new DynamicAttributesCache(categoriesCache, attributesCache, timeSource.currentTimestamp());
+                attributeValuesView = null;
+                attributeValuesWithChildrenView = null;
+                entityValueMetaClasses.clear();
                 if (sendClusterMessage) {
                     clusterManager.send(new ReloadCacheMsg());
                 }
@@ -354,17 +378,21 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .map(e -> referenceToEntitySupport.getReferenceId(e))
                 .collect(Collectors.toList());
 
-        Multimap<Object, CategoryAttributeValue> allAttributeValues = HashMultimap.create();
-
-        List<Object> currentIds = new ArrayList<>();
-        for (Object id : ids) {
-            currentIds.add(id);
-            if (currentIds.size() >= MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH) {
-                handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
-                currentIds = new ArrayList<>();
+        List<CategoryAttributeValue> loadedValues;
+        int threshold = serverConfig.getDynamicAttributesQueryResultsThreshold();
+        if (threshold > 0 && ids.size() > threshold && userSessionSource.checkCurrentUserSession()) {
+            loadedValues = queryAttributeValuesUsingQueryResults(metaClass, ids);
+        } else {
+            loadedValues = new ArrayList<>();
+            for (List<Object> currentIds : Lists.partition(ids, MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH)) {
+                loadedValues.addAll(queryAttributeValues(metaClass, currentIds));
             }
         }
-        handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
+
+        Multimap<Object, CategoryAttributeValue> allAttributeValues = HashMultimap.create();
+        for (CategoryAttributeValue attributeValue : resolveAttributeValues(loadedValues)) {
+            allAttributeValues.put(attributeValue.getObjectEntityId(), attributeValue);
+        }
 
         for (BaseGenericIdEntity entity : entities) {
             Collection<CategoryAttributeValue> entityAttributeValues = allAttributeValues.get(referenceToEntitySupport.getReferenceId(entity));
@@ -381,83 +409,159 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         }
     }
 
-    protected void handleAttributeValuesForIds(MetaClass metaClass, List<Object> currentIds, Multimap<Object, CategoryAttributeValue> attributeValuesForEntity) {
-        if (CollectionUtils.isNotEmpty(currentIds)) {
-            for (CategoryAttributeValue attributeValue : loadAttributeValues(metaClass, currentIds)) {
-                attributeValuesForEntity.put(attributeValue.getObjectEntityId(), attributeValue);
-            }
+    protected List<CategoryAttributeValue> queryAttributeValues(MetaClass metaClass, List<Object> entityIds) {
+        EntityManager em = persistence.getEntityManager();
+
+        TypedQuery<CategoryAttributeValue> query;
+        if (HasUuid.class.isAssignableFrom(metaClass.getJavaClass())) {
+            query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids and cav.parent is null",
+                    referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
+                    CategoryAttributeValue.class);
+        } else {
+            query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids " +
+                            "and cav.categoryAttribute.categoryEntityType = :entityType and cav.parent is null",
+                    referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
+                    CategoryAttributeValue.class);
+            query.setParameter("entityType", metaClass.getName());
         }
+        query.setParameter("ids", entityIds);
+        query.setView(getAttributeValuesView());
+        return query.getResultList();
     }
 
-    protected List<CategoryAttributeValue> loadAttributeValues(MetaClass metaClass, List<Object> entityIds) {
-        List<CategoryAttributeValue> attributeValues = new ArrayList<>();
-        try (Transaction tx = persistence.getTransaction()) {
+    /**
+     * Loads attribute values of all passed entities by one query. Entity ids are stored in {@code SYS_QUERY_RESULT}
+     * table under a temporary query key and joined to the attribute values instead of passing them as
+     * {@code in} parameters.
+     */
+    protected List<CategoryAttributeValue> queryAttributeValuesUsingQueryResults(MetaClass metaClass, List<Object> entityIds) {
+        int queryKey = -1 - ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE - 1);
+        queryResultsManager.insert(queryKey, entityIds);
+        try {
             EntityManager em = persistence.getEntityManager();
 
-            View view = new View(viewRepository.getView(CategoryAttributeValue.class, View.LOCAL), null, false)
-                    .addProperty("categoryAttribute", new View(viewRepository.getView(CategoryAttribute.class, View.LOCAL), null, false)
-                            .addProperty("category")
-                            .addProperty("defaultEntity", viewRepository.getView(ReferenceToEntity.class, View.LOCAL)));
-
+            String idProperty = referenceToEntitySupport.getReferenceIdPropertyName(metaClass);
             TypedQuery<CategoryAttributeValue> query;
             if (HasUuid.class.isAssignableFrom(metaClass.getJavaClass())) {
-                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids and cav.parent is null",
-                        referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
+                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav, sys$QueryResult _qr " +
+                                "where _qr.%s = cav.entity.%s and _qr.sessionId = :sessionId and _qr.queryKey = :queryKey " +
+                                "and cav.parent is null",
+                        idProperty, idProperty),
                         CategoryAttributeValue.class);
             } else {
-                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids " +
+                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav, sys$QueryResult _qr " +
+                                "where _qr.%s = cav.entity.%s and _qr.sessionId = :sessionId and _qr.queryKey = :queryKey " +
                                 "and cav.categoryAttribute.categoryEntityType = :entityType and cav.parent is null",
-                        referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
+                        idProperty, idProperty),
                         CategoryAttributeValue.class);
                 query.setParameter("entityType", metaClass.getName());
             }
-            query.setParameter("ids", entityIds);
-            query.setView(view);
-            List<CategoryAttributeValue> resultList = query.getResultList();
+            query.setParameter("sessionId", userSessionSource.getUserSession().getId());
+            query.setParameter("queryKey", queryKey);
+            query.setView(getAttributeValuesView());
+            return query.getResultList();
+        } finally {
+            queryResultsManager.delete(queryKey);
+        }
+    }
+
+    /**
+     * Loads entity values and child values of collection attributes for all passed attribute values at once.
+     */
+    protected List<CategoryAttributeValue> resolveAttributeValues(List<CategoryAttributeValue> resultList) {
+        if (resultList.isEmpty()) {
+            return resultList;
+        }
 
-            List<CategoryAttributeValue> cavsOfEntityType = resultList.stream()
-                    .filter(cav -> cav.getObjectEntityValueId() != null)
-                    .collect(Collectors.toList());
+        List<CategoryAttributeValue> attributeValues = new ArrayList<>();
 
-            List<CategoryAttributeValue> cavsOfCollectionType = resultList.stream()
-                    .filter(cav -> cav.getCategoryAttribute().getIsCollection())
-                    .collect(Collectors.toList());
+        List<CategoryAttributeValue> cavsOfEntityType = resultList.stream()
+                .filter(cav -> cav.getObjectEntityValueId() != null)
+                .collect(Collectors.toList());
 
-            if (cavsOfCollectionType.isEmpty()) {
-                loadEntityValues(cavsOfEntityType);
-                attributeValues.addAll(resultList);
-            } else {
-                List<CategoryAttributeValue> cavsOfCollectionTypeWithChildren = reloadCategoryAttributeValuesWithChildren(cavsOfCollectionType);
-
-                //add nested collection values to the cavsOfEntityType collection, because this collection will later be
-                //used for loading entity values
-                cavsOfCollectionTypeWithChildren.stream()
-                        .filter(cav -> cav.getCategoryAttribute().getDataType() == PropertyType.ENTITY && cav.getChildValues() != null)
-                        .forEach(cav -> cavsOfEntityType.addAll(cav.getChildValues()));
-
-                loadEntityValues(cavsOfEntityType);
-
-                cavsOfCollectionTypeWithChildren.stream()
-                        .filter(cav -> cav.getChildValues() != null)
-                        .forEach(cav -> {
-                            List<Object> value = cav.getChildValues().stream()
-                                    .map(CategoryAttributeValue::getValue)
-                                    .collect(Collectors.toList());
-                            cav.setTransientCollectionValue(value);
-                        });
-
-                attributeValues.addAll(resultList.stream()
-                        .filter(cav -> !cavsOfCollectionTypeWithChildren.contains(cav))
-                        .collect(Collectors.toList()));
-
-                attributeValues.addAll(cavsOfCollectionTypeWithChildren);
-            }
+        List<CategoryAttributeValue> cavsOfCollectionType = resultList.stream()
+                .filter(cav -> cav.getCategoryAttribute().getIsCollection())
+                .collect(Collectors.toList());
 
-            tx.commit();
+        if (cavsOfCollectionType.isEmpty()) {
+            loadEntityValues(cavsOfEntityType);
+            attributeValues.addAll(resultList);
+        } else {
+            List<CategoryAttributeValue> cavsOfCollectionTypeWithChildren = reloadCategoryAttributeValuesWithChildren(cavsOfCollectionType);
+
+            //add nested collection values to the cavsOfEntityType collection, because this collection will later be
+            //used for loading entity values
+            cavsOfCollectionTypeWithChildren.stream()
+                    .filter(cav -> cav.getCategoryAttribute().getDataType() == PropertyType.ENTITY && cav.getChildValues() != null)
+                    .forEach(cav -> cavsOfEntityType.addAll(cav.getChildValues()));
+
+            loadEntityValues(cavsOfEntityType);
+
+            cavsOfCollectionTypeWithChildren.stream()
+                    .filter(cav -> cav.getChildValues() != null)
+                    .forEach(cav -> {
+                        List<Object> value = cav.getChildValues().stream()
+                                .map(CategoryAttributeValue::getValue)
+                                .collect(Collectors.toList());
+                        cav.setTransientCollectionValue(value);
+                    });
+
+            Set<CategoryAttributeValue> reloaded = new HashSet<>(cavsOfCollectionTypeWithChildren);
+            attributeValues.addAll(resultList.stream()
+                    .filter(cav -> !reloaded.contains(cav))
+                    .collect(Collectors.toList()));
+
+            attributeValues.addAll(cavsOfCollectionTypeWithChildren);
         }
         return attributeValues;
     }
 
+    protected View getAttributeValuesView() {
+        View view = attributeValuesView;
+        if (view == null) {
+            view = new View(viewRepository.getView(CategoryAttributeValue.class, View.LOCAL), null, false)
+                    .addProperty("categoryAttribute", new View(viewRepository.getView(CategoryAttribute.class, View.LOCAL), null, false)
+                            .addProperty("category")
+                            .addProperty("defaultEntity", viewRepository.getView(ReferenceToEntity.class, View.LOCAL)))
+                    .freeze();
+            attributeValuesView = view;
+        }
+        return View.copyOnWrite(view);
+    }
+
+    protected View getAttributeValuesWithChildrenView() {
+        View view = attributeValuesWithChildrenView;
+        if (view == null) {
+            View categoryAttributeValueLocalView = viewRepository.getView(CategoryAttributeValue.class, View.LOCAL);
+            View categoryAttributeLocalView = viewRepository.getView(CategoryAttribute.class, View.LOCAL);
+
+            view = new View(categoryAttributeValueLocalView, null, false)
+                    .addProperty("categoryAttribute", new View(categoryAttributeLocalView, null, false).addProperty("category"))
+                    .addProperty("childValues", categoryAttributeValueLocalView)
+                    .freeze();
+            attributeValuesWithChildrenView = view;
+        }
+        return View.copyOnWrite(view);
+    }
+
+    @Nullable
+    protected MetaClass getEntityValueMetaClass(CategoryAttribute attribute) {
+        String className = attribute.getEntityClass();
+        if (className == null) {
+            return null;
+        }
+        MetaClass metaClass = entityValueMetaClasses.get(className);
+        if (metaClass == null) {
+            try {
+                metaClass = metadata.getClass(Class.forName(className));
+                entityValueMetaClasses.put(className, metaClass);
+            } catch (ClassNotFoundException e) {
+                log.error("Class {} not found", className);
+            }
+        }
+        return metaClass;
+    }
+
     /**
      * Method loads entity values for CategoryAttributeValues of entity type and sets entity values to the corresponding
      * property of the {@code CategoryAttributeValue} entity.
@@ -468,14 +572,10 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         HashMultimap<MetaClass, CategoryAttributeValue> cavByType = HashMultimap.create();
 
         cavsOfEntityType.forEach(cav -> {
-            String className = cav.getCategoryAttribute().getEntityClass();
-            try {
-                Class<?> aClass = Class.forName(className);
-                MetaClass metaClass = metadata.getClass(aClass);
+            MetaClass metaClass = getEntityValueMetaClass(cav.getCategoryAttribute());
+            if (metaClass != null) {
                 entitiesIdsToBeLoaded.put(metaClass, cav.getObjectEntityValueId());
                 cavByType.put(metaClass, cav);
-            } catch (ClassNotFoundException e) {
-                log.error("Class {} not found", className);
             }
         });
 
@@ -484,12 +584,12 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         for (Map.Entry<MetaClass, Collection<Object>> entry : entitiesIdsToBeLoaded.asMap().entrySet()) {
             Map<Object, BaseGenericIdEntity> idToEntityMap = new HashMap<>();
             MetaClass metaClass = entry.getKey();
-            Collection<Object> ids = entry.getValue();
+            List<Object> ids = new ArrayList<>(entry.getValue());
 
-            if (!ids.isEmpty()) {
-                String pkName = referenceToEntitySupport.getPrimaryKeyForLoadingEntity(metaClass);
+            String pkName = referenceToEntitySupport.getPrimaryKeyForLoadingEntity(metaClass);
+            for (List<Object> currentIds : Lists.partition(ids, MAX_IDS_FOR_ENTITY_VALUES_BATCH)) {
                 List<BaseGenericIdEntity> entitiesValues = em.createQuery(format("select e from %s e where e.%s in :ids", metaClass.getName(), pkName))
-                        .setParameter("ids", ids)
+                        .setParameter("ids", currentIds)
                         .setView(metaClass.getJavaClass(), View.MINIMAL)
                         .getResultList();
 
@@ -507,24 +607,27 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     protected List<CategoryAttributeValue> reloadCategoryAttributeValuesWithChildren(List<CategoryAttributeValue> categoryAttributeValues) {
         EntityManager em = persistence.getEntityManager();
 
-        View categoryAttributeValueLocalView = viewRepository.getView(CategoryAttributeValue.class, View.LOCAL);
-        View categoryAttributeLocalView = viewRepository.getView(CategoryAttribute.class, View.LOCAL);
-
-        View view = new View(categoryAttributeValueLocalView, null, false)
-                .addProperty("categoryAttribute", new View(categoryAttributeLocalView, null, false).addProperty("category"))
-                .addProperty("childValues", categoryAttributeValueLocalView);
-
         List<UUID> ids = categoryAttributeValues.stream()
                 .map(BaseUuidEntity::getId)
                 .collect(Collectors.toList());
 
-        return em.createQuery("select cav from sys$CategoryAttributeValue cav where cav.id in :ids", CategoryAttributeValue.class)
-                .setParameter("ids", ids)
-                .setView(view)
-                .getResultList();
+        List<CategoryAttributeValue> result = new ArrayList<>(ids.size());
+        for (List<UUID> currentIds : Lists.partition(ids, MAX_IDS_FOR_ENTITY_VALUES_BATCH)) {
+            result.addAll(em.createQuery("select cav from sys$CategoryAttributeValue cav where cav.id in :ids", CategoryAttributeValue.class)
+                    .setParameter("ids", currentIds)
+                    .setView(getAttributeValuesWithChildrenView())
+                    .getResultList());
+        }
+        return result;
     }
 
-    private static class ReloadCacheMsg implements Serializable {
+    private static class ReloadCacheMsg implements CoalescingClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public Object getCoalescingKey() {
+            // all messages are equivalent
+            return ReloadCacheMsg.class;
+        }
     }
 }
\ No newline at end of file
@@ -26,7 +26,9 @@ import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -35,13 +37,18 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
@@ -50,6 +57,12 @@ public class FileStorage implements FileStorageAPI {
 
     private static final Logger log = LoggerFactory.getLogger(FileStorage.class);
 
+    protected static final long TRANSFER_CHUNK_SIZE = 1024 * 1024;
+
+    protected static final long REPLICATION_RETRY_DELAY_MS = 1000;
+
+    protected static final FastDateFormat LOG_DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss.SSS");
+
     @Inject
     protected UserSessionSource userSessionSource;
 
@@ -61,14 +74,41 @@ public class FileStorage implements FileStorageAPI {
 
     protected boolean isImmutableFileStorage;
 
-    protected ExecutorService writeExecutor = Executors.newFixedThreadPool(5,
-            new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build());
+    protected int replicationAttempts;
+
+    protected ThreadPoolExecutor writeExecutor;
+
+    protected FileStorageLog storageLog;
 
     protected volatile File[] storageRoots;
 
     @PostConstruct
     public void init() {
-        this.isImmutableFileStorage = configuration.getConfig(ServerConfig.class).getImmutableFileStorage();
+        ServerConfig serverConfig = configuration.getConfig(ServerConfig.class);
+        this.isImmutableFileStorage = serverConfig.getImmutableFileStorage();
+        this.replicationAttempts = Math.max(serverConfig.getFileStorageReplicationAttempts(), 1);
+
+        int nThreads = Math.max(serverConfig.getFileStorageReplicationThreads(), 1);
+        writeExecutor = new ThreadPoolExecutor(nThreads, nThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(serverConfig.getFileStorageReplicationQueueCapacity(), 1)),
+                new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build(),
+                this::rejectedReplication);
+
+        storageLog = new FileStorageLog(serverConfig.getFileStorageLogQueueCapacity(),
+                serverConfig.getFileStorageLogFlushInterval(),
+                serverConfig.getFileStorageLogMaxSize() * 1024L * 1024L);
+        storageLog.start();
+    }
+
+    /**
+     * When the queue is full, the saving thread copies the file itself, which slows down producers.
+     * After the storage is stopped, replication tasks are rejected.
+     */
+    protected void rejectedReplication(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("File storage is stopped");
+        }
+        task.run();
     }
 
     /**
@@ -116,20 +156,14 @@ public class FileStorage implements FileStorageAPI {
         final File file = new File(dir, getFileName(fileDescr));
         checkFileExists(file);
 
-        long size = 0;
-        OutputStream os = null;
+        long size;
         try {
-            os = FileUtils.openOutputStream(file);
-            size = IOUtils.copyLarge(inputStream, os);
-            os.flush();
+            size = writeFile(inputStream, file);
             writeLog(file, false);
         } catch (IOException e) {
-            IOUtils.closeQuietly(os);
             FileUtils.deleteQuietly(file);
 
             throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, file.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(os);
         }
 
         // Copy file to secondary storages asynchronously
@@ -144,23 +178,88 @@ public class FileStorage implements FileStorageAPI {
             File copyDir = getStorageDir(roots[i], fileDescr);
             final File fileCopy = new File(copyDir, getFileName(fileDescr));
 
-            writeExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        AppContext.setSecurityContext(securityContext);
-                        FileUtils.copyFile(file, fileCopy, true);
-                        writeLog(fileCopy, false);
-                    } catch (Exception e) {
+            try {
+                writeExecutor.execute(() -> replicateFile(fileDescr, file, fileCopy, securityContext));
+            } catch (RejectedExecutionException e) {
+                log.error("Error saving {} into {} : file storage is stopped", fileDescr, fileCopy.getAbsolutePath());
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Writes the stream into the file through a {@link FileChannel}. Contents of a {@link FileInputStream} are
+     * transferred directly between the channels.
+     */
+    protected long writeFile(InputStream inputStream, File file) throws IOException {
+        try (FileChannel outChannel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = 0;
+            if (inputStream instanceof FileInputStream) {
+                FileChannel inChannel = ((FileInputStream) inputStream).getChannel();
+                long count = inChannel.size() - inChannel.position();
+                while (size < count) {
+                    size += inChannel.transferTo(inChannel.position() + size, count - size, outChannel);
+                }
+                inChannel.position(inChannel.position() + size);
+            } else {
+                ReadableByteChannel inChannel = Channels.newChannel(inputStream);
+                long transferred;
+                while ((transferred = outChannel.transferFrom(inChannel, size, TRANSFER_CHUNK_SIZE)) > 0) {
+                    size += transferred;
+                }
+            }
+            return size;
+        }
+    }
+
+    protected void replicateFile(FileDescriptor fileDescr, File file, File fileCopy, SecurityContext securityContext) {
+        // the task can be executed by the saving thread if the queue is full
+        SecurityContext previousSecurityContext = AppContext.getSecurityContext();
+        AppContext.setSecurityContext(securityContext);
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    copyFile(file, fileCopy);
+                    writeLog(fileCopy, false);
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= replicationAttempts) {
                         log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
-                    } finally {
-                        AppContext.setSecurityContext(null);
+                        return;
+                    }
+                    log.debug("Error saving {} into {}, attempt {} of {}: {}", fileDescr, fileCopy.getAbsolutePath(),
+                            attempt, replicationAttempts, e.getMessage());
+                    try {
+                        Thread.sleep(REPLICATION_RETRY_DELAY_MS * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        log.error("Error saving {} into {} : interrupted", fileDescr, fileCopy.getAbsolutePath());
+                        return;
                     }
                 }
-            });
+            }
+        } finally {
+            AppContext.setSecurityContext(previousSecurityContext);
         }
+    }
 
-        return size;
+    protected void copyFile(File srcFile, File destFile) throws IOException {
+        File destDir = destFile.getParentFile();
+        if (destDir != null && !destDir.mkdirs() && !destDir.isDirectory()) {
+            throw new IOException("Unable to create directory " + destDir);
+        }
+        try (FileChannel inChannel = FileChannel.open(srcFile.toPath(), StandardOpenOption.READ);
+             FileChannel outChannel = FileChannel.open(destFile.toPath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long count = inChannel.size();
+            long position = 0;
+            while (position < count) {
+                position += inChannel.transferTo(position, count - position, outChannel);
+            }
+        }
+        destFile.setLastModified(srcFile.lastModified());
     }
 
     protected void checkFileExists(File file) throws FileStorageException {
@@ -193,7 +292,7 @@ public class FileStorage implements FileStorageAPI {
         saveStream(fileDescr, new ByteArrayInputStream(data));
     }
 
-    protected synchronized void writeLog(File file, boolean remove) {
+    protected void writeLog(File file, boolean remove) {
         File rootDir;
         try {
             rootDir = file.getParentFile().getParentFile().getParentFile().getParentFile();
@@ -202,27 +301,27 @@ public class FileStorage implements FileStorageAPI {
             return;
         }
 
-        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-
         UserSession userSession = userSessionSource.getUserSession();
         String userLogin = userSession.getUser().getLogin();
         String userId = userSession.getUser().getId().toString();
 
         StringBuilder sb = new StringBuilder();
-        sb.append(df.format(timeSource.currentTimestamp())).append(" ");
+        sb.append(LOG_DATE_FORMAT.format(timeSource.currentTimestamp())).append(" ");
 
         sb.append("[").append(userLogin).append("--").append(userId).append("] ");
         sb.append(remove ? "REMOVE" : "CREATE").append(" ");
         sb.append("\"").append(file.getAbsolutePath()).append("\"\n");
 
-        File logFile = new File(rootDir, "storage.log");
-        try {
-            try (FileOutputStream fos = new FileOutputStream(logFile, true)) {
-                IOUtils.write(sb.toString(), fos, StandardCharsets.UTF_8);
-            }
-        } catch (IOException e) {
-            log.error("Unable to write log", e);
-        }
+        storageLog.append(rootDir, sb.toString());
+    }
+
+    /**
+     * INTERNAL. Don't use in application code.
+     *
+     * @return number of storage.log records waiting to be written
+     */
+    public int getStorageLogQueueSize() {
+        return storageLog.getQueueSize();
     }
 
     @Override
@@ -256,6 +355,47 @@ public class FileStorage implements FileStorageAPI {
 
     @Override
     public InputStream openStream(FileDescriptor fileDescr) throws FileStorageException {
+        return readFile(fileDescr, file -> Files.newInputStream(file.toPath()));
+    }
+
+    @Override
+    public InputStream openStream(FileDescriptor fileDescr, long position, long length) throws FileStorageException {
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("Position and length must not be negative");
+        }
+
+        return readFile(fileDescr, file -> {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                channel.position(position);
+                return new BoundedInputStream(Channels.newInputStream(channel), length);
+            } catch (IOException e) {
+                IOUtils.closeQuietly(channel);
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public long getFileSize(FileDescriptor fileDescr) throws FileStorageException {
+        return readFile(fileDescr, File::length);
+    }
+
+    @Override
+    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
+        return readFile(fileDescr, file -> Files.readAllBytes(file.toPath()));
+    }
+
+    protected interface StorageFileReader<T> {
+        T read(File file) throws IOException;
+    }
+
+    /**
+     * Applies the reader to the file in the first storage directory containing it. If the file can not be read,
+     * tries the next storage directory. Fails with {@link FileStorageException.Type#IO_EXCEPTION} if the file
+     * exists but can not be read from any directory.
+     */
+    protected <T> T readFile(FileDescriptor fileDescr, StorageFileReader<T> reader) throws FileStorageException {
         checkFileDescriptor(fileDescr);
 
         File[] roots = getStorageRoots();
@@ -264,7 +404,8 @@ public class FileStorage implements FileStorageAPI {
             throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
         }
 
-        InputStream inputStream = null;
+        File failedFile = null;
+        IOException failure = null;
         for (File root : roots) {
             File dir = getStorageDir(root, fileDescr);
 
@@ -275,28 +416,17 @@ public class FileStorage implements FileStorageAPI {
             }
 
             try {
-                inputStream = FileUtils.openInputStream(file);
-                break;
+                return reader.read(file);
             } catch (IOException e) {
                 log.error("Error opening input stream for " + file, e);
+                failedFile = file;
+                failure = e;
             }
         }
-        if (inputStream != null)
-            return inputStream;
-        else
-            throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
-    }
-
-    @Override
-    public byte[] loadFile(FileDescriptor fileDescr) throws FileStorageException {
-        InputStream inputStream = openStream(fileDescr);
-        try {
-            return IOUtils.toByteArray(inputStream);
-        } catch (IOException e) {
-            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fileDescr.getId().toString(), e);
-        } finally {
-            IOUtils.closeQuietly(inputStream);
+        if (failure != null) {
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, failedFile.getAbsolutePath(), failure);
         }
+        throw new FileStorageException(FileStorageException.Type.FILE_NOT_FOUND, fileDescr.getId().toString());
     }
 
     @Override
@@ -336,8 +466,22 @@ public class FileStorage implements FileStorageAPI {
         return fileDescriptor.getId().toString() + "." + fileDescriptor.getExtension();
     }
 
+    /**
+     * Waits for all queued replication tasks, since they write to the storage log, and stops the log after them.
+     */
     @PreDestroy
     protected void stopWriteExecutor() {
         writeExecutor.shutdown();
+        try {
+            while (!writeExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.info("Waiting for {} file replication tasks to complete",
+                        writeExecutor.getQueue().size() + writeExecutor.getActiveCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for file replication tasks, records of the remaining tasks " +
+                    "are not written to the storage log");
+        }
+        storageLog.stop();
     }
 }
\ No newline at end of file
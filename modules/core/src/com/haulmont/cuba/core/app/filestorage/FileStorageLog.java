@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.filestorage;
+
+import org.apache.commons.lang3.time.FastDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends records to {@code storage.log} files located in the file storage roots.
+ * <p>
+ * Threads working with files only put records into a bounded queue, blocking if it is full. Records are written
+ * by a single background thread which keeps the log files open, buffers the output and forces it to disk
+ * periodically. If the maximum size is set, a log file exceeding it is renamed with a timestamp suffix and a new
+ * file is started. If renaming fails, the file keeps growing and the rotation is retried after a minute.
+ */
+public class FileStorageLog {
+
+    private static final Logger log = LoggerFactory.getLogger(FileStorageLog.class);
+
+    public static final String LOG_FILE_NAME = "storage.log";
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    protected static final FastDateFormat ROTATION_SUFFIX_FORMAT = FastDateFormat.getInstance("yyyyMMdd-HHmmss-SSS");
+
+    protected static final long ROTATION_RETRY_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    protected final BlockingQueue<Record> queue;
+    protected final long flushIntervalMs;
+    protected final long maxFileSize;
+
+    // accessed only by the writer thread
+    protected final Map<File, LogFile> logFiles = new HashMap<>();
+
+    protected Thread writerThread;
+    protected volatile boolean stopped;
+
+    /**
+     * @param queueCapacity   maximum number of records waiting to be written
+     * @param flushIntervalMs interval of forcing written records to disk
+     * @param maxFileSize     size of a log file in bytes after which it is rotated, 0 to disable rotation
+     */
+    public FileStorageLog(int queueCapacity, long flushIntervalMs, long maxFileSize) {
+        this.queue = new LinkedBlockingQueue<>(Math.max(queueCapacity, 1));
+        this.flushIntervalMs = Math.max(flushIntervalMs, 1);
+        this.maxFileSize = maxFileSize;
+    }
+
+    public void start() {
+        writerThread = new Thread(this::writeRecords, "FileStorageLogWriter");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Stops the writer thread after writing all queued records.
+     */
+    public void stop() {
+        stopped = true;
+        if (writerThread != null) {
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Adds a line to the log located in the given storage root.
+     */
+    public void append(File rootDir, String line) {
+        if (stopped) {
+            log.warn("File storage log is stopped, record is not written: {}", line);
+            return;
+        }
+        try {
+            queue.put(new Record(rootDir, line));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while writing file storage log, record is not written: {}", line);
+        }
+    }
+
+    /**
+     * @return number of records waiting to be written
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    protected void writeRecords() {
+        List<Record> records = new ArrayList<>();
+        long lastForceTime = System.currentTimeMillis();
+        while (true) {
+            try {
+                Record record = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (record != null) {
+                    records.add(record);
+                    queue.drainTo(records);
+                    try {
+                        for (Record r : records) {
+                            write(r);
+                        }
+                    } finally {
+                        records.clear();
+                    }
+                    flushBuffers();
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastForceTime >= flushIntervalMs) {
+                    forceAll();
+                    lastForceTime = now;
+                }
+
+                if (stopped && queue.isEmpty()) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                if (stopped) {
+                    break;
+                }
+            } catch (Throwable e) {
+                log.error("Error writing file storage log", e);
+            }
+        }
+        closeAll();
+    }
+
+    protected void write(Record record) {
+        LogFile logFile = logFiles.get(record.rootDir);
+        try {
+            if (logFile == null) {
+                logFile = new LogFile(new File(record.rootDir, LOG_FILE_NAME));
+                logFiles.put(record.rootDir, logFile);
+            }
+            byte[] bytes = record.line.getBytes(StandardCharsets.UTF_8);
+            if (maxFileSize > 0 && logFile.size() + bytes.length > maxFileSize && logFile.size() > 0
+                    && logFile.isRotationAllowed()) {
+                logFile.rotate();
+            }
+            logFile.write(bytes);
+        } catch (IOException e) {
+            log.error("Unable to write log", e);
+            if (logFile != null) {
+                logFile.closeQuietly();
+                logFiles.remove(record.rootDir);
+            }
+        }
+    }
+
+    protected void flushBuffers() {
+        for (Iterator<LogFile> it = logFiles.values().iterator(); it.hasNext(); ) {
+            LogFile logFile = it.next();
+            try {
+                logFile.flush();
+            } catch (IOException e) {
+                log.error("Unable to write log", e);
+                logFile.closeQuietly();
+                it.remove();
+            }
+        }
+    }
+
+    protected void forceAll() {
+        for (LogFile logFile : logFiles.values()) {
+            try {
+                logFile.force();
+            } catch (IOException e) {
+                log.warn("Unable to force file storage log to disk: {}", e.toString());
+            }
+        }
+    }
+
+    protected void closeAll() {
+        flushBuffers();
+        forceAll();
+        for (LogFile logFile : logFiles.values()) {
+            logFile.closeQuietly();
+        }
+        logFiles.clear();
+    }
+
+    protected static class Record {
+        protected final File rootDir;
+        protected final String line;
+
+        protected Record(File rootDir, String line) {
+            this.rootDir = rootDir;
+            this.line = line;
+        }
+    }
+
+    protected static class LogFile {
+        protected final File file;
+        protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        protected FileChannel channel;
+        protected long channelSize;
+        protected boolean dirty;
+        // after a failed rotation the file grows over the maximum size until the next attempt
+        protected boolean rotationFailed;
+        protected long nextRotationTime;
+
+        protected LogFile(File file) throws IOException {
+            this.file = file;
+            open();
+        }
+
+        protected void open() throws IOException {
+            channel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channelSize = channel.size();
+        }
+
+        protected long size() {
+            return channelSize + buffer.position();
+        }
+
+        protected void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            if (bytes.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes));
+            } else {
+                buffer.put(bytes);
+            }
+        }
+
+        protected void flush() throws IOException {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                writeFully(buffer);
+                buffer.clear();
+            }
+        }
+
+        protected void writeFully(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                channelSize += channel.write(src);
+            }
+            dirty = true;
+        }
+
+        protected void force() throws IOException {
+            if (dirty) {
+                channel.force(false);
+                dirty = false;
+            }
+        }
+
+        protected void rotate() throws IOException {
+            flush();
+            force();
+            channel.close();
+
+            String rotatedName = file.getName() + "." + ROTATION_SUFFIX_FORMAT.format(new Date());
+            File rotated = new File(file.getParentFile(), rotatedName);
+            for (int i = 1; rotated.exists(); i++) {
+                rotated = new File(file.getParentFile(), rotatedName + "-" + i);
+            }
+            if (file.renameTo(rotated)) {
+                if (rotationFailed) {
+                    log.info("File storage log {} is rotated", file);
+                    rotationFailed = false;
+                }
+            } else {
+                if (!rotationFailed) {
+                    log.warn("Unable to rotate file storage log {}, retrying every {} sec", file,
+                            TimeUnit.MILLISECONDS.toSeconds(ROTATION_RETRY_INTERVAL_MS));
+                    rotationFailed = true;
+                }
+                nextRotationTime = System.currentTimeMillis() + ROTATION_RETRY_INTERVAL_MS;
+            }
+            open();
+        }
+
+        protected boolean isRotationAllowed() {
+            return System.currentTimeMillis() >= nextRotationTime;
+        }
+
+        protected void closeQuietly() {
+            try {
+                flush();
+            } catch (IOException e) {
+                log.warn("Unable to write file storage log: {}", e.toString());
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close file storage log: {}", e.toString());
+            }
+        }
+    }
+}
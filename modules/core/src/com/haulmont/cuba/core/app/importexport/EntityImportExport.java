@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.app.importexport;
 
+import com.google.common.collect.Lists;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.Range;
@@ -38,6 +39,8 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
@@ -46,17 +49,30 @@ import javax.validation.groups.Default;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.CRC32;
 
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 import static java.lang.String.format;
 
 @Component(EntityImportExportAPI.NAME)
 public class EntityImportExport implements EntityImportExportAPI {
 
+    private static final Logger log = LoggerFactory.getLogger(EntityImportExport.class);
+
+    /**
+     * Max number of ids passed to one query when existing entities are loaded.
+     */
+    protected static final int LOAD_BY_IDS_BATCH_SIZE = 500;
+
     @Inject
     protected EntitySerializationAPI entitySerialization;
 
@@ -163,15 +179,16 @@ public class EntityImportExport implements EntityImportExportAPI {
     @Override
     public Collection<Entity> importEntitiesFromZIP(byte[] zipBytes, EntityImportView view) {
         Collection<Entity> result = new ArrayList<>();
-        Collection<? extends Entity> entities;
         ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(zipBytes);
         ZipArchiveInputStream archiveReader = new ZipArchiveInputStream(byteArrayInputStream);
         try {
             try {
                 while (archiveReader.getNextZipEntry() != null) {
-                    String json = new String(readBytesFromEntry(archiveReader), StandardCharsets.UTF_8);
-                    entities = entitySerialization.entitiesCollectionFromJson(json,
+                    List<Entity> entities = new ArrayList<>();
+                    entitySerialization.entitiesCollectionFromJson(createEntryReader(archiveReader),
                             null,
+                            Integer.MAX_VALUE,
+                            entities::addAll,
                             EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
                     result.addAll(importEntities(entities, view));
                 }
@@ -184,8 +201,56 @@ public class EntityImportExport implements EntityImportExportAPI {
         return result;
     }
 
-    protected byte[] readBytesFromEntry(ZipArchiveInputStream archiveReader) throws IOException {
-        return IOUtils.toByteArray(archiveReader);
+    @Override
+    public int importEntitiesFromJson(Reader reader, EntityImportView view, int chunkSize,
+                                      @Nullable IntConsumer progressListener) {
+        checkNotNullArgument(reader, "reader is null");
+        checkNotNullArgument(view, "view is null");
+
+        AtomicInteger importedCount = new AtomicInteger();
+        entitySerialization.entitiesCollectionFromJson(reader,
+                null,
+                chunkSize,
+                (List<Entity> chunk) -> {
+                    importEntities(chunk, view, false, false, true);
+
+                    int count = importedCount.addAndGet(chunk.size());
+                    log.debug("Imported {} entities of {}", count, view.getEntityClass().getSimpleName());
+                    if (progressListener != null) {
+                        progressListener.accept(count);
+                    }
+                },
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+        return importedCount.get();
+    }
+
+    @Override
+    public int importEntitiesFromZIP(InputStream zipStream, EntityImportView view, int chunkSize,
+                                     @Nullable IntConsumer progressListener) {
+        checkNotNullArgument(zipStream, "zipStream is null");
+
+        //the archive stream is not closed to leave the passed stream open
+        ZipArchiveInputStream archiveReader = new ZipArchiveInputStream(zipStream);
+        int importedCount = 0;
+        try {
+            while (archiveReader.getNextZipEntry() != null) {
+                int previousCount = importedCount;
+                IntConsumer entryProgressListener = progressListener == null ? null
+                        : count -> progressListener.accept(previousCount + count);
+                importedCount += importEntitiesFromJson(createEntryReader(archiveReader), view, chunkSize,
+                        entryProgressListener);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception occurred while importing entities", e);
+        }
+        return importedCount;
+    }
+
+    /**
+     * Creates a reader of the current archive entry. The reader must not be closed, as it would close the archive.
+     */
+    protected Reader createEntryReader(ZipArchiveInputStream archiveReader) {
+        return new InputStreamReader(archiveReader, StandardCharsets.UTF_8);
     }
 
     @Override
@@ -200,34 +265,66 @@ public class EntityImportExport implements EntityImportExportAPI {
 
     @Override
     public Collection<Entity> importEntities(Collection<? extends Entity> entities, EntityImportView importView, boolean validate, boolean optimisticLocking) {
+        return importEntities(entities, importView, validate, optimisticLocking, false);
+    }
+
+    /**
+     * Imports the entities in one transaction.
+     *
+     * @param discardCommitted whether committed entities should not be returned, see {@link CommitContext#setDiscardCommitted(boolean)}
+     * @return committed entities, or an empty collection if {@code discardCommitted} is true
+     */
+    protected Collection<Entity> importEntities(Collection<? extends Entity> entities, EntityImportView importView,
+                                                boolean validate, boolean optimisticLocking, boolean discardCommitted) {
         List<ReferenceInfo> referenceInfoList = new ArrayList<>();
         CommitContext commitContext = new CommitContext();
         commitContext.setSoftDeletion(false);
+        commitContext.setDiscardCommitted(discardCommitted);
 
         //import is performed in two steps. We have to do so, because imported entity may have a reference to
         //the reference that is imported in the same batch.
         //
         //1. entities that should be persisted are processed first, fields that should be references to existing entities
         //are stored in the referenceInfoList variable
+        View regularView = buildViewFromImportView(importView);
+
+        //set softDeletion to false because we can import deleted entity, so we'll restore it and update
+        Map<Entity, Entity> existingEntities = new HashMap<>();
+        loadEntitiesByIds(entities, existingEntities, metaClass -> new LoadContext<>(metaClass)
+                .setSoftDeletion(false)
+                .setView(regularView)
+                .setLoadDynamicAttributes(true)
+                .setAuthorizationRequired(true));
+
         for (Entity srcEntity : entities) {
-            View regularView = buildViewFromImportView(importView);
-            //set softDeletion to false because we can import deleted entity, so we'll restore it and update
-            LoadContext<? extends Entity> ctx = LoadContext.create(srcEntity.getClass())
-                    .setSoftDeletion(false)
-                    .setView(regularView)
-                    .setLoadDynamicAttributes(true)
-                    .setId(srcEntity.getId())
-                    .setAuthorizationRequired(true);
-            Entity dstEntity = dataManager.load(ctx);
+            Entity dstEntity;
+            if (existingEntities.containsKey(srcEntity)) {
+                dstEntity = existingEntities.get(srcEntity);
+            } else {
+                LoadContext<? extends Entity> ctx = LoadContext.create(srcEntity.getClass())
+                        .setSoftDeletion(false)
+                        .setView(regularView)
+                        .setLoadDynamicAttributes(true)
+                        .setId(srcEntity.getId())
+                        .setAuthorizationRequired(true);
+                dstEntity = dataManager.load(ctx);
+            }
 
             importEntity(srcEntity, dstEntity, importView, regularView, commitContext, referenceInfoList, optimisticLocking);
         }
 
         //2. references to existing entities are processed
 
-        //store a list of loaded entities in the collection to prevent unnecessary database requests for searching the
-        //same instance
-        Set<Entity> loadedEntities = new HashSet<>();
+        //store loaded entities in the map to prevent unnecessary database requests for searching the
+        //same instance; entities being committed are found there as well
+        Map<Entity, Entity> loadedEntities = new HashMap<>();
+        for (Entity commitInstance : commitContext.getCommitInstances()) {
+            loadedEntities.put(commitInstance, commitInstance);
+        }
+        loadEntitiesByIds(getReferencedEntities(referenceInfoList), loadedEntities, metaClass -> new LoadContext<>(metaClass)
+                .setSoftDeletion(false)
+                .setView(new View(metaClass.getJavaClass(), false)));
+
         for (ReferenceInfo referenceInfo : referenceInfoList) {
             processReferenceInfo(referenceInfo, commitContext, loadedEntities);
         }
@@ -553,7 +650,7 @@ public class EntityImportExport implements EntityImportExportAPI {
      * Method finds and set a reference value to the entity or throws EntityImportException if ERROR_ON_MISSING policy
      * is violated
      */
-    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext, Set<Entity> loadedEntities) {
+    protected void processReferenceInfo(ReferenceInfo referenceInfo, CommitContext commitContext, Map<Entity, Entity> loadedEntities) {
         Entity entity = referenceInfo.getEntity();
         EntityImportViewProperty viewProperty = referenceInfo.getViewProperty();
         MetaProperty metaProperty = entity.getMetaClass().getPropertyNN(viewProperty.getName());
@@ -689,29 +786,97 @@ public class EntityImportExport implements EntityImportExportAPI {
         return globalConfig.getRestRequiresSecurityToken();
     }
 
+    /**
+     * Method finds the referenced entity among the loaded ones or loads it.
+     *
+     * @param loadedEntities entities that are committed or already loaded, mapped to themselves; an entity that
+     *                       is known to be missing is mapped to null
+     */
     protected Entity findReferenceEntity(Entity entity, EntityImportViewProperty viewProperty, CommitContext commitContext,
-                                         Set<Entity> loadedEntities) {
-        Entity result = Stream.concat(loadedEntities.stream(), commitContext.getCommitInstances().stream())
-                .filter(item -> item.equals(entity))
-                .findFirst().orElse(null);
-        if (result == null) {
+                                         Map<Entity, Entity> loadedEntities) {
+        Entity result;
+        if (loadedEntities.containsKey(entity)) {
+            result = loadedEntities.get(entity);
+        } else {
             LoadContext<? extends Entity> ctx = LoadContext.create(entity.getClass())
                     .setSoftDeletion(false)
                     .setView(new View(entity.getMetaClass().getJavaClass(), false))
                     .setId(entity.getId());
             result = dataManager.load(ctx);
-            if (result == null) {
-                if (viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
-                    throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
-                            viewProperty.getName(), entity.getId()));
+            loadedEntities.put(entity, result);
+        }
+        if (result == null && viewProperty.getReferenceImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
+            throw new EntityImportException(String.format("Referenced entity for property '%s' with id = %s is missing",
+                    viewProperty.getName(), entity.getId()));
+        }
+        return result;
+    }
+
+    /**
+     * Loads the given entities by {@code in} queries, at most {@link #LOAD_BY_IDS_BATCH_SIZE} instances per query,
+     * and puts them to the {@code loadedEntities} map. Each source entity is mapped to the loaded instance or to null
+     * if it doesn't exist. Entities that are already in the map, have no id or have a composite key are skipped.
+     *
+     * @param loadContextFactory creates a load context for entities of the given meta-class
+     */
+    protected void loadEntitiesByIds(Collection<? extends Entity> entities, Map<Entity, Entity> loadedEntities,
+                                     Function<MetaClass, LoadContext<Entity>> loadContextFactory) {
+        Map<MetaClass, List<Entity>> entitiesByMetaClass = entities.stream()
+                .filter(entity -> getIdValue(entity) != null && !loadedEntities.containsKey(entity))
+                .distinct()
+                .collect(Collectors.groupingBy(Entity::getMetaClass, LinkedHashMap::new, Collectors.toList()));
+
+        for (Map.Entry<MetaClass, List<Entity>> entry : entitiesByMetaClass.entrySet()) {
+            MetaClass metaClass = entry.getKey();
+            MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+            if (primaryKey == null || !primaryKey.getRange().isDatatype()) {
+                continue;
+            }
+
+            for (List<Entity> batch : Lists.partition(entry.getValue(), LOAD_BY_IDS_BATCH_SIZE)) {
+                Map<Object, Entity> batchByIds = new HashMap<>();
+                for (Entity entity : batch) {
+                    batchByIds.put(getIdValue(entity), entity);
+                    loadedEntities.put(entity, null);
+                }
+
+                LoadContext<Entity> ctx = loadContextFactory.apply(metaClass);
+                ctx.setQuery(LoadContext.createQuery(
+                        format("select e from %s e where e.%s in :ids", metaClass.getName(), primaryKey.getName()))
+                        .setParameter("ids", new ArrayList<>(batchByIds.keySet())));
+                for (Entity loaded : dataManager.loadList(ctx)) {
+                    Entity entity = batchByIds.get(getIdValue(loaded));
+                    if (entity != null) {
+                        loadedEntities.put(entity, loaded);
+                    }
+                }
+            }
+        }
+    }
+
+    protected Collection<Entity> getReferencedEntities(Collection<ReferenceInfo> referenceInfoList) {
+        List<Entity> result = new ArrayList<>();
+        for (ReferenceInfo referenceInfo : referenceInfoList) {
+            Object propertyValue = referenceInfo.getPropertyValue();
+            if (propertyValue instanceof Entity) {
+                result.add((Entity) propertyValue);
+            } else if (propertyValue instanceof Collection) {
+                for (Object item : (Collection) propertyValue) {
+                    if (item instanceof Entity) {
+                        result.add((Entity) item);
+                    }
                 }
-            } else {
-                loadedEntities.add(result);
             }
         }
         return result;
     }
 
+    @Nullable
+    protected Object getIdValue(Entity entity) {
+        Object id = entity.getId();
+        return id instanceof IdProxy ? ((IdProxy) id).get() : id;
+    }
+
     protected static class ReferenceInfo {
         protected Entity entity;
         protected SecurityState prevSecurityState;
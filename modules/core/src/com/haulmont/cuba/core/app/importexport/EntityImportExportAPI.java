@@ -19,8 +19,14 @@ package com.haulmont.cuba.core.app.importexport;
 
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
+import org.apache.commons.io.IOUtils;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.Collection;
+import java.util.function.IntConsumer;
 
 /**
  * Class that is used for exporting a collection of entities and importing them. See full java docs in the {@link
@@ -60,6 +66,67 @@ public interface EntityImportExportAPI {
      */
     Collection<Entity> importEntitiesFromZIP(byte[] zipBytes, EntityImportView entityImportView);
 
+    /**
+     * Imports entities from a JSON array read from the {@code reader}. Unlike
+     * {@link #importEntitiesFromJson(String, EntityImportView)}, the JSON is not loaded into memory as a whole:
+     * entities are deserialized and imported by chunks of {@code chunkSize} instances, each chunk is committed
+     * in a separate transaction. A reference to an entity from a subsequent chunk can not be resolved, so
+     * referenced entities should precede the referencing ones.
+     * <p>
+     * The JSON is read as exported with {@link com.haulmont.cuba.core.app.serialization.EntitySerializationOption#COMPACT_REPEATED_ENTITIES},
+     * where a repeated entity may refer to any preceding one. Therefore the deserialized source instances are kept
+     * until the end of the array, and only the committed instances are released after each chunk.
+     * <p>
+     * The default implementation reads the whole JSON into memory and imports it in one transaction.
+     *
+     * @param reader           a reader providing a JSON array of entities
+     * @param view             import view
+     * @param chunkSize        max number of entities committed in one transaction
+     * @param progressListener receives the total number of imported entities after each chunk is committed, may be null
+     * @return number of imported entities
+     */
+    default int importEntitiesFromJson(Reader reader, EntityImportView view, int chunkSize,
+                                       @Nullable IntConsumer progressListener) {
+        String json;
+        try {
+            json = IOUtils.toString(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read entities JSON", e);
+        }
+        int importedCount = importEntitiesFromJson(json, view).size();
+        if (progressListener != null) {
+            progressListener.accept(importedCount);
+        }
+        return importedCount;
+    }
+
+    /**
+     * Imports entities from JSON files of a ZIP archive read from the {@code zipStream}. Works like
+     * {@link #importEntitiesFromJson(Reader, EntityImportView, int, IntConsumer)} for each file of the archive.
+     * <p>
+     * The default implementation reads the whole archive into memory.
+     *
+     * @param zipStream        a stream providing a ZIP archive, it is not closed by this method
+     * @param view             import view
+     * @param chunkSize        max number of entities committed in one transaction
+     * @param progressListener receives the total number of imported entities after each chunk is committed, may be null
+     * @return number of imported entities
+     */
+    default int importEntitiesFromZIP(InputStream zipStream, EntityImportView view, int chunkSize,
+                                      @Nullable IntConsumer progressListener) {
+        byte[] zipBytes;
+        try {
+            zipBytes = IOUtils.toByteArray(zipStream);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read ZIP archive", e);
+        }
+        int importedCount = importEntitiesFromZIP(zipBytes, view).size();
+        if (progressListener != null) {
+            progressListener.accept(importedCount);
+        }
+        return importedCount;
+    }
+
     /**
      * See documentation for {@link EntityImportExportService#importEntities(Collection, EntityImportView)}
      */
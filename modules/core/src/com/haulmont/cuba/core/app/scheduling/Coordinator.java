@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.app.scheduling;
 
 import com.haulmont.cuba.core.entity.ScheduledTask;
 
+import javax.annotation.Nullable;
 import java.util.Date;
 import java.util.List;
 
@@ -40,6 +41,23 @@ public interface Coordinator {
 
     void end(Context context);
 
+    /**
+     * Locks the singleton task before it is processed by this server.
+     * Changes made to the returned instance are saved by {@link #unlockTask(Context, ScheduledTask)}.
+     *
+     * @return instance to process or null if the task is locked by another server or is not active anymore
+     */
+    @Nullable
+    default ScheduledTask lockTask(Context context, ScheduledTask task) {
+        return task;
+    }
+
+    /**
+     * Saves the changes of the task locked by {@link #lockTask(Context, ScheduledTask)} and releases the lock.
+     */
+    default void unlockTask(Context context, ScheduledTask task) {
+    }
+
     boolean isLastExecutionFinished(ScheduledTask task, long now);
 
     long getLastFinished(ScheduledTask task);
@@ -21,16 +21,20 @@ import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.ScheduledTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.persistence.LockModeType;
 import javax.persistence.PessimisticLockException;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link Coordinator} interface, performing synchronization of singleton schedulers on the main
@@ -46,6 +50,7 @@ public class DbBasedCoordinator implements Coordinator {
 
         protected List<ScheduledTask> tasks;
         protected Transaction transaction;
+        protected Map<ScheduledTask, Transaction> taskTransactions = new HashMap<>();
 
         protected ContextImpl(List<ScheduledTask> tasks, Transaction transaction) {
             this.tasks = tasks;
@@ -65,8 +70,22 @@ public class DbBasedCoordinator implements Coordinator {
     @Inject
     protected Persistence persistence;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public Context begin() {
+        if (serverConfig.getSchedulingLockPerTask()) {
+            try (Transaction tx = persistence.createTransaction()) {
+                log.trace("Read all active tasks from DB");
+                List<ScheduledTask> tasks = persistence.getEntityManager()
+                        .createQuery("select t from sys$ScheduledTask t where t.active = true", ScheduledTask.class)
+                        .getResultList();
+                tx.commit();
+                return new ContextImpl(tasks, null);
+            }
+        }
+
         Transaction tx = persistence.createTransaction();
         try {
             List<ScheduledTask> tasks = getTasks();
@@ -84,9 +103,56 @@ public class DbBasedCoordinator implements Coordinator {
 
     @Override
     public void end(Context context) {
-        log.trace("Commit transaction thereby unlock active tasks");
-        ((ContextImpl) context).transaction.commit();
-        ((ContextImpl) context).transaction.end();
+        Transaction transaction = ((ContextImpl) context).transaction;
+        if (transaction != null) {
+            log.trace("Commit transaction thereby unlock active tasks");
+            transaction.commit();
+            transaction.end();
+        }
+    }
+
+    @Nullable
+    @Override
+    public ScheduledTask lockTask(Context context, ScheduledTask task) {
+        ContextImpl contextImpl = (ContextImpl) context;
+        if (contextImpl.transaction != null) {
+            // all active tasks are locked in begin()
+            return task;
+        }
+
+        Transaction tx = persistence.createTransaction();
+        try {
+            ScheduledTask lockedTask = persistence.getEntityManager()
+                    .createQuery("select t from sys$ScheduledTask t where t.id = :id and t.active = true", ScheduledTask.class)
+                    .setParameter("id", task.getId())
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getFirstResult();
+            if (lockedTask == null) {
+                tx.end();
+                return null;
+            }
+            contextImpl.taskTransactions.put(lockedTask, tx);
+            return lockedTask;
+        } catch (PessimisticLockException e) {
+            log.debug("Unable to acquire lock on {}", task);
+            tx.end();
+            return null;
+        } catch (RuntimeException e) {
+            tx.end();
+            throw e;
+        }
+    }
+
+    @Override
+    public void unlockTask(Context context, ScheduledTask task) {
+        Transaction tx = ((ContextImpl) context).taskTransactions.remove(task);
+        if (tx != null) {
+            try {
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+        }
     }
 
     @Override
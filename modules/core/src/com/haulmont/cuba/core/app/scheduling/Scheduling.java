@@ -87,6 +87,10 @@ public class Scheduling implements SchedulingAPI {
 
     protected Map<ScheduledTask, Long> lastFinishCache = new ConcurrentHashMap<>();
 
+    protected Map<ScheduledTask, CronStart> nextCronStartCache = new ConcurrentHashMap<>();
+
+    protected Map<String, CronSequenceGenerator> cronGenerators = new ConcurrentHashMap<>();
+
     protected volatile long schedulingStartTime;
 
     @Override
@@ -115,8 +119,27 @@ public class Scheduling implements SchedulingAPI {
                 return;
             }
             try {
+                // forget next starts of deleted and deactivated tasks
+                nextCronStartCache.keySet().retainAll(new HashSet<>(context.getTasks()));
+
                 for (ScheduledTask task : context.getTasks()) {
-                    processTask(task);
+                    if (isCronStartInFuture(task)) {
+                        continue;
+                    }
+                    if (BooleanUtils.isTrue(task.getSingleton())) {
+                        ScheduledTask lockedTask = coordinator.lockTask(context, task);
+                        if (lockedTask == null) {
+                            log.trace("{} is locked by another server", task);
+                            continue;
+                        }
+                        try {
+                            processTask(lockedTask);
+                        } finally {
+                            coordinator.unlockTask(context, lockedTask);
+                        }
+                    } else {
+                        processTask(task);
+                    }
                 }
             } finally {
                 coordinator.end(context);
@@ -293,8 +316,30 @@ public class Scheduling implements SchedulingAPI {
         return currentStart <= now && now < currentStart + frame && lastStart < currentStart;
     }
 
+    /**
+     * Whether the next start of the cron task calculated on one of the previous ticks has not come yet.
+     * Such tasks are skipped without locking and time calculations.
+     */
+    protected boolean isCronStartInFuture(ScheduledTask task) {
+        CronStart nextStart = nextCronStartCache.get(task);
+        if (nextStart == null) {
+            return false;
+        }
+        if (SchedulingType.CRON != task.getSchedulingType() || !Objects.equals(nextStart.cron, task.getCron())) {
+            nextCronStartCache.remove(task);
+            return false;
+        }
+        return timeSource.currentTimeMillis() < nextStart.time;
+    }
+
+    protected CronSequenceGenerator getCronSequenceGenerator(String cron) {
+        TimeZone timeZone = getCurrentTimeZone();
+        return cronGenerators.computeIfAbsent(cron + "|" + timeZone.getID(),
+                key -> new CronSequenceGenerator(cron, timeZone));
+    }
+
     protected long calculateNextCronDate(ScheduledTask task, long date, long currentDate, long frame) {
-        CronSequenceGenerator cronSequenceGenerator = new CronSequenceGenerator(task.getCron(), getCurrentTimeZone());
+        CronSequenceGenerator cronSequenceGenerator = getCronSequenceGenerator(task.getCron());
         //if last start = 0 (task never has run) or to far in the past, we use (NOW - FRAME) timestamp for pivot time
         //this approach should work fine cause cron works with absolute time
         long pivotPreviousTime = Math.max(date, currentDate - frame);
@@ -308,6 +353,9 @@ public class Scheduling implements SchedulingAPI {
 
         if (currentStart == null) {
             currentStart = nextDate;
+            if (currentStart.getTime() > currentDate) {
+                nextCronStartCache.put(task, new CronStart(task.getCron(), currentStart.getTime()));
+            }
         }
         log.trace("{}\n now={} frame={} currentStart={} lastStart={} cron={}",
                 task, currentDate, frame, currentStart, task.getCron());
@@ -443,4 +491,14 @@ public class Scheduling implements SchedulingAPI {
         lastStartCache.put(task, timeSource.currentTimeMillis());
         runner.runTaskOnce(task, timeSource.currentTimeMillis(), userSession);
     }
-}
\ No newline at end of file
+
+    protected static class CronStart {
+        protected final String cron;
+        protected final long time;
+
+        protected CronStart(String cron, long time) {
+            this.cron = cron;
+            this.time = time;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
@@ -88,9 +89,17 @@ public class FileDownloadController {
             InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                if (fd != null) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    is = openRange(request, response, fd);
+                    if (is == null && response.isCommitted())
+                        return;
+                }
+                if (is == null) {
+                    is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                }
                 os = response.getOutputStream();
-                IOUtils.copy(is, os);
+                IOUtils.copyLarge(is, os);
                 os.flush();
             } catch (FileStorageException e) {
                 log.error("Unable to download file", e);
@@ -107,6 +116,79 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * Opens a stream for a single byte range requested by the {@code Range} header and sets the partial content
+     * response headers.
+     *
+     * @return stream of the requested range or null if the whole file should be sent or the response has been
+     * completed with an error
+     */
+    @Nullable
+    protected InputStream openRange(HttpServletRequest request, HttpServletResponse response, FileDescriptor fd)
+            throws IOException, FileStorageException {
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null)
+            return null;
+
+        long fileSize = fileStorage.getFileSize(fd);
+        if (fileSize < 0)
+            return null;
+
+        long[] range = parseRange(rangeHeader, fileSize);
+        if (range == null)
+            return null;
+
+        if (range[0] >= fileSize || range[0] > range[1]) {
+            response.setHeader("Content-Range", "bytes */" + fileSize);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return null;
+        }
+
+        long length = range[1] - range[0] + 1;
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + fileSize);
+        response.setHeader("Content-Length", String.valueOf(length));
+        return fileStorage.openStream(fd, range[0], length);
+    }
+
+    /**
+     * Parses a single byte range like {@code bytes=0-499}, {@code bytes=500-} or {@code bytes=-500}.
+     *
+     * @return first and last byte positions with the last position limited by the file size, or null if the header
+     * is not supported. Multiple ranges are not supported, so the whole file is sent in this case.
+     */
+    @Nullable
+    protected long[] parseRange(String rangeHeader, long fileSize) {
+        if (!rangeHeader.startsWith("bytes="))
+            return null;
+
+        String range = rangeHeader.substring("bytes=".length()).trim();
+        int dashIdx = range.indexOf('-');
+        if (dashIdx < 0 || range.indexOf(',') >= 0)
+            return null;
+
+        try {
+            String startStr = range.substring(0, dashIdx).trim();
+            String endStr = range.substring(dashIdx + 1).trim();
+            if (startStr.isEmpty()) {
+                if (endStr.isEmpty())
+                    return null;
+                long suffixLength = Long.parseLong(endStr);
+                if (suffixLength <= 0)
+                    return new long[]{fileSize, fileSize - 1};
+                return new long[]{Math.max(fileSize - suffixLength, 0), fileSize - 1};
+            }
+
+            long start = Long.parseLong(startStr);
+            long end = endStr.isEmpty() ? fileSize - 1 : Math.min(Long.parseLong(endStr), fileSize - 1);
+            if (start < 0)
+                return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
@@ -16,13 +16,16 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.cuba.core.app.ConfigStorageAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.global.QueryTransformerFactory;
 import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.global.ViewRepository;
 import com.haulmont.cuba.core.sys.AbstractViewRepository;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.NumberIdCache;
 import com.haulmont.cuba.security.app.EntityLogAPI;
 
 import org.springframework.stereotype.Component;
@@ -49,6 +52,12 @@ public class CachingFacade implements CachingFacadeMBean {
     @Inject
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    @Inject
+    protected NumberIdCache numberIdCache;
+
     @Override
     public int getMessagesCacheSize() {
         return messages.getCacheSize();
@@ -88,4 +97,31 @@ public class CachingFacade implements CachingFacadeMBean {
     public void clearViewRepositoryCache() {
         ((AbstractViewRepository) viewRepository).reset();
     }
-}
\ No newline at end of file
+
+    @Override
+    public long getQueryTreeCacheSize() {
+        return queryTransformerFactory.getQueryTreeCacheSize();
+    }
+
+    @Override
+    public long getQueryTreeCacheHitCount() {
+        CacheStats stats = queryTransformerFactory.getQueryTreeCacheStats();
+        return stats != null ? stats.hitCount() : 0;
+    }
+
+    @Override
+    public long getQueryTreeCacheMissCount() {
+        CacheStats stats = queryTransformerFactory.getQueryTreeCacheStats();
+        return stats != null ? stats.missCount() : 0;
+    }
+
+    @Override
+    public void clearQueryTreeCache() {
+        queryTransformerFactory.clearQueryTreeCache();
+    }
+
+    @Override
+    public String printNumberIdCacheStat() {
+        return numberIdCache.printStatistics();
+    }
+}
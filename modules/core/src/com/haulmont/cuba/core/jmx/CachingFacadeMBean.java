@@ -33,4 +33,14 @@ public interface CachingFacadeMBean {
     void clearDynamicAttributesCache();
 
     void clearSystemPropertiesCache();
+
+    long getQueryTreeCacheSize();
+
+    long getQueryTreeCacheHitCount();
+
+    long getQueryTreeCacheMissCount();
+
+    void clearQueryTreeCache();
+
+    String printNumberIdCacheStat();
 }
\ No newline at end of file
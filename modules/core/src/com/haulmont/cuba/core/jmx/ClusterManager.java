@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.jmx;
 
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,9 @@ public class ClusterManager implements ClusterManagerMBean {
     @Inject
     protected ClusterManagerAPI clusterManager;
 
+    @Inject
+    protected ClusterMessageCodec clusterMessageCodec;
+
     @Override
     public String start() {
         try {
@@ -92,6 +96,11 @@ public class ClusterManager implements ClusterManagerMBean {
         return clusterManager.printMessagesStat();
     }
 
+    @Override
+    public String printCodecStat() {
+        return clusterMessageCodec.printStatistics();
+    }
+
     @Override
     public long getSentMessages(String className) {
         return className == null ? -1 : clusterManager.getSentMessages(className);
@@ -50,7 +50,8 @@ public interface ClusterManagerMBean {
     String getCurrentView();
 
     /**
-     * @return threads count that are actively sending cluster messages
+     * @return threads count that are actively sending cluster messages: the batch sender thread
+     * and threads sending messages synchronously
      * @see com.haulmont.cuba.core.app.ClusterManagerAPI#getActiveThreadsCount()
      */
     int getActiveThreadsCount();
@@ -67,6 +68,9 @@ public interface ClusterManagerMBean {
     @ManagedOperation(description = "Sent/received messages statistics")
     String printMessagesStat();
 
+    @ManagedOperation(description = "Encoded/decoded messages statistics")
+    String printCodecStat();
+
     @ManagedOperation(description = "Get sent messages count for specified class")
     long getSentMessages(String className);
 
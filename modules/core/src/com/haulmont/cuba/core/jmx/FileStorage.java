@@ -53,6 +53,16 @@ public class FileStorage implements FileStorageMBean {
         }
     }
 
+    @Override
+    public int getStorageLogQueueSize() {
+        FileStorageAPI fileStorageAPI = AppBeans.get(FileStorageAPI.class);
+        if (fileStorageAPI instanceof com.haulmont.cuba.core.app.filestorage.FileStorage) {
+            return ((com.haulmont.cuba.core.app.filestorage.FileStorage) fileStorageAPI).getStorageLogQueueSize();
+        } else {
+            return 0;
+        }
+    }
+
     @Override
     public String findOrphanDescriptors() {
         com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage;
@@ -38,4 +38,9 @@ public interface FileStorageMBean {
      * @return the list of files in the storage which have no corresponding descriptors in the database
      */
     String findOrphanFiles();
+
+    /**
+     * @return the number of storage.log records waiting to be written
+     */
+    int getStorageLogQueueSize();
 }
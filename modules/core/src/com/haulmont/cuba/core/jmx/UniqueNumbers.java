@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.haulmont.cuba.core.app.Sequences;
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
 
 import org.springframework.stereotype.Component;
@@ -28,6 +29,9 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     @Inject
     protected UniqueNumbersAPI uniqueNumbers;
 
+    @Inject
+    protected Sequences sequences;
+
     @Override
     public long getCurrentNumber(String domain) {
         return uniqueNumbers.getCurrentNumber(domain);
@@ -42,4 +46,9 @@ public class UniqueNumbers implements UniqueNumbersMBean {
     public long getNextNumber(String domain) {
         return uniqueNumbers.getNextNumber(domain);
     }
+
+    @Override
+    public String printCachedSequences() {
+        return sequences.printCachedSequences();
+    }
 }
\ No newline at end of file
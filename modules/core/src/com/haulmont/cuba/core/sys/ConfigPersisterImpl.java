@@ -76,6 +76,28 @@ public class ConfigPersisterImpl implements ConfigPersister {
         }
     }
 
+    @Override
+    public long getVersion(SourceType sourceType) {
+        AppProperties appProperties = AppContext.Internals.getAppProperties();
+        if (appProperties == null) {
+            return NO_VERSION;
+        }
+        switch (sourceType) {
+            case APP:
+                return appProperties.getVersion();
+            case DATABASE:
+                long cacheVersion = getConfigStorageAPI().getCacheVersion();
+                if (cacheVersion == NO_VERSION) {
+                    return NO_VERSION;
+                }
+                // both versions only grow, so the sum changes whenever any of them changes
+                return appProperties.getVersion() + cacheVersion;
+            default:
+                // system properties can be changed directly
+                return NO_VERSION;
+        }
+    }
+
     protected ConfigStorageAPI getConfigStorageAPI() {
         return (ConfigStorageAPI) applicationContext.getBean(ConfigStorageAPI.NAME);
     }
@@ -130,15 +130,17 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
+        ConstraintsEvaluation evaluation = createInMemoryConstraintsEvaluation();
         boolean filtered = false;
         for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
             Entity entity = iterator.next();
-            if (!isPermittedInMemory(entity)) {
+            if (!isPermitted(entity, evaluation)) {
                 //we ignore situations when the collection is immutable
                 iterator.remove();
                 filtered = true;
             }
         }
+        evaluation.logStatistics();
         return filtered;
     }
 
@@ -166,7 +168,9 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Override
     public void calculateFilteredData(Collection<Entity> entities) {
         Set<EntityId> handled = new LinkedHashSet<>();
-        entities.forEach(entity -> calculateFilteredData(entity, handled, false));
+        ConstraintsEvaluation evaluation = createInMemoryConstraintsEvaluation();
+        entities.forEach(entity -> calculateFilteredData(entity, handled, false, evaluation));
+        evaluation.logStatistics();
     }
 
     @Override
@@ -331,13 +335,18 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
-    @SuppressWarnings("unchecked")
     protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted) {
+        return calculateFilteredData(entity, handled, checkPermitted, createInMemoryConstraintsEvaluation());
+    }
+
+    @SuppressWarnings("unchecked")
+    protected boolean calculateFilteredData(Entity entity, Set<EntityId> handled, boolean checkPermitted,
+                                            ConstraintsEvaluation evaluation) {
         if (referenceToEntitySupport.getReferenceId(entity) == null) {
             return false;
         }
         MetaClass metaClass = entity.getMetaClass();
-        if (!isPermittedInMemory(entity) && checkPermitted) {
+        if (checkPermitted && !isPermitted(entity, evaluation)) {
             return true;
         }
         EntityId entityId = new EntityId(referenceToEntitySupport.getReferenceId(entity), metaClass.getName());
@@ -353,7 +362,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                     if (value instanceof Collection) {
                         Set filtered = new LinkedHashSet();
                         for (Entity item : (Collection<Entity>) value) {
-                            if (calculateFilteredData(item, handled, true)) {
+                            if (calculateFilteredData(item, handled, true, evaluation)) {
                                 filtered.add(referenceToEntitySupport.getReferenceId(item));
                             }
                         }
@@ -362,7 +371,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
                         }
                     } else if (value instanceof Entity) {
                         Entity valueEntity = (Entity) value;
-                        if (calculateFilteredData(valueEntity, handled, true)) {
+                        if (calculateFilteredData(valueEntity, handled, true, evaluation)) {
                             securityTokenManager.addFiltered(baseGenericIdEntity, property.getName(),
                                     referenceToEntitySupport.getReferenceId(valueEntity));
                         }
@@ -375,7 +384,11 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     }
 
     protected boolean isPermittedInMemory(Entity entity) {
-        return isPermitted(entity, constraint ->
+        return isPermitted(entity, createInMemoryConstraintsEvaluation());
+    }
+
+    protected ConstraintsEvaluation createInMemoryConstraintsEvaluation() {
+        return createConstraintsEvaluation(constraint ->
                 constraint.getCheckType().memory()
                         && (constraint.getOperationType() == ConstraintOperationType.READ
                         || constraint.getOperationType() == ConstraintOperationType.ALL));
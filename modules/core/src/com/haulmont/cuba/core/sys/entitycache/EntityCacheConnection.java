@@ -19,19 +19,21 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.haulmont.bali.util.ReflectionHelper;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.UuidProvider;
 import org.eclipse.persistence.internal.helper.Helper;
+import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
 import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
 import org.eclipse.persistence.internal.sessions.coordination.broadcast.BroadcastRemoteConnection;
 import org.eclipse.persistence.sessions.coordination.MergeChangeSetCommand;
 import org.eclipse.persistence.sessions.coordination.RemoteCommandManager;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class EntityCacheConnection extends BroadcastRemoteConnection {
 
@@ -127,18 +129,48 @@ public class EntityCacheConnection extends BroadcastRemoteConnection {
             UnitOfWorkChangeSet changeSet = changeSetCommand.getChangeSet(null);
             if (changeSet != null && changeSet.getAllChangeSets() != null) {
                 Set<String> typeNames = new HashSet<>();
+                Map<String, Set<Object>> idsByType = new HashMap<>();
+                boolean invalidateById = queryCacheManager.isInvalidateByIdEnabled();
                 changeSet.getAllChangeSets().values().stream().filter(obj -> obj.getClassName() != null).forEach(obj -> {
                     MetaClass metaClass = metadata.getClass(ReflectionHelper.getClass(obj.getClassName()));
                     if (metaClass != null) {
                         metaClass = metadata.getExtendedEntities().getOriginalOrThisMetaClass(metaClass);
-                        typeNames.add(metaClass.getName());
+                        Object id = invalidateById && !obj.isNew() ? getEntityId(metaClass, obj) : null;
+                        if (id != null) {
+                            idsByType.computeIfAbsent(metaClass.getName(), k -> new HashSet<>()).add(id);
+                        } else {
+                            typeNames.add(metaClass.getName());
+                        }
                     }
                 });
+                idsByType.keySet().removeAll(typeNames);
                 queryCacheManager.invalidate(typeNames, false);
+                queryCacheManager.invalidate(idsByType);
             }
         }
     }
 
+    /**
+     * Returns identifier of the changed instance as it is stored in query results,
+     * or null if it cannot be determined.
+     */
+    protected Object getEntityId(MetaClass metaClass, ObjectChangeSet objectChangeSet) {
+        Object id = objectChangeSet.getId();
+        MetaProperty primaryKeyProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (id == null || primaryKeyProperty == null) {
+            return null;
+        }
+        Class<?> idType = primaryKeyProperty.getJavaType();
+        if (idType == UUID.class && id instanceof String) {
+            id = UuidProvider.fromString((String) id);
+        } else if (idType == Long.class && id instanceof Number) {
+            id = ((Number) id).longValue();
+        } else if (idType == Integer.class && id instanceof Number) {
+            id = ((Number) id).intValue();
+        }
+        return idType.isInstance(id) ? id : null;
+    }
+
     public static class Message implements Serializable {
 
         private Object object;
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.sys.entitycache;
 
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -63,6 +64,17 @@ public interface QueryCache {
      */
     void invalidate(Set<String> typeNames);
 
+    /**
+     * Discards cached query results affected by changes of existing instances of metaClass name {@code typeName}
+     * with identifiers {@code ids}. Queries selecting only instances of this type are discarded if their results
+     * contain the changed instances, other queries related to this type are discarded unconditionally.
+     * <p>
+     * By default, discards all cached query results for {@code typeName}.
+     */
+    default void invalidate(String typeName, Collection<?> ids) {
+        invalidate(typeName);
+    }
+
     /**
      * Discards all queries results in the cache.
      */
@@ -34,4 +34,13 @@ public interface QueryCacheConfig extends Config {
     @Property("cuba.queryCache.maxSize")
     @DefaultInt(100)
     int getQueryCacheMaxSize();
+
+    /**
+     * Whether changes of existing entity instances discard only the cached queries containing these instances
+     * in their results. Should be enabled only if cacheable queries do not filter by mutable attributes,
+     * otherwise all queries related to the changed type are discarded.
+     */
+    @Property("cuba.queryCache.invalidateById")
+    @DefaultBoolean(false)
+    boolean getQueryCacheInvalidateById();
 }
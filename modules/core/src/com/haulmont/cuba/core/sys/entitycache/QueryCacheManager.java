@@ -80,6 +80,14 @@ public class QueryCacheManager {
         return queryCacheConfig.getQueryCacheEnabled();
     }
 
+    /**
+     * Returns true if changes of existing entity instances should discard only the cached queries
+     * containing these instances
+     */
+    public boolean isInvalidateByIdEnabled() {
+        return queryCacheConfig.getQueryCacheInvalidateById();
+    }
+
     /**
      * Get query results from query cache by specified {@code queryKey}
      */
@@ -228,6 +236,18 @@ public class QueryCacheManager {
         }
     }
 
+    /**
+     * Discards cached query results affected by changes of existing instances with identifiers {@code ids}
+     * in the query cache of this node only.
+     *
+     * @param idsByType - identifiers of changed instances by metaClass name
+     */
+    public void invalidate(Map<String, Set<Object>> idsByType) {
+        if (isEnabled()) {
+            idsByType.forEach((typeName, ids) -> queryCache.invalidate(typeName, ids));
+        }
+    }
+
     /**
      * Discards cached query results for query identifier {@code queryId}
      *
@@ -18,8 +18,8 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,17 +29,26 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Query cache based on Guava cache.
+ * <p>
+ * Keeps secondary indexes by related type, by query identifier and by identifiers of entities in query results.
+ * Indexes are cleaned up by the cache removal listener, so evicted queries do not stay in them.
+ */
 @Component(QueryCache.NAME)
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
-    protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<Object, Set<QueryKey>> resultIdIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> queryIdIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Guards modifications of the indexes, so that an entry is never left in an index after its removal
+     * from the cache.
+     */
+    protected final Object indexLock = new Object();
 
     @Inject
     protected QueryCacheConfig queryCacheConfig;
@@ -48,7 +57,10 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(this::onRemoval)
+                .build();
     }
 
     @Override
@@ -58,108 +70,85 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public void put(QueryKey queryKey, QueryResult queryResult) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            data.put(queryKey, queryResult);
-
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+        synchronized (indexLock) {
+            // an equal key already cached keeps its own identifier
+            boolean replaced = data.asMap().put(queryKey, queryResult) != null;
+
+            if (queryResult.getRelatedTypes() != null) {
+                for (String type : queryResult.getRelatedTypes()) {
+                    typeIndex.computeIfAbsent(type, k -> ConcurrentHashMap.newKeySet()).add(queryKey);
                 }
-                keys.add(queryKey);
             }
-        } finally {
-            readLock.unlock();
+            for (Object id : queryResult.getResult()) {
+                if (id == null) continue;
+                resultIdIndex.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(queryKey);
+            }
+            if (!replaced && queryKey.getId() != null) {
+                queryIdIndex.put(queryKey.getId(), queryKey);
+            }
         }
     }
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
-        }
-        return null;
+        return queryIdIndex.get(queryId);
     }
 
     @Override
     public void invalidate(QueryKey queryKey) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            log.debug("Invalidate query by key {}", queryKey.printDescription());
-            data.invalidate(queryKey);
-        } finally {
-            readLock.unlock();
-        }
+        log.debug("Invalidate query by key {}", queryKey.printDescription());
+        data.invalidate(queryKey);
     }
 
     @Override
     public void invalidate(String typeName) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-        } finally {
-            readLock.unlock();
-        }
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        data.invalidateAll(new ArrayList<>(keys));
     }
 
     @Override
     public void invalidate(Set<String> typeNames) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
-        } finally {
-            readLock.unlock();
+        typeNames.forEach(this::invalidate);
+    }
+
+    @Override
+    public void invalidate(String typeName, Collection<?> ids) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {} by identifiers {}", typeName, ids);
+
+        List<QueryKey> invalidated = new ArrayList<>();
+        for (QueryKey key : keys) {
+            QueryResult queryResult = data.asMap().get(key);
+            if (queryResult != null && !isInvalidatedByIds(queryResult, typeName)) {
+                invalidated.add(key);
+            }
+        }
+        for (Object id : ids) {
+            Set<QueryKey> idKeys = resultIdIndex.get(id);
+            if (idKeys != null) {
+                invalidated.addAll(idKeys);
+            }
         }
+        data.invalidateAll(invalidated);
     }
 
     @Override
     public QueryKey invalidate(UUID queryId) {
-        Lock readLock = lock.readLock();
-        readLock.lock();
-        try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
-            }
-        } finally {
-            readLock.unlock();
+        QueryKey key = queryIdIndex.get(queryId);
+        if (key != null) {
+            log.debug("Invalidate query by identifier {}", queryId);
+            data.invalidate(key);
         }
-        return null;
+        return key;
     }
 
     @Override
     public void invalidateAll() {
-        Lock writeLock = lock.writeLock();
-        writeLock.lock();
-        try {
-            log.debug("Invalidate all cache");
-            data.invalidateAll();
-            typeIndex.clear();
-        } finally {
-            writeLock.unlock();
-        }
+        log.debug("Invalidate all cache");
+        data.invalidateAll();
     }
 
     @Override
@@ -176,4 +165,52 @@ public class StandardQueryCache implements QueryCache {
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
     }
+
+    /**
+     * Returns true if changes of existing instances of {@code typeName} can affect the result only when
+     * it contains these instances: the query selects instances of this type only and its result is
+     * a list of identifiers.
+     */
+    protected boolean isInvalidatedByIds(QueryResult queryResult, String typeName) {
+        return queryResult.getException() == null
+                && typeName.equals(queryResult.getType())
+                && queryResult.getRelatedTypes() != null
+                && queryResult.getRelatedTypes().size() == 1;
+    }
+
+    protected void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+        QueryKey key = notification.getKey();
+        QueryResult removed = notification.getValue();
+        if (key == null || removed == null) {
+            return;
+        }
+        synchronized (indexLock) {
+            // the key can be already put again with another result
+            QueryResult current = data.asMap().get(key);
+
+            if (removed.getRelatedTypes() != null) {
+                for (String type : removed.getRelatedTypes()) {
+                    if (current == null || current.getRelatedTypes() == null
+                            || !current.getRelatedTypes().contains(type)) {
+                        removeFromIndex(typeIndex, type, key);
+                    }
+                }
+            }
+            for (Object id : removed.getResult()) {
+                if (id != null && (current == null || !current.getResult().contains(id))) {
+                    removeFromIndex(resultIdIndex, id, key);
+                }
+            }
+            if (current == null && key.getId() != null) {
+                queryIdIndex.remove(key.getId(), key);
+            }
+        }
+    }
+
+    protected <K> void removeFromIndex(ConcurrentMap<K, Set<QueryKey>> index, K indexKey, QueryKey queryKey) {
+        index.computeIfPresent(indexKey, (k, keys) -> {
+            keys.remove(queryKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
 }
@@ -59,4 +59,16 @@ public class Mssql2012SequenceSupport implements SequenceSupport {
         Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
         return "select cast(CURRENT_VALUE as bigint) from SYS.SEQUENCES where NAME = '" + sequenceName.toUpperCase() + "'";
     }
+
+    @Override
+    public String getIncrementSql(String sequenceName) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "select cast(INCREMENT as bigint) from SYS.SEQUENCES where NAME = '" + sequenceName.toUpperCase() + "'";
+    }
+
+    @Override
+    public String modifyIncrementSql(String sequenceName, long increment) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "alter sequence " + sequenceName.toUpperCase() + " increment by " + increment;
+    }
 }
\ No newline at end of file
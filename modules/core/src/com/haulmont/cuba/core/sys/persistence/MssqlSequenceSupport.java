@@ -59,4 +59,9 @@ public class MssqlSequenceSupport implements SequenceSupport {
     public String getCurrentValueSql(String sequenceName) {
         return String.format("select ident_current('%s') as CURR_VALUE", sequenceName.toUpperCase());
     }
+
+    @Override
+    public String getIncrementSql(String sequenceName) {
+        return String.format("select cast(ident_incr('%s') as bigint)", sequenceName.toUpperCase());
+    }
 }
\ No newline at end of file
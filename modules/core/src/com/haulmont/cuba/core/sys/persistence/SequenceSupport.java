@@ -41,4 +41,18 @@ public interface SequenceSupport {
     String getNextValueSql(String sequenceName);
 
     String getCurrentValueSql(String sequenceName);
+
+    /**
+     * @return SQL returning the increment of an existing sequence, or null if the database can't report it
+     */
+    default String getIncrementSql(String sequenceName) {
+        return null;
+    }
+
+    /**
+     * @return SQL changing the increment of an existing sequence, or null if the database can't change it
+     */
+    default String modifyIncrementSql(String sequenceName, long increment) {
+        return null;
+    }
 }
@@ -34,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationExecutor;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Locale;
 import java.util.UUID;
@@ -72,8 +73,10 @@ public class CubaRemoteInvocationExecutor implements RemoteInvocationExecutor {
                     String sessionProviderUrl = serverConfig.getUserSessionProviderUrl();
                     if (StringUtils.isNotBlank(sessionProviderUrl)) {
                         log.debug("User session {} not found, trying to get it from {}", sessionId, sessionProviderUrl);
+                        HttpServiceProxy proxyFactory = null;
                         try {
-                            HttpServiceProxy proxyFactory = new HttpServiceProxy(getServerSelector(sessionProviderUrl));
+                            proxyFactory = new HttpServiceProxy(getServerSelector(sessionProviderUrl),
+                                    configuration.getConfig(RemotingConfig.class));
                             proxyFactory.setServiceUrl("cuba_TrustedClientService");
                             proxyFactory.setServiceInterface(TrustedClientService.class);
                             proxyFactory.afterPropertiesSet();
@@ -88,6 +91,8 @@ public class CubaRemoteInvocationExecutor implements RemoteInvocationExecutor {
                             }
                         } catch (Exception e) {
                             log.error("Error getting user session from {}", sessionProviderUrl, e);
+                        } finally {
+                            destroyProxy(proxyFactory);
                         }
                     }
                 }
@@ -129,4 +134,14 @@ public class CubaRemoteInvocationExecutor implements RemoteInvocationExecutor {
         }
         return serverSelector;
     }
+
+    protected void destroyProxy(@Nullable HttpServiceProxy proxyFactory) {
+        if (proxyFactory != null) {
+            try {
+                proxyFactory.destroy();
+            } catch (Exception e) {
+                log.warn("Error closing connections to the user session provider", e);
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.google.common.base.Joiner;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
@@ -27,25 +28,34 @@ import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationResult;
 import org.springframework.web.util.NestedServletException;
 
+import javax.inject.Inject;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected static final String ENCODING_GZIP = "gzip";
+
+    protected RemotingConfig remotingConfig;
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
         setRemoteInvocationExecutor(new CubaRemoteInvocationExecutor());
     }
 
+    @Inject
+    public void setConfiguration(Configuration configuration) {
+        remotingConfig = configuration.getConfig(RemotingConfig.class);
+    }
+
     @Override
     public void setService(Object service) {
         super.setService(service);
@@ -102,6 +112,32 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        String contentEncoding = request.getHeader("Content-Encoding");
+        if (contentEncoding != null && contentEncoding.toLowerCase().contains(ENCODING_GZIP)) {
+            return new GZIPInputStream(is);
+        }
+        return is;
+    }
+
+    /*
+     * Compresses the result if it is enabled by RemotingConfig#getRemotingCompressionEnabled() and accepted by the client.
+     * Clients using the connection pool start compressing their requests after the first compressed response.
+     */
+    @Override
+    protected OutputStream decorateOutputStream(HttpServletRequest request, HttpServletResponse response,
+                                                OutputStream os) throws IOException {
+        if (remotingConfig.getRemotingCompressionEnabled()) {
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.toLowerCase().contains(ENCODING_GZIP)) {
+                response.setHeader("Content-Encoding", ENCODING_GZIP);
+                return new GZIPOutputStream(os, 8192);
+            }
+        }
+        return os;
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
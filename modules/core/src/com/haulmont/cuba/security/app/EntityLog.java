@@ -77,6 +77,8 @@ public class EntityLog implements EntityLogAPI {
     protected DataManager dataManager;
     @Inject
     protected ServerConfig serverConfig;
+    @Inject
+    protected EntityLogWriter entityLogWriter;
 
     protected volatile boolean loaded;
     protected EntityLogConfig config;
@@ -111,34 +113,56 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
+        Map<Object, List<EntityLogItem>> itemsByEntity = new LinkedHashMap<>();
         for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+            Object key = item.getDbGeneratedIdEntity() != null ? item.getDbGeneratedIdEntity() : item.getObjectEntityId();
+            itemsByEntity.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+        // items are written once even if flush is called again in the same transaction
+        items.clear();
+
+        List<EntityLogItem> mainStoreItems = new ArrayList<>();
+        List<EntityLogItem> otherStoreItems = new ArrayList<>();
+        List<EntityLogItem> dbGeneratedIdItems = new ArrayList<>();
+        for (List<EntityLogItem> sameEntityList : itemsByEntity.values()) {
             EntityLogItem itemToSave = sameEntityList.get(0);
             computeChanges(itemToSave, sameEntityList);
-            saveItem(itemToSave);
+
+            if (itemToSave.getDbGeneratedIdEntity() != null) {
+                dbGeneratedIdItems.add(itemToSave);
+            } else if (Stores.isMain(metadataTools.getStoreName(metadata.getClassNN(itemToSave.getEntity())))) {
+                mainStoreItems.add(itemToSave);
+            } else {
+                otherStoreItems.add(itemToSave);
+            }
         }
+
+        saveItems(mainStoreItems, otherStoreItems, dbGeneratedIdItems);
     }
 
     protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
-        Set<String> allAttributes = sameEntityList.stream()
-                .flatMap(entityLogItem -> entityLogItem.getAttributes().stream().map(EntityLogAttr::getName))
-                .collect(Collectors.toSet());
-
-        for (String attributeName : allAttributes) {
-            // old value from the first item
-            sameEntityList.get(0).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeOldValue(entityLogAttr, itemToSave));
-            // new value from the last item
-            sameEntityList.get(sameEntityList.size() - 1).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeNewValue(entityLogAttr, itemToSave));
+        if (sameEntityList.size() > 1) {
+            // old value of an attribute is taken from the first item containing it, new value from the last one
+            Map<String, EntityLogAttr> attrsToSave = new HashMap<>();
+            for (EntityLogAttr attr : itemToSave.getAttributes()) {
+                attrsToSave.put(attr.getName(), attr);
+            }
+            for (EntityLogItem item : sameEntityList.subList(1, sameEntityList.size())) {
+                for (EntityLogAttr entityLogAttr : item.getAttributes()) {
+                    EntityLogAttr attr = attrsToSave.get(entityLogAttr.getName());
+                    if (attr == null) {
+                        attr = metadata.create(EntityLogAttr.class);
+                        attr.setName(entityLogAttr.getName());
+                        attr.setOldValue(entityLogAttr.getOldValue());
+                        attr.setOldValueId(entityLogAttr.getOldValueId());
+                        attr.setMessagesPack(entityLogAttr.getMessagesPack());
+                        itemToSave.getAttributes().add(attr);
+                        attrsToSave.put(attr.getName(), attr);
+                    }
+                    attr.setValue(entityLogAttr.getValue());
+                    attr.setValueId(entityLogAttr.getValueId());
+                }
+            }
         }
 
         Properties properties = new Properties();
@@ -160,76 +184,66 @@ public class EntityLog implements EntityLogAPI {
         }
 
         if (itemToSave.getType() == EntityLogItem.Type.MODIFY) {
-            sameEntityList.stream()
-                    .filter(entityLogItem -> entityLogItem.getType() == EntityLogItem.Type.CREATE)
-                    .findFirst()
-                    .ifPresent(entityLogItem -> itemToSave.setType(EntityLogItem.Type.CREATE));
+            for (EntityLogItem entityLogItem : sameEntityList) {
+                if (entityLogItem.getType() == EntityLogItem.Type.CREATE) {
+                    itemToSave.setType(EntityLogItem.Type.CREATE);
+                    break;
+                }
+            }
         }
         itemToSave.setChanges(getChanges(properties));
     }
 
-    protected void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
-        attr.setOldValue(entityLogAttr.getOldValue());
-        attr.setOldValueId(entityLogAttr.getOldValueId());
-    }
-
-    protected void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
-        attr.setValue(entityLogAttr.getValue());
-        attr.setValueId(entityLogAttr.getValueId());
-    }
-
-    protected EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = itemToSave.getAttributes().stream()
-                .filter(a -> a.getName().equals(entityLogAttr.getName()))
-                .findFirst()
-                .orElse(null);
-        if (attr == null) {
-            attr = metadata.create(EntityLogAttr.class);
-            attr.setName(entityLogAttr.getName());
-            itemToSave.getAttributes().add(attr);
+    /**
+     * Writes items of the main data store in the current transaction, items of additional data stores in a separate
+     * transaction and items of entities with DB-generated identifiers after commit, when the identifiers are known.
+     * If asynchronous writing is on, all items are passed to the background writer after commit.
+     */
+    protected void saveItems(List<EntityLogItem> mainStoreItems, List<EntityLogItem> otherStoreItems,
+                             List<EntityLogItem> dbGeneratedIdItems) {
+        if (entityLogWriter.isAsync()) {
+            List<EntityLogItem> allItems = new ArrayList<>(mainStoreItems);
+            allItems.addAll(otherStoreItems);
+            allItems.addAll(dbGeneratedIdItems);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    setDbGeneratedIds(dbGeneratedIdItems);
+                    entityLogWriter.writeAsync(allItems);
+                }
+            });
+            return;
         }
-        return attr;
-    }
 
-    protected void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
-        if (item.getDbGeneratedIdEntity() == null) {
-            if (Stores.isMain(storeName)) {
-                EntityManager em = persistence.getEntityManager();
-                em.persist(item);
-            } else {
-                // Create a new transaction in main DB if we are saving an entity from additional data store
-                try (Transaction tx = persistence.createTransaction()) {
-                    EntityManager em = persistence.getEntityManager();
-                    em.persist(item);
-                    tx.commit();
-                }
-            }
-        } else {
+        entityLogWriter.write(mainStoreItems);
+        // Create a new transaction in main DB if we are saving an entity from additional data store
+        entityLogWriter.writeInNewTransaction(otherStoreItems);
+
+        if (!dbGeneratedIdItems.isEmpty()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    Number id = item.getDbGeneratedIdEntity().getId().getNN();
-                    item.setObjectEntityId(id);
-                    try (Transaction tx = persistence.createTransaction()) {
-                        EntityManager em = persistence.getEntityManager();
-                        em.persist(item);
-                        tx.commit();
-                    }
+                    setDbGeneratedIds(dbGeneratedIdItems);
+                    entityLogWriter.writeInNewTransaction(dbGeneratedIdItems);
                 }
             });
         }
     }
 
+    protected void setDbGeneratedIds(List<EntityLogItem> items) {
+        for (EntityLogItem item : items) {
+            Number id = item.getDbGeneratedIdEntity().getId().getNN();
+            item.setObjectEntityId(id);
+        }
+    }
+
     @Override
-    public synchronized boolean isEnabled() {
+    public boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
     }
 
     @Override
-    public synchronized void setEnabled(boolean enabled) {
+    public void setEnabled(boolean enabled) {
         if (enabled != config.getEnabled()) {
             config.setEnabled(enabled);
         }
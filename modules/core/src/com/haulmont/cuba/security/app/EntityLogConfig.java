@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,30 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Whether the log items are written by a background thread after the transaction is committed.
+     * Items remaining in the queue are lost if the server stops abnormally.
+     */
+    @Property("cuba.entityLog.asyncWrite")
+    @DefaultBoolean(false)
+    boolean getAsyncWrite();
+    void setAsyncWrite(boolean value);
+
+    /**
+     * @return Maximum number of log items waiting for the background writer. Items not fitting into the queue
+     * are written by the committing thread.
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+    void setAsyncQueueCapacity(int value);
+
+    /**
+     * @return Number of log items inserted by one JDBC batch
+     */
+    @Property("cuba.entityLog.batchSize")
+    @DefaultInt(100)
+    int getBatchSize();
+    void setBatchSize(int value);
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.security.app;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.ReferenceToEntity;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.sys.AuditInfoProvider;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes {@link EntityLogItem}s prepared by {@link EntityLog} to the database.
+ * <p>
+ * Items are inserted into {@code SEC_ENTITY_LOG} by JDBC batches of {@link EntityLogConfig#getBatchSize()} rows.
+ * If {@code EntityLogItem} is extended in the project, items are persisted through {@link EntityManager} instead.
+ * <p>
+ * When {@link EntityLogConfig#getAsyncWrite()} is on, items are put into a bounded queue after the business
+ * transaction is committed and written by a background thread. If the queue is full, items are written
+ * synchronously by the committing thread. If a batch of queued items can not be written, its items are written
+ * again one by one, and only the items failed again are lost.
+ */
+@Component(EntityLogWriter.NAME)
+public class EntityLogWriter {
+
+    public static final String NAME = "cuba_EntityLogWriter";
+
+    private static final Logger log = LoggerFactory.getLogger(EntityLogWriter.class);
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, EVENT_TS, " +
+            "USER_ID, CHANGE_TYPE, ENTITY, ENTITY_INSTANCE_NAME, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, " +
+            "LONG_ENTITY_ID, CHANGES) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Inject
+    protected Persistence persistence;
+    @Inject
+    protected Metadata metadata;
+    @Inject
+    protected TimeSource timeSource;
+    @Inject
+    protected AuditInfoProvider auditInfoProvider;
+
+    protected EntityLogConfig config;
+
+    protected volatile BlockingQueue<EntityLogItem> queue;
+    protected volatile ExecutorService writeExecutor;
+    protected AtomicBoolean writing = new AtomicBoolean();
+
+    protected LongAdder writtenCount = new LongAdder();
+    protected LongAdder batchCount = new LongAdder();
+    protected LongAdder queuedCount = new LongAdder();
+    protected LongAdder overflowCount = new LongAdder();
+    protected LongAdder retriedCount = new LongAdder();
+    protected LongAdder failedCount = new LongAdder();
+
+    @Inject
+    public EntityLogWriter(Configuration configuration) {
+        config = configuration.getConfig(EntityLogConfig.class);
+    }
+
+    /**
+     * @return true if items should be passed to {@link #writeAsync(Collection)} after commit
+     */
+    public boolean isAsync() {
+        return config.getAsyncWrite();
+    }
+
+    /**
+     * Writes items in the current transaction of the main data store.
+     */
+    public void write(Collection<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        prepare(items);
+        internalWrite(persistence.getEntityManager(), items);
+    }
+
+    /**
+     * Writes items in a new transaction of the main data store.
+     */
+    public void writeInNewTransaction(Collection<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        prepare(items);
+        writeInTransaction(items);
+    }
+
+    /**
+     * Passes items to the background writer. Items which do not fit into the queue are written immediately
+     * in a new transaction.
+     */
+    public void writeAsync(Collection<EntityLogItem> items) {
+        if (items.isEmpty())
+            return;
+
+        // audit info is available only in the calling thread
+        prepare(items);
+
+        BlockingQueue<EntityLogItem> queue = getQueue();
+        List<EntityLogItem> rejected = null;
+        for (EntityLogItem item : items) {
+            if (queue.offer(item)) {
+                queuedCount.increment();
+            } else {
+                if (rejected == null) {
+                    rejected = new ArrayList<>();
+                }
+                rejected.add(item);
+            }
+        }
+
+        scheduleQueueWriting();
+
+        if (rejected != null) {
+            overflowCount.add(rejected.size());
+            writeInTransaction(rejected);
+        }
+    }
+
+    /**
+     * @return number of items waiting in the background writer queue
+     */
+    public int getQueueSize() {
+        BlockingQueue<EntityLogItem> queue = this.queue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    public String printStatistics() {
+        return String.format("Written items: %d, batches: %d\n" +
+                        "Async: %s, queued items: %d, queue size: %d, overflowed items: %d, " +
+                        "retried items: %d, failed items: %d",
+                writtenCount.sum(), batchCount.sum(),
+                isAsync(), queuedCount.sum(), getQueueSize(), overflowCount.sum(),
+                retriedCount.sum(), failedCount.sum());
+    }
+
+    protected void prepare(Collection<EntityLogItem> items) {
+        Date ts = timeSource.currentTimestamp();
+        String login = auditInfoProvider.getCurrentUserLogin();
+        for (EntityLogItem item : items) {
+            if (item.getCreateTs() == null) {
+                item.setCreateTs(ts);
+            }
+            if (item.getCreatedBy() == null) {
+                item.setCreatedBy(login);
+            }
+        }
+    }
+
+    protected void internalWrite(EntityManager em, Collection<EntityLogItem> items) {
+        if (!isJdbcBatchApplicable()) {
+            for (EntityLogItem item : items) {
+                em.persist(item);
+            }
+            writtenCount.add(items.size());
+            return;
+        }
+
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int uuidType = converter.getSqlType(UUID.class);
+        int[] paramTypes = {uuidType, Types.TIMESTAMP, Types.VARCHAR, Types.TIMESTAMP, uuidType, Types.CHAR,
+                Types.VARCHAR, Types.VARCHAR, uuidType, Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.VARCHAR};
+
+        Connection connection = em.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (List<EntityLogItem> batch : Lists.partition(new ArrayList<>(items), Math.max(config.getBatchSize(), 1))) {
+                for (EntityLogItem item : batch) {
+                    Object[] params = getInsertParams(item);
+                    for (int i = 0; i < params.length; i++) {
+                        if (params[i] == null) {
+                            statement.setNull(i + 1, paramTypes[i]);
+                        } else {
+                            statement.setObject(i + 1, converter.getSqlObject(params[i]));
+                        }
+                    }
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                batchCount.increment();
+                writtenCount.add(batch.size());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Unable to write entity log items", e);
+        }
+    }
+
+    protected Object[] getInsertParams(EntityLogItem item) {
+        ReferenceToEntity ref = item.getEntityRef();
+        return new Object[]{
+                item.getId(),
+                item.getCreateTs(),
+                item.getCreatedBy(),
+                item.getEventTs(),
+                item.getUser() != null ? item.getUser().getId() : null,
+                item.getType() != null ? item.getType().getId() : null,
+                item.getEntity(),
+                item.getEntityInstanceName(),
+                ref != null ? ref.getEntityId() : null,
+                ref != null ? ref.getStringEntityId() : null,
+                ref != null ? ref.getIntEntityId() : null,
+                ref != null ? ref.getLongEntityId() : null,
+                item.getChanges()
+        };
+    }
+
+    protected boolean isJdbcBatchApplicable() {
+        return metadata.getExtendedEntities().getExtendedClass(metadata.getClassNN(EntityLogItem.class)) == null;
+    }
+
+    protected BlockingQueue<EntityLogItem> getQueue() {
+        if (queue == null) {
+            synchronized (this) {
+                if (queue == null) {
+                    writeExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                            .setNameFormat("EntityLogWriter-%d")
+                            .setDaemon(true)
+                            .build());
+                    queue = new ArrayBlockingQueue<>(Math.max(config.getAsyncQueueCapacity(), 1));
+                }
+            }
+        }
+        return queue;
+    }
+
+    protected void scheduleQueueWriting() {
+        if (writing.compareAndSet(false, true)) {
+            try {
+                writeExecutor.execute(this::writeQueue);
+            } catch (RejectedExecutionException e) {
+                writing.set(false);
+                log.debug("Entity log writer is stopped");
+            }
+        }
+    }
+
+    protected void writeQueue() {
+        try {
+            int batchSize = Math.max(config.getBatchSize(), 1);
+            List<EntityLogItem> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                writeQueuedBatch(batch);
+                batch.clear();
+            }
+        } finally {
+            writing.set(false);
+        }
+        // items could be added after the last drain but before the flag was reset
+        if (!queue.isEmpty()) {
+            scheduleQueueWriting();
+        }
+    }
+
+    /**
+     * Writes a batch taken from the queue. If the batch fails, its items are written one by one in separate
+     * transactions, so a single bad item or a transient error does not drop the whole batch.
+     */
+    protected void writeQueuedBatch(List<EntityLogItem> batch) {
+        try {
+            writeInTransaction(batch);
+            return;
+        } catch (Exception e) {
+            log.warn("Unable to write {} entity log items, writing them one by one", batch.size(), e);
+        }
+
+        retriedCount.add(batch.size());
+        for (EntityLogItem item : batch) {
+            try {
+                writeInTransaction(Collections.singletonList(item));
+            } catch (Exception e) {
+                failedCount.increment();
+                log.error("Unable to write entity log item {}", item.getId(), e);
+            }
+        }
+    }
+
+    protected void writeInTransaction(Collection<EntityLogItem> items) {
+        try (Transaction tx = persistence.createTransaction()) {
+            internalWrite(persistence.getEntityManager(), items);
+            tx.commit();
+        }
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        ExecutorService executor = this.writeExecutor;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("Entity log writer did not finish in time, {} items are not written", getQueueSize());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (getQueueSize() > 0) {
+                writeQueue();
+            }
+        }
+    }
+}
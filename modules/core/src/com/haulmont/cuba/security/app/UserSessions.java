@@ -17,7 +17,10 @@ package com.haulmont.cuba.security.app;
 
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageCodec;
+import com.haulmont.cuba.core.app.CoalescingClusterMessage;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Metadata;
@@ -46,7 +49,7 @@ import java.util.stream.Stream;
 @Component(UserSessionsAPI.NAME)
 public class UserSessions implements UserSessionsAPI {
 
-    public static class UserSessionInfo implements Serializable {
+    public static class UserSessionInfo implements CoalescingClusterMessage {
         private static final long serialVersionUID = -4834267718111570841L;
 
         public final UserSession session;
@@ -77,6 +80,11 @@ public class UserSessions implements UserSessionsAPI {
             return lastSentTs;
         }
 
+        @Override
+        public Object getCoalescingKey() {
+            return session.getId();
+        }
+
         @Override
         public String toString() {
             return String.format("%s, since: %s, lastUsed: %s",
@@ -84,10 +92,84 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Compact cluster message carrying last used timestamps of several sessions without the sessions themselves.
+     * Zero timestamp means that the session has been removed.
+     */
+    public static class UserSessionTouchMessage implements Serializable {
+        private static final long serialVersionUID = 2858218546306346153L;
+
+        // session id most significant bits, least significant bits and last used timestamp for each session
+        protected final long[] data;
+
+        public UserSessionTouchMessage(Map<UUID, Long> lastUsedTimestamps) {
+            data = new long[lastUsedTimestamps.size() * 3];
+            int i = 0;
+            for (Map.Entry<UUID, Long> entry : lastUsedTimestamps.entrySet()) {
+                data[i++] = entry.getKey().getMostSignificantBits();
+                data[i++] = entry.getKey().getLeastSignificantBits();
+                data[i++] = entry.getValue();
+            }
+        }
+
+        public int size() {
+            return data.length / 3;
+        }
+
+        public UUID getSessionId(int index) {
+            return new UUID(data[index * 3], data[index * 3 + 1]);
+        }
+
+        public long getLastUsedTs(int index) {
+            return data[index * 3 + 2];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d session touches", size());
+        }
+    }
+
+    /**
+     * Cluster message requesting full {@link UserSessionInfo} of sessions touched on other nodes but unknown
+     * to the sending node, e.g. because it has missed the session creation message.
+     */
+    public static class UserSessionRequestMessage implements Serializable {
+        private static final long serialVersionUID = -6316215716436327741L;
+
+        // session id most significant bits and least significant bits for each session
+        protected final long[] data;
+
+        public UserSessionRequestMessage(Collection<UUID> sessionIds) {
+            data = new long[sessionIds.size() * 2];
+            int i = 0;
+            for (UUID id : sessionIds) {
+                data[i++] = id.getMostSignificantBits();
+                data[i++] = id.getLeastSignificantBits();
+            }
+        }
+
+        public int size() {
+            return data.length / 2;
+        }
+
+        public UUID getSessionId(int index) {
+            return new UUID(data[index * 2], data[index * 2 + 1]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("request of %d sessions", size());
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
+    // sessions whose last used timestamp should be sent to the cluster on the next touch messages flush
+    protected Set<UUID> pendingTouches = ConcurrentHashMap.newKeySet();
+
     protected volatile int expirationTimeout = 1800;
 
     protected volatile int sendTimeout = 10;
@@ -109,6 +191,9 @@ public class UserSessions implements UserSessionsAPI {
     @Inject
     protected UserSessionLog userSessionLog;
 
+    @Inject
+    protected ClusterMessageCodec clusterMessageCodec;
+
     public UserSessions() {
         User noUser = new User();
         noUser.setLogin("server");
@@ -151,8 +236,80 @@ public class UserSessions implements UserSessionsAPI {
                     public void setState(byte[] state) {
                         receiveClusterState(state);
                     }
+
+                    @Override
+                    public void writeState(OutputStream outputStream) throws IOException {
+                        sendClusterState(outputStream);
+                    }
+
+                    @Override
+                    public void readState(InputStream inputStream) throws IOException {
+                        receiveClusterState(inputStream);
+                    }
+                }
+        );
+        this.clusterManager.addListener(
+                UserSessionTouchMessage.class,
+                new ClusterListenerAdapter<UserSessionTouchMessage>() {
+                    @Override
+                    public void receive(UserSessionTouchMessage message) {
+                        receiveTouchMessage(message);
+                    }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionRequestMessage.class,
+                new ClusterListenerAdapter<UserSessionRequestMessage>() {
+                    @Override
+                    public void receive(UserSessionRequestMessage message) {
+                        receiveRequestMessage(message);
+                    }
+                }
+        );
+    }
+
+    protected void receiveTouchMessage(UserSessionTouchMessage message) {
+        List<UUID> unknownSessionIds = null;
+        for (int i = 0; i < message.size(); i++) {
+            UUID id = message.getSessionId(i);
+            long lastUsedTs = message.getLastUsedTs(i);
+            if (lastUsedTs == 0) {
+                UserSessionInfo usi = removeSessionInfo(id);
+                if (usi != null) {
+                    log.debug("Removing session due to cluster message: {}", usi);
+                }
+            } else {
+                UserSessionInfo usi = getSessionInfo(id);
+                if (usi == null) {
+                    log.trace("Received touch for unknown session {}", id);
+                    if (unknownSessionIds == null) {
+                        unknownSessionIds = new ArrayList<>();
+                    }
+                    unknownSessionIds.add(id);
+                } else if (usi.lastUsedTs < lastUsedTs) {
+                    usi.lastUsedTs = lastUsedTs;
+                    putSessionInfo(id, usi);
+                }
+            }
+        }
+        if (unknownSessionIds != null) {
+            log.debug("Requesting {} unknown sessions from cluster", unknownSessionIds.size());
+            clusterManager.send(new UserSessionRequestMessage(unknownSessionIds));
+        }
+    }
+
+    /**
+     * Sends full info of the requested sessions known to this node, so a node which has missed the session
+     * creation or joined the cluster later learns about them.
+     */
+    protected void receiveRequestMessage(UserSessionRequestMessage message) {
+        for (int i = 0; i < message.size(); i++) {
+            UserSessionInfo usi = getSessionInfo(message.getSessionId(i));
+            if (usi != null && !usi.session.isSystem()) {
+                log.trace("Sending requested session to cluster: {}", usi);
+                clusterManager.send(usi);
+            }
+        }
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -173,39 +330,61 @@ public class UserSessions implements UserSessionsAPI {
             log.debug("Received empty user sessions cache");
             return;
         }
-
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
         try {
-            ObjectInputStream ois = new ObjectInputStream(bis);
-            int size = ois.readInt();
-            for (int i = 0; i < size; i++) {
-                UserSessionInfo usi = (UserSessionInfo) ois.readObject();
-                receiveClusterMessage(usi);
-            }
-            log.debug("Received user sessions cache: {} sessions, {} bytes. Cache now contains {} sessions", size, state.length, cache.size());
-        } catch (IOException | ClassNotFoundException e) {
+            receiveClusterState(new ByteArrayInputStream(state));
+        } catch (IOException e) {
             log.error("Error receiving state", e);
         }
     }
 
-    protected byte[] sendClusterState() {
-        List<UserSessionInfo> infoList = getSessionInfoStream().collect(Collectors.toList());
-        if (infoList.isEmpty())
-            return new byte[0];
+    /**
+     * Reads sessions written by {@link #sendClusterState(OutputStream)} one by one, without materializing
+     * the whole state.
+     */
+    protected void receiveClusterState(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        int count = 0;
+        long bytesCount = 0;
+        int length;
+        while ((length = in.readInt()) > 0) {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            receiveClusterMessage((UserSessionInfo) clusterMessageCodec.decode(bytes));
+            count++;
+            bytesCount += length;
+        }
+        log.debug("Received user sessions cache: {} sessions, {} bytes. Cache now contains {} sessions",
+                count, bytesCount, cache.size());
+    }
 
+    protected byte[] sendClusterState() {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeInt(infoList.size());
-            for (UserSessionInfo usi : infoList) {
-                oos.writeObject(usi);
-            }
+            sendClusterState(bos);
         } catch (IOException e) {
             throw new RuntimeException("Error sending state", e);
         }
-        byte[] bytes = bos.toByteArray();
-        log.debug("Sending user sessions cache to cluster: {} sessions, {} bytes", infoList.size(), bytes.length);
-        return bytes;
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes sessions as a sequence of length-prefixed encoded {@link UserSessionInfo} terminated by zero length.
+     */
+    protected void sendClusterState(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        int count = 0;
+        long bytesCount = 0;
+        Iterator<UserSessionInfo> iterator = getSessionInfoStream().iterator();
+        while (iterator.hasNext()) {
+            byte[] bytes = clusterMessageCodec.encode(iterator.next());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            count++;
+            bytesCount += bytes.length;
+        }
+        out.writeInt(0);
+        out.flush();
+        log.debug("Sending user sessions cache to cluster: {} sessions, {} bytes", count, bytesCount);
     }
 
     @Override
@@ -227,7 +406,7 @@ public class UserSessions implements UserSessionsAPI {
             log.debug("Removed session: {}", usi);
             if (!session.isSystem()) {
                 usi.lastUsedTs = 0;
-                clusterManager.send(usi);
+                sendRemoval(usi);
             }
         }
     }
@@ -292,7 +471,7 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        pendingTouches.add(id);
                     }
                 }
             }
@@ -309,6 +488,7 @@ public class UserSessions implements UserSessionsAPI {
             usi.lastUsedTs = now;
             usi.lastSentTs = now;
             putSessionInfo(id, usi);
+            pendingTouches.remove(id);
             clusterManager.send(usi);
         }
     }
@@ -372,7 +552,7 @@ public class UserSessions implements UserSessionsAPI {
             log.debug("Killed session: {}", usi);
 
             usi.lastUsedTs = 0;
-            clusterManager.send(usi);
+            sendRemoval(usi);
         }
     }
 
@@ -407,10 +587,36 @@ public class UserSessions implements UserSessionsAPI {
                     removeSessionInfo(usi.session.getId());
 
                     usi.lastUsedTs = 0;
-                    clusterManager.send(usi);
+                    sendRemoval(usi);
                 });
     }
 
+    @Override
+    public void sendTouches() {
+        if (!AppContext.isStarted() || pendingTouches.isEmpty())
+            return;
+
+        Map<UUID, Long> lastUsedTimestamps = new HashMap<>();
+        for (Iterator<UUID> it = pendingTouches.iterator(); it.hasNext(); ) {
+            UUID id = it.next();
+            it.remove();
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null) {
+                lastUsedTimestamps.put(id, usi.lastUsedTs);
+            }
+        }
+        if (!lastUsedTimestamps.isEmpty()) {
+            log.trace("Sending {} session touches to cluster", lastUsedTimestamps.size());
+            clusterManager.send(new UserSessionTouchMessage(lastUsedTimestamps));
+        }
+    }
+
+    protected void sendRemoval(UserSessionInfo usi) {
+        UUID id = usi.session.getId();
+        pendingTouches.remove(id);
+        clusterManager.send(new UserSessionTouchMessage(Collections.singletonMap(id, 0L)));
+    }
+
     protected UserSessionInfo getSessionInfo(UUID id) {
         return cache.get(id);
     }
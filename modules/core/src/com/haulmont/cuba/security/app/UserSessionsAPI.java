@@ -74,7 +74,8 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * to the cluster.
      *
      * @param id        session id
-     * @param propagate whether to propagate the new "last used" timestamp to the cluster
+     * @param propagate whether to propagate the new "last used" timestamp to the cluster. Other changes of the
+     *                  session are not propagated, see {@link #propagate(UUID)}
      * @return user session instance or null if not found
      */
     @Nullable
@@ -85,7 +86,8 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * to the cluster.
      *
      * @param id        session id
-     * @param propagate whether to propagate the new "last used" timestamp to the cluster
+     * @param propagate whether to propagate the new "last used" timestamp to the cluster. Other changes of the
+     *                  session are not propagated, see {@link #propagate(UUID)}
      * @return user session instance
      * @throws NoUserSessionException  if not found
      */
@@ -118,7 +120,11 @@ public interface UserSessionsAPI extends UserSessionFinder {
     /**
      * INTERNAL.
      *
-     * Propagates the user session state to the cluster
+     * Propagates the user session state to the cluster.
+     * <p>
+     * Touching a session propagates only its "last used" timestamp, so this method must be invoked after
+     * changing session attributes, locale or permissions to make the changes visible on other cluster nodes.
+     *
      * @param id    session id. If session with this id is not found, does nothing.
      */
     void propagate(UUID id);
@@ -184,4 +190,13 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
+
+    /**
+     * INTERNAL.
+     *
+     * Send last used timestamps of the sessions touched since the previous invocation to the cluster
+     * in a single message.
+     */
+    default void sendTouches() {
+    }
 }
\ No newline at end of file
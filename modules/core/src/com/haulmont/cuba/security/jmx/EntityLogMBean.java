@@ -36,4 +36,9 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * @return statistics of written log items and the background writer queue
+     */
+    String printStatistics();
 }
@@ -157,6 +157,8 @@ public class UserSessionManager {
                         convertToExtendedEntityTarget(permission), permission.getValue());
             }
         });
+
+        session.compileEntityPermissions();
     }
 
     protected String convertToExtendedEntityTarget(Permission permission) {
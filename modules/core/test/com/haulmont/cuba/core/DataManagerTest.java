@@ -30,6 +30,7 @@ import org.junit.Test;
 
 import javax.persistence.TemporalType;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -287,6 +288,39 @@ public class DataManagerTest {
         assertNotNull(saved);
     }
 
+    @Test
+    public void testLoadStream() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            Server server = new Server();
+            server.setName("server-" + i);
+            dataManager.commit(server);
+        }
+
+        List<Server> list = dataManager.load(Server.class).query("select s from sys$Server s order by s.id").list();
+        assertEquals(7, list.size());
+
+        List<Server> streamed = dataManager.load(Server.class).stream(3).collect(Collectors.toList());
+        assertEquals(list, streamed);
+
+        streamed = dataManager.load(Server.class).query("select s from sys$Server s").stream(2)
+                .collect(Collectors.toList());
+        assertEquals(list, streamed);
+
+        streamed = dataManager.load(Server.class).query("select s from sys$Server s")
+                .firstResult(1).maxResults(4).stream(3)
+                .collect(Collectors.toList());
+        assertEquals(list.subList(1, 5), streamed);
+
+        List<Server> sorted = dataManager.load(Server.class).query("select s from sys$Server s order by s.name desc").list();
+        streamed = dataManager.load(Server.class).query("select s from sys$Server s order by s.name desc").stream(2)
+                .collect(Collectors.toList());
+        assertEquals(sorted, streamed);
+        assertEquals("server-6", streamed.get(0).getName());
+
+        assertEquals(0, dataManager.load(Server.class).query("select s from sys$Server s where s.name = 'none'")
+                .stream().count());
+    }
+
     public static class MyLoadContext<E extends Entity> extends LoadContext<E> {
 
         private String info;
@@ -18,6 +18,7 @@ package com.haulmont.cuba.core;
 
 import com.google.common.collect.Lists;
 import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.PropertyType;
 import com.haulmont.cuba.core.entity.Category;
@@ -248,6 +249,28 @@ public class DynamicAttributesTest {
         assertEquals(group, user2.getValue("+userGroupAttribute"));
     }
 
+    @Test
+    public void testLoadAttributesUsingQueryResults() {
+        ServerConfig serverConfig = AppBeans.get(Configuration.class).getConfig(ServerConfig.class);
+        serverConfig.setDynamicAttributesQueryResultsThreshold(1);
+        try {
+            LoadContext<User> ctx = LoadContext.create(User.class).setLoadDynamicAttributes(true);
+            ctx.setQueryString("select u from sec$User u where u.login like 'user%' order by u.login");
+            List<User> users = dataManager.loadList(ctx);
+            assertEquals(2, users.size());
+            User user = users.get(0);
+            User user2 = users.get(1);
+            assertEquals("userName", user.getValue("+userAttribute"));
+            assertEquals(group, user.getValue("+userGroupAttribute"));
+            List<Group> groupsCollection = user.getValue("+userGroupCollectionAttribute");
+            assertEquals(2, groupsCollection.size());
+            assertEquals("userName", user2.getValue("+userAttribute"));
+            assertEquals(group, user2.getValue("+userGroupAttribute"));
+        } finally {
+            serverConfig.setDynamicAttributesQueryResultsThreshold(0);
+        }
+    }
+
     @Test
     public void testCollectionOfEntitiesAttribute() {
         LoadContext<User> loadContext = LoadContext.create(User.class).setId(user.getId()).setLoadDynamicAttributes(true);
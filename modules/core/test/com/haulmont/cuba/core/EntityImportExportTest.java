@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.importexport.EntityImportExportAPI;
+import com.haulmont.cuba.core.app.importexport.EntityImportView;
+import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityImportExportTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    protected DataManager dataManager;
+    protected EntityImportExportAPI entityImportExport;
+
+    @Before
+    public void setUp() throws Exception {
+        dataManager = AppBeans.get(DataManager.class);
+        entityImportExport = AppBeans.get(EntityImportExportAPI.class);
+
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_SERVER");
+    }
+
+    @Test
+    public void testImportInChunks() throws Exception {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Server server = new Server();
+            server.setName("server-" + i);
+            servers.add(server);
+        }
+        dataManager.commit(servers.get(0));
+        dataManager.commit(servers.get(1));
+        servers.get(0).setName("server-0-updated");
+
+        EntityImportView importView = new EntityImportView(Server.class).addLocalProperties();
+        String json = entityImportExport.exportEntitiesToJSON(servers);
+
+        List<Integer> progress = new ArrayList<>();
+        int count = entityImportExport.importEntitiesFromJson(new StringReader(json), importView, 2, progress::add);
+
+        assertEquals(5, count);
+        assertEquals(Arrays.asList(2, 4, 5), progress);
+
+        List<Server> loaded = dataManager.load(Server.class).query("select s from sys$Server s order by s.name").list();
+        assertEquals(5, loaded.size());
+        assertEquals("server-0-updated", loaded.get(0).getName());
+    }
+
+    @Test
+    public void testImportFromZipStream() throws Exception {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Server server = new Server();
+            server.setName("server-" + i);
+            servers.add(server);
+        }
+
+        EntityImportView importView = new EntityImportView(Server.class).addLocalProperties();
+        byte[] zipBytes = entityImportExport.exportEntitiesToZIP(servers);
+
+        int count = entityImportExport.importEntitiesFromZIP(new ByteArrayInputStream(zipBytes), importView, 2, null);
+        assertEquals(3, count);
+        assertEquals(3, dataManager.getCount(LoadContext.create(Server.class)
+                .setQuery(LoadContext.createQuery("select s from sys$Server s"))));
+
+        Collection<?> reimported = entityImportExport.importEntitiesFromZIP(zipBytes, importView);
+        assertEquals(3, reimported.size());
+        assertTrue(reimported.containsAll(servers));
+    }
+}
@@ -18,8 +18,10 @@ package com.haulmont.cuba.core
 
 import com.haulmont.bali.db.QueryRunner
 import com.haulmont.cuba.core.app.EntitySnapshotAPI
+import com.haulmont.cuba.core.app.ServerConfig
 import com.haulmont.cuba.core.entity.EntitySnapshot
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.Configuration
 import com.haulmont.cuba.core.global.View
 import com.haulmont.cuba.security.entity.Group
 import com.haulmont.cuba.security.entity.Role
@@ -138,6 +140,27 @@ class EntitySnapshotApiTest extends Specification {
             snapshot3.getAuthor() == user
     }
 
+    def "Create compressed snapshot"() {
+        View viewRole = cont.metadata().getViewRepository().getView(Role.class, View.LOCAL)
+        def serverConfig = AppBeans.get(Configuration.class).getConfig(ServerConfig.class)
+        role.setDescription('description ' * 20)
+
+        when:
+            serverConfig.setEntitySnapshotCompression(true)
+            def snapshot = snapshotApi.createSnapshot(role, viewRole)
+        then:
+            snapshot.getSnapshotXml().startsWith('gz:')
+
+            def lastSnapshot = snapshotApi.getLastEntitySnapshot(role)
+            Role extracted = (Role) snapshotApi.extractEntity(lastSnapshot)
+            extracted == role
+            extracted.getName() == 'testRole'
+            extracted.getDescription() == role.getDescription()
+
+        cleanup:
+            serverConfig.setEntitySnapshotCompression(false)
+    }
+
     private List<EntitySnapshot> getSnapshotsList() {
         def tx = cont.persistence().createTransaction()
         try {
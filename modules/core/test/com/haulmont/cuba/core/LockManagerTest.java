@@ -28,8 +28,13 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
 
 public class LockManagerTest {
 
@@ -73,5 +78,56 @@ public class LockManagerTest {
         lockInfo = lockManager.getLockInfo("sys$Server", entity.getId().toString());
         assertNull(lockInfo);
     }
-}
 
+    @Test
+    public void testBulkLock() throws Exception {
+        Server entity1 = new Server();
+        Server entity2 = new Server();
+        Server entity3 = new Server();
+
+        List<LockInfo> conflicts = lockManager.lock(Arrays.asList(entity1, entity2));
+        assertTrue(conflicts.isEmpty());
+        assertNotNull(lockManager.getLockInfo("sys$Server", entity1.getId().toString()));
+        assertNotNull(lockManager.getLockInfo("sys$Server", entity2.getId().toString()));
+
+        // nothing is locked if one of the entities is already locked
+        conflicts = lockManager.lock(Arrays.asList(entity3, entity2));
+        assertEquals(1, conflicts.size());
+        assertEquals(entity2.getId().toString(), conflicts.get(0).getEntityId());
+        assertNull(lockManager.getLockInfo("sys$Server", entity3.getId().toString()));
+
+        lockManager.unlock(Arrays.asList(entity1, entity2));
+        assertNull(lockManager.getLockInfo("sys$Server", entity1.getId().toString()));
+        assertNull(lockManager.getLockInfo("sys$Server", entity2.getId().toString()));
+    }
+
+    @Test
+    public void testConcurrentLock() throws Exception {
+        Server entity = new Server();
+
+        int threadsCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger lockedCount = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadsCount; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (lockManager.lock(entity) == null) {
+                        lockedCount.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            lockManager.unlock(entity);
+        }
+        assertEquals(1, lockedCount.get());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetaPropertyAccessTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private Metadata metadata;
+
+    @Before
+    public void setUp() throws Exception {
+        metadata = cont.metadata();
+    }
+
+    @Test
+    public void testGetAndSetValue() {
+        MetaClass metaClass = metadata.getClassNN(User.class);
+        MetaProperty loginProperty = metaClass.getPropertyNN("login");
+        MetaProperty groupProperty = metaClass.getPropertyNN("group");
+        MetaProperty createTsProperty = metaClass.getPropertyNN("createTs");
+
+        User user = metadata.create(User.class);
+        Group group = metadata.create(Group.class);
+        Date createTs = new Date();
+
+        user.setValue(loginProperty, "user1");
+        user.setValue(groupProperty, group);
+        user.setValue(createTsProperty, createTs);
+
+        assertEquals("user1", user.getLogin());
+        assertSame(group, user.getGroup());
+        assertEquals(createTs, user.getCreateTs());
+
+        assertEquals("user1", user.getValue(loginProperty));
+        assertSame(group, user.getValue(groupProperty));
+        assertEquals(createTs, user.getValue(createTsProperty));
+
+        user.setValue(loginProperty, null);
+        assertNull(user.getLogin());
+        assertNull(user.getValue(loginProperty));
+    }
+
+    @Test
+    public void testPropertyOfOtherClass() {
+        MetaProperty groupNameProperty = metadata.getClassNN(Group.class).getPropertyNN("name");
+
+        User user = metadata.create(User.class);
+        user.setValue(groupNameProperty, "user1");
+
+        assertEquals("user1", user.getName());
+        assertEquals("user1", user.getValue(groupNameProperty));
+    }
+
+    @Test
+    public void testPropertyChangeNotification() {
+        MetaProperty loginProperty = metadata.getClassNN(User.class).getPropertyNN("login");
+
+        User user = metadata.create(User.class);
+        List<String> changed = new ArrayList<>();
+        user.addPropertyChangeListener(e -> changed.add(e.getProperty()));
+
+        user.setValue(loginProperty, "user1");
+        user.setValue(loginProperty, "user1");
+
+        assertEquals(1, changed.size());
+        assertEquals("login", changed.get(0));
+    }
+}
@@ -18,13 +18,14 @@ package com.haulmont.cuba.core;
 
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.core.global.MetadataTools;
 import com.haulmont.cuba.security.entity.Role;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.ClassRule;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 @SuppressWarnings("IncorrectCreateEntity")
 public class NamePatternTest {
@@ -64,4 +65,32 @@ public class NamePatternTest {
         assertEquals("System Administrator [systemAdmin]", instanceName);
         assertEquals("System Administrator [systemAdmin]", InstanceUtils.getInstanceName(user));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void formatterIsCached() {
+        MetadataTools metadataTools = cont.metadata().getTools();
+        MetadataTools.InstanceNameFormatter formatter =
+                metadataTools.getInstanceNameFormatter(cont.metadata().getClassNN(Role.class));
+
+        assertSame(formatter, metadataTools.getInstanceNameFormatter(cont.metadata().getClassNN(Role.class)));
+        assertEquals("%s [%s]", formatter.getNamePatternRec().format);
+
+        Role role = new Role();
+        role.setName("system_role");
+        assertEquals(" [system_role]", formatter.format(role));
+    }
+
+    @Test
+    public void methodNamePattern() {
+        MetadataTools metadataTools = cont.metadata().getTools();
+        MetadataTools.InstanceNameFormatter formatter =
+                metadataTools.getInstanceNameFormatter(cont.metadata().getClassNN(User.class));
+
+        assertEquals("getCaption", formatter.getNamePatternRec().methodName);
+
+        User user = new User();
+        user.setName("System Administrator");
+        user.setLogin("systemAdmin");
+        assertEquals(user.getCaption(), formatter.format(user));
+    }
+}
@@ -18,13 +18,18 @@
 package com.haulmont.cuba.core;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.app.Sequence;
+import com.haulmont.cuba.core.app.Sequences;
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
@@ -50,6 +55,46 @@ public class UniqueNumbersTest {
         assertTrue(n >= 0);
     }
 
+    @Test
+    public void testCachedNumbers() {
+        UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
+        AppContext.setProperty("cuba.uniqueNumbersCacheSize_cached1", "10");
+        try {
+            long first = uniqueNumbersAPI.getNextNumber("cached1");
+            for (int i = 1; i < 15; i++) {
+                assertEquals(first + i, uniqueNumbersAPI.getNextNumber("cached1"));
+            }
+            assertEquals(first + 10, uniqueNumbersAPI.getCurrentNumber("cached1"));
+        } finally {
+            uniqueNumbersAPI.deleteSequence("cached1");
+            AppContext.setProperty("cuba.uniqueNumbersCacheSize_cached1", null);
+        }
+    }
+
+    @Test
+    public void testCacheEnabledOnExistingSequence() {
+        UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
+        Sequences sequences = AppBeans.get(Sequences.NAME);
+        // the same database sequence used without cache, e.g. by another middleware block
+        Sequence uncached = Sequence.withName("seq_un_cached2");
+        try {
+            // the sequence is created with increment 1
+            Set<Long> numbers = new HashSet<>();
+            numbers.add(uniqueNumbersAPI.getNextNumber("cached2"));
+
+            AppContext.setProperty("cuba.uniqueNumbersCacheSize_cached2", "10");
+            for (int i = 0; i < 25; i++) {
+                long cached = uniqueNumbersAPI.getNextNumber("cached2");
+                assertTrue("duplicate number " + cached, numbers.add(cached));
+                long notCached = sequences.createNextValue(uncached);
+                assertTrue("duplicate number " + notCached, numbers.add(notCached));
+            }
+        } finally {
+            uniqueNumbersAPI.deleteSequence("cached2");
+            AppContext.setProperty("cuba.uniqueNumbersCacheSize_cached2", null);
+        }
+    }
+
     @Test
     public void testSequenceDeletion() throws Exception {
         UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClusterManagerBatchingTest {
+
+    private TestClusterManager clusterManager;
+
+    @Before
+    public void setUp() {
+        clusterManager = new TestClusterManager();
+        clusterManager.clusterConfig = new MockUp<ClusterConfig>() {
+            @Mock
+            int getClusterMessageSendingQueueCapacity() {
+                return 1000;
+            }
+
+            @Mock
+            int getClusterMessageBatchWindowMs() {
+                return 200;
+            }
+
+            @Mock
+            int getClusterMessageBatchMaxSize() {
+                return 3;
+            }
+        }.getMockInstance();
+        clusterManager.init();
+    }
+
+    @After
+    public void tearDown() {
+        clusterManager.stopBatchSender();
+    }
+
+    @Test
+    public void testSenderNotStartedWhenClusterDisabled() {
+        clusterManager.started = false;
+        clusterManager.send("message");
+
+        assertNull(clusterManager.batchSenderThread);
+        assertEquals(0, clusterManager.getMessagesCount());
+    }
+
+    @Test
+    public void testBatchesKeepOrder() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            clusterManager.send("message-" + i);
+        }
+        clusterManager.startBatchSender();
+
+        List<Serializable> received = new ArrayList<>();
+        while (received.size() < 7) {
+            List<Serializable> batch = clusterManager.sentBatches.poll(5, TimeUnit.SECONDS);
+            assertNotNull("batch is not sent", batch);
+            assertTrue(batch.size() <= 3);
+            received.addAll(batch);
+        }
+        assertEquals(Arrays.asList("message-0", "message-1", "message-2", "message-3",
+                "message-4", "message-5", "message-6"), received);
+    }
+
+    @Test
+    public void testCoalescingKeepsOrder() throws Exception {
+        List<Serializable> batch = clusterManager.coalesce(Arrays.asList(
+                new TestMessage("a", 1), "b", new TestMessage("c", 2), new TestMessage("a", 3)));
+
+        assertEquals(Arrays.asList("b", new TestMessage("c", 2), new TestMessage("a", 3)), batch);
+    }
+
+    private static class TestClusterManager extends ClusterManager {
+
+        private BlockingQueue<List<Serializable>> sentBatches = new LinkedBlockingQueue<>();
+
+        private volatile boolean started = true;
+
+        @Override
+        public boolean isStarted() {
+            return started;
+        }
+
+        @Override
+        protected void internalSend(List<Serializable> messages) {
+            sentBatches.add(new ArrayList<>(messages));
+        }
+    }
+
+    private static class TestMessage implements CoalescingClusterMessage {
+
+        private final String key;
+        private final int value;
+
+        private TestMessage(String key, int value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Object getCoalescingKey() {
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestMessage && key.equals(((TestMessage) o).key) && value == ((TestMessage) o).value;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() * 31 + value;
+        }
+
+        @Override
+        public String toString() {
+            return key + value;
+        }
+    }
+}
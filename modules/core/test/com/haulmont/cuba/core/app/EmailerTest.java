@@ -18,12 +18,16 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.collect.Lists;
+import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.CubaMailSender;
 import com.haulmont.cuba.testsupport.TestContainer;
 import com.haulmont.cuba.testsupport.TestMailSender;
+import mockit.Invocation;
+import mockit.Mock;
+import mockit.MockUp;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.junit.Before;
@@ -417,6 +421,74 @@ public class EmailerTest {
         assertTrue(recipientSet.contains("tanya@example.com"));
     }
 
+    @Test
+    public void testBatchSending() throws Exception {
+        emailerConfig.setSendingBatchSize(2);
+        testMailSender.clearBuffer();
+        try {
+            EmailInfo myInfo = new EmailInfo("misha@example.com,kolya@example.com;tanya@example.com", "Test", "Test Email Body");
+            List<SendingMessage> messages = emailer.sendEmailAsync(myInfo, 2, getDeadlineWhichDoesntMatter());
+            assertEquals(3, messages.size());
+
+            testMailSender.failPlease();
+            try {
+                emailer.processQueuedEmails();
+            } finally {
+                testMailSender.workNormallyPlease();
+            }
+            assertTrue(testMailSender.isEmpty());
+            for (SendingMessage message : messages) {
+                SendingMessage sendingMsg = reload(message);
+                assertEquals(SendingStatus.QUEUE, sendingMsg.getStatus());
+                assertEquals(1, sendingMsg.getAttemptsMade().intValue());
+            }
+
+            emailer.processQueuedEmails();
+            assertEquals(3, testMailSender.getBufferSize());
+            for (SendingMessage message : messages) {
+                SendingMessage sendingMsg = reload(message);
+                assertEquals(SendingStatus.SENT, sendingMsg.getStatus());
+                assertEquals(2, sendingMsg.getAttemptsMade().intValue());
+                assertNotNull(sendingMsg.getDateSent());
+            }
+        } finally {
+            emailerConfig.setSendingBatchSize(1);
+        }
+    }
+
+    @Test
+    public void testBatchStatusUpdateFailure() throws Exception {
+        emailerConfig.setSendingBatchSize(3);
+        testMailSender.clearBuffer();
+        MockUp<Emailer> mockUp = new MockUp<Emailer>() {
+            @Mock
+            void updateSendingStatus(Invocation invocation, EntityManager em, SendingMessage sendingMessage,
+                                     Exception failure, Date dateSent) {
+                if ("kolya@example.com".equals(sendingMessage.getAddress())) {
+                    throw new RuntimeException("Test failure of status update");
+                }
+                invocation.proceed();
+            }
+        };
+        try {
+            EmailInfo myInfo = new EmailInfo("misha@example.com,kolya@example.com;tanya@example.com", "Test", "Test Email Body");
+            List<SendingMessage> messages = emailer.sendEmailAsync(myInfo, 2, getDeadlineWhichDoesntMatter());
+
+            emailer.processQueuedEmails();
+
+            // statuses are updated one by one after the batch update has failed
+            assertEquals(3, testMailSender.getBufferSize());
+            for (SendingMessage message : messages) {
+                SendingMessage sendingMsg = reload(message);
+                assertEquals(SendingStatus.SENT, sendingMsg.getStatus());
+                assertEquals(1, sendingMsg.getAttemptsMade().intValue());
+            }
+        } finally {
+            mockUp.tearDown();
+            emailerConfig.setSendingBatchSize(1);
+        }
+    }
+
     @Test
     public void testSendAllToAdmin() throws Exception {
         emailerConfig.setSendAllToAdmin(true);
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.collect.Sets;
+import com.haulmont.cuba.core.app.execution.ExecutionsImpl;
+import com.haulmont.cuba.core.app.scheduling.SchedulingServiceBean;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.LockInfo;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.sys.entitycache.EntityCacheConnection;
+import com.haulmont.cuba.security.app.UserSessions;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class KryoClusterMessageCodecTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private ClusterMessageCodec codec;
+    private User user;
+
+    @Before
+    public void setUp() {
+        codec = AppBeans.get(ClusterMessageCodec.NAME);
+
+        user = AppBeans.get(Metadata.class).create(User.class);
+        user.setLogin("codec-test");
+        user.setName("Codec Test");
+    }
+
+    @Test
+    public void testUserSessionInfo() {
+        UserSession session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false);
+        session.setAttribute("attr", "value");
+        UserSessions.UserSessionInfo info = new UserSessions.UserSessionInfo(session, 1000L);
+        info.lastUsedTs = 2000L;
+
+        UserSessions.UserSessionInfo decoded = roundTrip(info);
+
+        assertEquals(session.getId(), decoded.getSession().getId());
+        assertEquals("codec-test", decoded.getSession().getUser().getLogin());
+        assertEquals(Locale.ENGLISH, decoded.getSession().getLocale());
+        assertEquals("value", decoded.getSession().getAttribute("attr"));
+        assertEquals(1000L, decoded.getSince());
+        assertEquals(2000L, decoded.getLastUsedTs());
+    }
+
+    @Test
+    public void testUserSessionTouchMessage() {
+        Map<UUID, Long> timestamps = new LinkedHashMap<>();
+        timestamps.put(UUID.randomUUID(), 10L);
+        timestamps.put(UUID.randomUUID(), 0L);
+
+        UserSessions.UserSessionTouchMessage decoded = roundTrip(new UserSessions.UserSessionTouchMessage(timestamps));
+
+        assertEquals(2, decoded.size());
+        int i = 0;
+        for (Map.Entry<UUID, Long> entry : timestamps.entrySet()) {
+            assertEquals(entry.getKey(), decoded.getSessionId(i));
+            assertEquals((long) entry.getValue(), decoded.getLastUsedTs(i));
+            i++;
+        }
+    }
+
+    @Test
+    public void testUserSessionRequestMessage() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+
+        UserSessions.UserSessionRequestMessage decoded = roundTrip(new UserSessions.UserSessionRequestMessage(ids));
+
+        assertEquals(2, decoded.size());
+        assertEquals(ids.get(0), decoded.getSessionId(0));
+        assertEquals(ids.get(1), decoded.getSessionId(1));
+    }
+
+    @Test
+    public void testLockInfo() {
+        LockInfo lockInfo = new LockInfo(user, "sec$User", "1");
+
+        LockInfo decoded = roundTrip(lockInfo);
+
+        assertEquals("sec$User", decoded.getEntityName());
+        assertEquals("1", decoded.getEntityId());
+        assertEquals(lockInfo.getSince(), decoded.getSince());
+        assertEquals("codec-test", decoded.getUser().getLogin());
+    }
+
+    @Test
+    public void testLockInfoBatch() throws Exception {
+        Object batch = newInstance(LockManager.class.getName() + "$LockInfoBatch", List.class,
+                Arrays.asList(new LockInfo(user, "sec$User", "1"), new LockInfo(null, "sec$Role", "2")));
+
+        Object decoded = roundTrip(batch);
+
+        Field locksField = batch.getClass().getDeclaredField("locks");
+        locksField.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        List<LockInfo> locks = (List<LockInfo>) locksField.get(decoded);
+        assertEquals(2, locks.size());
+        assertEquals("codec-test", locks.get(0).getUser().getLogin());
+        assertEquals("sec$Role", locks.get(1).getEntityName());
+        assertNull(locks.get(1).getUser());
+    }
+
+    @Test
+    public void testSimpleMessages() throws Exception {
+        assertFieldsEqual(new SchedulingServiceBean.SetSchedulingActiveMsg(true));
+        assertFieldsEqual(newInstance(ExecutionsImpl.class.getName() + "$CancelExecutionMessage",
+                new Class[]{UUID.class, String.class, String.class},
+                UUID.randomUUID(), "group", "key"));
+        assertFieldsEqual(newInstance(ConfigStorage.class.getName() + "$InvalidateCacheMsg", new Class[0]));
+        assertFieldsEqual(newInstance(
+                "com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManager$ReloadCacheMsg", new Class[0]));
+        assertFieldsEqual(newInstance("com.haulmont.cuba.core.sys.entitycache.QueryCacheManager$InvalidateQueryCacheMsg",
+                Set.class, Sets.newHashSet("sec$User", "sec$Role")));
+        assertFieldsEqual(newInstance("com.haulmont.cuba.core.sys.entitycache.QueryCacheManager$InvalidateQueryCacheMsg",
+                boolean.class, true));
+    }
+
+    @Test
+    public void testEntityCacheMessage() {
+        EntityCacheConnection.Message decoded = roundTrip(new EntityCacheConnection.Message(new ArrayList<>(Arrays.asList("a", "b"))));
+
+        assertEquals(Arrays.asList("a", "b"), decoded.getObject());
+    }
+
+    @Test
+    public void testMessageBatch() {
+        byte[] first = codec.encode(new SchedulingServiceBean.SetSchedulingActiveMsg(true));
+        byte[] second = codec.encode(new LockInfo(null, "sec$User", "1"));
+
+        ClusterManager.ClusterMessageBatch decoded = roundTrip(new ClusterManager.ClusterMessageBatch(new byte[][]{first, second}));
+
+        assertEquals(2, decoded.messages.length);
+        assertTrue(((SchedulingServiceBean.SetSchedulingActiveMsg) codec.decode(decoded.messages[0])).active);
+        assertEquals("sec$User", ((LockInfo) codec.decode(decoded.messages[1])).getEntityName());
+    }
+
+    @Test
+    public void testStreamingState() throws Exception {
+        byte[] largeState = new byte[100_000];
+        new Random(1).nextBytes(largeState);
+        byte[] smallState = "small".getBytes("UTF-8");
+
+        ClusterManager sender = createClusterManager();
+        sender.addListener(String.class, new TestStateListener(largeState));
+        sender.addListener(Integer.class, new TestStateListener(smallState));
+        sender.addListener(Long.class, new TestStateListener(new byte[0]));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sender.new ClusterReceiver().getState(out);
+
+        // the receiver doesn't know Integer state, it must be skipped
+        ClusterManager receiver = createClusterManager();
+        TestStateListener largeReceived = new TestStateListener(null);
+        TestStateListener emptyReceived = new TestStateListener(null);
+        receiver.addListener(String.class, largeReceived);
+        receiver.addListener(Long.class, emptyReceived);
+
+        receiver.new ClusterReceiver().setState(new ByteArrayInputStream(out.toByteArray()));
+
+        assertArrayEquals(largeState, largeReceived.received);
+        assertNull(emptyReceived.received);
+    }
+
+    @Test
+    public void testStateChunkStreams() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ClusterManager.StateChunkOutputStream first = new ClusterManager.StateChunkOutputStream(out);
+        for (int i = 0; i < 20_000; i++) {
+            first.write(i);
+        }
+        first.finish();
+        ClusterManager.StateChunkOutputStream second = new ClusterManager.StateChunkOutputStream(out);
+        second.write(new byte[]{1, 2, 3});
+        second.finish();
+        assertEquals(20_000, first.getSize());
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        ClusterManager.StateChunkInputStream firstIn = new ClusterManager.StateChunkInputStream(in);
+        assertEquals(0, firstIn.read());
+        assertEquals(1, firstIn.read());
+        firstIn.skipToEnd();
+        assertEquals(-1, firstIn.read());
+
+        ClusterManager.StateChunkInputStream secondIn = new ClusterManager.StateChunkInputStream(in);
+        assertArrayEquals(new byte[]{1, 2, 3}, IOUtils.toByteArray(secondIn));
+    }
+
+    private ClusterManager createClusterManager() {
+        ClusterManager clusterManager = new ClusterManager();
+        clusterManager.messageCodec = codec;
+        return clusterManager;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T roundTrip(T message) {
+        byte[] bytes = codec.encode(message);
+        Object decoded = codec.decode(bytes);
+        assertNotNull(decoded);
+        assertSame(message.getClass(), decoded.getClass());
+        return (T) decoded;
+    }
+
+    private void assertFieldsEqual(Object message) {
+        Object decoded = roundTrip(message);
+        assertTrue(message.getClass().getName(), EqualsBuilder.reflectionEquals(message, decoded));
+    }
+
+    private Object newInstance(String className, Class parameterType, Object argument) throws Exception {
+        return newInstance(className, new Class[]{parameterType}, argument);
+    }
+
+    private Object newInstance(String className, Class[] parameterTypes, Object... arguments) throws Exception {
+        Constructor<?> constructor = Class.forName(className).getDeclaredConstructor(parameterTypes);
+        constructor.setAccessible(true);
+        return constructor.newInstance(arguments);
+    }
+
+    private static class TestStateListener extends ClusterListenerAdapter<Serializable> {
+
+        private final byte[] state;
+        private byte[] received;
+
+        private TestStateListener(byte[] state) {
+            this.state = state;
+        }
+
+        @Override
+        public byte[] getState() {
+            return state;
+        }
+
+        @Override
+        public void setState(byte[] state) {
+            received = state;
+        }
+    }
+}
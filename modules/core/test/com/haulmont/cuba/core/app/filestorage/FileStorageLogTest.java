@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.filestorage;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileStorageLogTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppend() throws Exception {
+        File root1 = folder.newFolder("root1");
+        File root2 = folder.newFolder("root2");
+
+        FileStorageLog storageLog = new FileStorageLog(10, 100, 0);
+        storageLog.start();
+        for (int i = 0; i < 100; i++) {
+            storageLog.append(i % 2 == 0 ? root1 : root2, "line " + i + "\n");
+        }
+        storageLog.stop();
+
+        assertEquals(0, storageLog.getQueueSize());
+
+        List<String> lines = Files.readAllLines(new File(root1, FileStorageLog.LOG_FILE_NAME).toPath(), StandardCharsets.UTF_8);
+        assertEquals(50, lines.size());
+        assertEquals("line 0", lines.get(0));
+        assertEquals("line 98", lines.get(49));
+
+        lines = Files.readAllLines(new File(root2, FileStorageLog.LOG_FILE_NAME).toPath(), StandardCharsets.UTF_8);
+        assertEquals(50, lines.size());
+        assertEquals("line 99", lines.get(49));
+    }
+
+    @Test
+    public void testRotation() throws Exception {
+        File root = folder.newFolder("root");
+
+        FileStorageLog storageLog = new FileStorageLog(1000, 100, 100);
+        storageLog.start();
+        for (int i = 0; i < 10; i++) {
+            storageLog.append(root, "0123456789012345678\n");
+        }
+        storageLog.stop();
+
+        File[] files = root.listFiles();
+        assertTrue(files != null && files.length > 1);
+        for (File file : files) {
+            assertTrue(file.getName().startsWith(FileStorageLog.LOG_FILE_NAME));
+            assertTrue(file.length() <= 100);
+        }
+    }
+}
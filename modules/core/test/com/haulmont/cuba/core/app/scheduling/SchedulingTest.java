@@ -33,6 +33,7 @@ import java.util.TimeZone;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 import static junit.framework.Assert.assertTrue;
 
 public class SchedulingTest {
@@ -143,4 +144,51 @@ public class SchedulingTest {
         assertTrue(scheduling.setRunning(scheduledTask, true));
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCronStartInFuture() {
+        long[] now = {date("2013-11-13 15:30:00").getTime()};
+        Scheduling scheduling = new Scheduling() {
+            {
+                timeSource = new TimeSource() {
+                    @Override
+                    public Date currentTimestamp() {
+                        return new Date(now[0]);
+                    }
+
+                    @Override
+                    public long currentTimeMillis() {
+                        return now[0];
+                    }
+
+                    @Override
+                    public ZonedDateTime now() {
+                        return ZonedDateTime.now();
+                    }
+                };
+            }
+
+            @Override
+            protected TimeZone getCurrentTimeZone() {
+                return TimeZone.getTimeZone("GMT-0");
+            }
+        };
+
+        ScheduledTask scheduledTask = new ScheduledTask();
+        scheduledTask.setSchedulingType(SchedulingType.CRON);
+        scheduledTask.setCron("0 0 0 * * FRI");
+        assertFalse(scheduling.isCronStartInFuture(scheduledTask));
+
+        long currentStart = scheduling.calculateNextCronDate(scheduledTask, date("2013-11-08 01:01:01").getTime(), now[0], 10000L);
+        assertEquals(date("2013-11-15 00:00:00"), new Date(currentStart));
+        assertTrue(scheduling.isCronStartInFuture(scheduledTask));
+
+        now[0] = date("2013-11-15 00:00:00").getTime();
+        assertFalse(scheduling.isCronStartInFuture(scheduledTask));
+
+        now[0] = date("2013-11-13 15:30:00").getTime();
+        scheduledTask.setCron("*/5 * * * * *");
+        assertFalse(scheduling.isCronStartInFuture(scheduledTask));
+        assertSame(scheduling.getCronSequenceGenerator("*/5 * * * * *"), scheduling.getCronSequenceGenerator("*/5 * * * * *"));
+    }
+}
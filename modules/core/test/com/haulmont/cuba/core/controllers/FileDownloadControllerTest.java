@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.controllers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+public class FileDownloadControllerTest {
+
+    private FileDownloadController controller = new FileDownloadController();
+
+    @Test
+    public void testParseRange() {
+        assertArrayEquals(new long[]{0, 499}, controller.parseRange("bytes=0-499", 1000));
+        assertArrayEquals(new long[]{500, 999}, controller.parseRange("bytes=500-", 1000));
+        assertArrayEquals(new long[]{900, 999}, controller.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, controller.parseRange("bytes=-2000", 1000));
+        assertArrayEquals(new long[]{900, 999}, controller.parseRange("bytes=900-5000", 1000));
+
+        // not satisfiable
+        assertArrayEquals(new long[]{1000, 999}, controller.parseRange("bytes=1000-", 1000));
+
+        // not supported, the whole file is sent
+        assertNull(controller.parseRange("bytes=0-10,20-30", 1000));
+        assertNull(controller.parseRange("items=0-10", 1000));
+        assertNull(controller.parseRange("bytes=abc", 1000));
+        assertNull(controller.parseRange("bytes=-", 1000));
+    }
+}
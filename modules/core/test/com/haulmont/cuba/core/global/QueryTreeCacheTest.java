@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.google.common.cache.CacheBuilder;
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.QueryTree;
+import com.haulmont.cuba.core.sys.jpql.TreeToQuery;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTreeTransformer;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryTreeCacheTest {
+
+    private DomainModel model;
+    private QueryTransformerFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        EntityBuilder builder = new EntityBuilder();
+        JpqlEntityModel teamEntity = builder.produceImmediately("Team", "name");
+        builder.startNewEntity("Player");
+        builder.addStringAttribute("name");
+        builder.addReferenceAttribute("team", "Team");
+        JpqlEntityModel playerEntity = builder.produce();
+        model = new DomainModel(playerEntity, teamEntity);
+
+        factory = new QueryTransformerFactory();
+        factory.domainModel = model;
+        factory.queryTreeCacheEnabled = true;
+        factory.queryTreeCache = CacheBuilder.newBuilder().maximumSize(10).recordStats().build();
+    }
+
+    @Test
+    public void testSharedTreeIsParsedOnce() {
+        String query = "select p from Player p where p.name = :name";
+
+        QueryTree tree1 = factory.getQueryTree(model, query);
+        QueryTree tree2 = factory.getQueryTree(model, query);
+
+        assertSame(tree1, tree2);
+        assertEquals(1, factory.getQueryTreeCacheStats().hitCount());
+        assertEquals(1, factory.getQueryTreeCacheStats().missCount());
+        assertEquals(1, factory.getQueryTreeCacheSize());
+
+        factory.clearQueryTreeCache();
+        assertEquals(0, factory.getQueryTreeCacheSize());
+    }
+
+    @Test
+    public void testModifiableTreeDoesNotAffectCachedTree() {
+        String query = "select distinct p from Player p join p.team t where p.name = :name and t.name = :team order by p.name";
+
+        QueryTree modifiable = factory.getModifiableQueryTree(model, query);
+        assertNotSame(modifiable, factory.getQueryTree(model, query));
+        assertEquals(toQuery(factory.getQueryTree(model, query)), toQuery(modifiable));
+
+        QueryTreeTransformer transformer = new QueryTreeTransformer(modifiable);
+        transformer.removeOrderBy();
+        transformer.removeDistinct();
+
+        assertEquals("select p from Player p join p.team t where p.name = :name and t.name = :team",
+                toQuery(modifiable));
+        assertEquals(query, toQuery(factory.getQueryTree(model, query)));
+        assertEquals(query, toQuery(factory.getModifiableQueryTree(model, query)));
+    }
+
+    @Test
+    public void testOtherModelIsNotCached() {
+        DomainModel otherModel = new DomainModel(new EntityBuilder().produceImmediately("Player"));
+        String query = "select p from Player p";
+
+        assertNotSame(factory.getQueryTree(otherModel, query), factory.getQueryTree(otherModel, query));
+        assertEquals(0, factory.getQueryTreeCacheSize());
+    }
+
+    private String toQuery(QueryTree queryTree) {
+        return queryTree.visit(new TreeToQuery()).getQueryString().trim();
+    }
+}
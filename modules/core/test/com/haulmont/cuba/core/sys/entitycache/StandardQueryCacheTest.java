@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class StandardQueryCacheTest {
+
+    private StandardQueryCache queryCache;
+
+    @Before
+    public void setUp() throws Exception {
+        queryCache = new StandardQueryCache();
+        queryCache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return 2;
+            }
+
+            @Override
+            public boolean getQueryCacheInvalidateById() {
+                return true;
+            }
+        };
+        queryCache.init();
+    }
+
+    @Test
+    public void testIndexesAreCleanedOnEviction() {
+        QueryKey key1 = createKey("select u from sec$User u");
+        QueryKey key2 = createKey("select u from sec$User u where u.active = true");
+        QueryKey key3 = createKey("select g from sec$Group g");
+
+        UUID userId = UUID.randomUUID();
+        queryCache.put(key1, createResult("sec$User", userId));
+        queryCache.put(key2, createResult("sec$User", userId));
+        queryCache.put(key3, createResult("sec$Group", UUID.randomUUID()));
+
+        assertEquals(2, queryCache.size());
+        assertEquals(2, queryCache.typeIndex.size());
+        assertEquals(2, queryCache.queryIdIndex.size());
+        assertEquals(1, queryCache.resultIdIndex.get(userId).size());
+
+        queryCache.invalidateAll();
+
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.typeIndex.isEmpty());
+        assertTrue(queryCache.resultIdIndex.isEmpty());
+        assertTrue(queryCache.queryIdIndex.isEmpty());
+    }
+
+    @Test
+    public void testFindAndInvalidateById() {
+        QueryKey key = createKey("select u from sec$User u");
+        queryCache.put(key, createResult("sec$User", UUID.randomUUID()));
+
+        assertSame(key, queryCache.findQueryKeyById(key.getId()));
+        assertSame(key, queryCache.invalidate(key.getId()));
+        assertNull(queryCache.get(key));
+        assertNull(queryCache.findQueryKeyById(key.getId()));
+        assertNull(queryCache.invalidate(key.getId()));
+    }
+
+    @Test
+    public void testInvalidateByEntityIds() {
+        UUID userId1 = UUID.randomUUID();
+        UUID userId2 = UUID.randomUUID();
+        QueryKey key1 = createKey("select u from sec$User u where u.login = 'a'");
+        QueryKey key2 = createKey("select u from sec$User u join u.group g where g.name = 'b'");
+        queryCache.put(key1, createResult("sec$User", userId1));
+        queryCache.put(key2, new QueryResult(Collections.singletonList(userId1), "sec$User",
+                Sets.newHashSet("sec$User", "sec$Group")));
+
+        queryCache.invalidate("sec$User", Collections.singleton(userId2));
+        assertNotNull(queryCache.get(key1));
+        assertNull(queryCache.get(key2));
+
+        queryCache.invalidate("sec$User", Collections.singleton(userId1));
+        assertNull(queryCache.get(key1));
+    }
+
+    private QueryKey createKey(String queryString) {
+        return new QueryKey(queryString, 0, 0, true, false, null, null);
+    }
+
+    private QueryResult createResult(String type, Object... ids) {
+        return new QueryResult(Arrays.asList(ids), type, Collections.singleton(type));
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.remoting.discovery.StaticServerSelector;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.httpinvoker.HttpInvokerRequestExecutor;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class HttpInvokerRequestExecutorTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private List<TestServer> servers = new ArrayList<>();
+
+    private List<PooledHttpInvokerRequestExecutor> executors = new ArrayList<>();
+
+    @After
+    public void tearDown() throws Exception {
+        for (PooledHttpInvokerRequestExecutor executor : executors) {
+            executor.destroy();
+        }
+        for (TestServer server : servers) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testGzipNegotiation() throws Exception {
+        TestServer server = startServer(createExporter(true));
+        PooledHttpInvokerRequestExecutor executor = createPooledExecutor(server);
+
+        assertEquals("echo: a", invoke(executor, "a"));
+        assertEquals("echo: b", invoke(executor, "b"));
+
+        // the first request is not compressed, as the client does not know yet whether the server accepts gzip
+        assertEquals(Arrays.asList(null, "gzip"), server.requestEncodings);
+        assertEquals(Arrays.asList("gzip", "gzip"), server.responseEncodings);
+    }
+
+    @Test
+    public void testNoCompressionIfDisabled() throws Exception {
+        TestServer server = startServer(createExporter(false));
+        PooledHttpInvokerRequestExecutor executor = createPooledExecutor(server);
+
+        assertEquals("echo: a", invoke(executor, "a"));
+        assertEquals("echo: b", invoke(executor, "b"));
+
+        assertEquals(Arrays.asList(null, null), server.requestEncodings);
+        assertEquals(Arrays.asList(null, null), server.responseEncodings);
+    }
+
+    @Test
+    public void testPooledFailover() throws Exception {
+        TestServer failingServer = startServer(null);
+        TestServer server = startServer(createExporter(false));
+        PooledHttpInvokerRequestExecutor executor = createPooledExecutor(failingServer, server);
+
+        assertEquals("echo: a", invoke(executor, "a"));
+        assertEquals(1, failingServer.requestEncodings.size());
+        assertEquals(1, server.requestEncodings.size());
+
+        // the failed server is tried last
+        assertEquals("echo: b", invoke(executor, "b"));
+        assertEquals(1, failingServer.requestEncodings.size());
+        assertEquals(2, server.requestEncodings.size());
+    }
+
+    @Test
+    public void testClusteredFailover() throws Exception {
+        TestServer failingServer = startServer(null);
+        TestServer server = startServer(createExporter(true));
+        ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(
+                createSelector(failingServer, server), createRemotingConfig(false));
+        executor.setBeanClassLoader(getClass().getClassLoader());
+
+        assertEquals("echo: a", invoke(executor, "a"));
+        assertEquals(1, failingServer.requestEncodings.size());
+        assertEquals(Collections.singletonList("gzip"), server.responseEncodings);
+    }
+
+    @Test
+    public void testAllServersFailed() throws Exception {
+        TestServer failingServer1 = startServer(null);
+        TestServer failingServer2 = startServer(null);
+        PooledHttpInvokerRequestExecutor executor = createPooledExecutor(failingServer1, failingServer2);
+
+        try {
+            invoke(executor, "a");
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, failingServer1.requestEncodings.size());
+        assertEquals(1, failingServer2.requestEncodings.size());
+    }
+
+    @Test
+    public void testDestroyClosesConnectionPool() throws Exception {
+        TestServer server = startServer(createExporter(false));
+        PooledHttpInvokerRequestExecutor executor = createPooledExecutor(server);
+        assertEquals("echo: a", invoke(executor, "a"));
+
+        executor.destroy();
+
+        try {
+            invoke(executor, "b");
+            fail();
+        } catch (IllegalStateException e) {
+            // connection pool is shut down
+        }
+        assertEquals(1, server.requestEncodings.size());
+    }
+
+    private PooledHttpInvokerRequestExecutor createPooledExecutor(TestServer... servers) {
+        PooledHttpInvokerRequestExecutor executor = new PooledHttpInvokerRequestExecutor(
+                createSelector(servers), createRemotingConfig(false));
+        executor.setBeanClassLoader(getClass().getClassLoader());
+        executors.add(executor);
+        return executor;
+    }
+
+    private StaticServerSelector createSelector(TestServer... servers) {
+        StringJoiner baseUrl = new StringJoiner(",");
+        for (TestServer server : servers) {
+            baseUrl.add(server.getUrl());
+        }
+        StaticServerSelector selector = new StaticServerSelector();
+        selector.setBaseUrl(baseUrl.toString());
+        selector.init();
+        return selector;
+    }
+
+    private HttpServiceExporter createExporter(boolean compression) {
+        HttpServiceExporter exporter = new HttpServiceExporter();
+        exporter.setServiceInterface(EchoService.class);
+        exporter.setService((EchoService) value -> "echo: " + value);
+        exporter.afterPropertiesSet();
+        exporter.remotingConfig = createRemotingConfig(compression);
+        return exporter;
+    }
+
+    private RemotingConfig createRemotingConfig(boolean compression) {
+        return new MockUp<RemotingConfig>() {
+            @Mock
+            int getRemotingMaxConnections() {
+                return 10;
+            }
+
+            @Mock
+            boolean getRemotingCompressionEnabled() {
+                return compression;
+            }
+
+            @Mock
+            int getConnectionTimeout() {
+                return 5000;
+            }
+
+            @Mock
+            int getConnectionReadTimeout() {
+                return 5000;
+            }
+        }.getMockInstance();
+    }
+
+    private TestServer startServer(HttpServiceExporter exporter) throws IOException {
+        TestServer server = new TestServer(exporter);
+        servers.add(server);
+        return server;
+    }
+
+    private String invoke(HttpInvokerRequestExecutor executor, String value) throws Exception {
+        RemoteInvocation invocation = new RemoteInvocation("echo", new Class[]{String.class}, new Object[]{value});
+        RemoteInvocationResult result = executor.executeRequest(new HttpInvokerClientConfiguration() {
+            @Override
+            public String getServiceUrl() {
+                return "test_EchoService";
+            }
+
+            @Override
+            public String getCodebaseUrl() {
+                return null;
+            }
+        }, invocation);
+        assertNull(result.getException());
+        return (String) result.getValue();
+    }
+
+    public interface EchoService {
+        String echo(String value);
+    }
+
+    /**
+     * Passes requests to the exporter as the remoting servlet does. Responds with 503 if there is no exporter.
+     */
+    private static class TestServer {
+
+        private final HttpServer server;
+        private final HttpServiceExporter exporter;
+
+        private final List<String> requestEncodings = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> responseEncodings = Collections.synchronizedList(new ArrayList<>());
+
+        private TestServer(HttpServiceExporter exporter) throws IOException {
+            this.exporter = exporter;
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/", this::handle);
+            server.start();
+        }
+
+        private String getUrl() {
+            return "http://localhost:" + server.getAddress().getPort();
+        }
+
+        private void stop() {
+            server.stop(0);
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            requestEncodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            try {
+                if (exporter == null) {
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                }
+
+                Map<String, String> headers = new HashMap<>();
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                exporter.handleRequest(createRequest(exchange), createResponse(headers, body));
+
+                responseEncodings.add(headers.get("Content-Encoding"));
+                headers.forEach((name, value) -> exchange.getResponseHeaders().set(name, value));
+                exchange.sendResponseHeaders(200, body.size());
+                try (OutputStream os = exchange.getResponseBody()) {
+                    body.writeTo(os);
+                }
+            } catch (Exception e) {
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private HttpServletRequest createRequest(HttpExchange exchange) {
+            InputStream requestBody = exchange.getRequestBody();
+            ServletInputStream inputStream = new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    return requestBody.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    return requestBody.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return false;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                }
+            };
+            return (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getHeader":
+                                return exchange.getRequestHeaders().getFirst((String) args[0]);
+                            case "getInputStream":
+                                return inputStream;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private HttpServletResponse createResponse(Map<String, String> headers, ByteArrayOutputStream body) {
+            ServletOutputStream outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+            return (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setHeader":
+                                headers.put((String) args[0], (String) args[1]);
+                                return null;
+                            case "setContentType":
+                                headers.put("Content-Type", (String) args[0]);
+                                return null;
+                            case "getOutputStream":
+                                return outputStream;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -24,8 +24,11 @@ import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Messages;
 import com.haulmont.cuba.security.app.EntityLogAPI;
+import com.haulmont.cuba.security.app.EntityLogConfig;
+import com.haulmont.cuba.security.app.EntityLogWriter;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.After;
@@ -37,8 +40,7 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.UUID;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class EntityLogTest {
 
@@ -313,6 +315,148 @@ public class EntityLogTest {
         assertEquals("changed-name@test.com", attr.getOldValue());
     }
 
+    @Test
+    public void testMergeChangesOfSeveralFlushes() throws Exception {
+        addLoggedAttribute("sec$User", "name");
+
+        Transaction tx = cont.persistence().createTransaction();
+        try {
+            EntityManager em = cont.persistence().getEntityManager();
+
+            Group group = em.find(Group.class, UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93"));
+
+            User user = new User();
+            userId = user.getId();
+            user.setGroup(group);
+            user.setLogin("test");
+            user.setName("test-name");
+            user.setEmail("name@test.com");
+            em.persist(user);
+
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+
+        tx = cont.persistence().createTransaction();
+        try {
+            EntityManager em = cont.persistence().getEntityManager();
+
+            User user = em.find(User.class, userId);
+            user.setEmail("changed-1@test.com");
+            em.flush();
+
+            user.setName("changed-name");
+            em.flush();
+
+            user.setEmail("changed-2@test.com");
+
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+
+        List<EntityLogItem> items = getEntityLogItems();
+        assertEquals(2, items.size());
+
+        EntityLogItem item = items.get(0);
+        assertEquals(EntityLogItem.Type.MODIFY, item.getType());
+        assertEquals(2, item.getAttributes().size());
+
+        EntityLogAttr emailAttr = findAttribute(item, "email");
+        assertEquals("name@test.com", emailAttr.getOldValue());
+        assertEquals("changed-2@test.com", emailAttr.getValue());
+
+        EntityLogAttr nameAttr = findAttribute(item, "name");
+        assertEquals("test-name", nameAttr.getOldValue());
+        assertEquals("changed-name", nameAttr.getValue());
+    }
+
+    @Test
+    public void testAsyncWrite() throws Exception {
+        EntityLogConfig config = AppBeans.get(Configuration.class).getConfig(EntityLogConfig.class);
+        EntityLogWriter writer = AppBeans.get(EntityLogWriter.NAME);
+        config.setAsyncWrite(true);
+        try {
+            assertTrue(writer.isAsync());
+
+            Transaction tx = cont.persistence().createTransaction();
+            try {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                Group group = em.find(Group.class, UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93"));
+
+                User user = new User();
+                userId = user.getId();
+                user.setGroup(group);
+                user.setLogin("test");
+                user.setName("test-name");
+                user.setEmail("name@test.com");
+                em.persist(user);
+
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+
+            tx = cont.persistence().createTransaction();
+            try {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                User user = em.find(User.class, userId);
+                user.setEmail("changed@test.com");
+
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+
+            List<EntityLogItem> items = waitForEntityLogItems(2);
+            assertEquals(2, items.size());
+            assertEquals(EntityLogItem.Type.MODIFY, items.get(0).getType());
+            assertEquals("changed@test.com", findAttribute(items.get(0), "email").getValue());
+            assertEquals(EntityLogItem.Type.CREATE, items.get(1).getType());
+        } finally {
+            config.setAsyncWrite(false);
+        }
+        assertFalse(writer.isAsync());
+    }
+
+    private void addLoggedAttribute(String entityName, String attributeName) {
+        Transaction tx = cont.persistence().createTransaction();
+        try {
+            EntityManager em = cont.persistence().getEntityManager();
+
+            LoggedEntity le = em.createQuery("select e from sec$LoggedEntity e where e.name = ?1", LoggedEntity.class)
+                    .setParameter(1, entityName)
+                    .getSingleResult();
+
+            LoggedAttribute la = new LoggedAttribute();
+            la.setEntity(le);
+            la.setName(attributeName);
+            em.persist(la);
+
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+        entityLog.invalidateCache();
+    }
+
+    private EntityLogAttr findAttribute(EntityLogItem item, String name) {
+        return Iterables.find(item.getAttributes(), attr -> name.equals(attr.getName()));
+    }
+
+    private List<EntityLogItem> waitForEntityLogItems(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        List<EntityLogItem> items = getEntityLogItems();
+        while (items.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            items = getEntityLogItems();
+        }
+        return items;
+    }
+
     private List<EntityLogItem> getEntityLogItems() {
         Transaction tx;
         List<EntityLogItem> items;
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security;
+
+import com.haulmont.bali.db.ArrayHandler;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AuditInfoProvider;
+import com.haulmont.cuba.security.app.EntityLogConfig;
+import com.haulmont.cuba.security.app.EntityLogWriter;
+import com.haulmont.cuba.security.entity.EntityLogItem;
+import com.haulmont.cuba.testsupport.TestContainer;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EntityLogWriterTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private TestEntityLogWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        cleanup();
+        writer = new TestEntityLogWriter(10, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writer.stop();
+        cleanup();
+    }
+
+    private void cleanup() throws SQLException {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SEC_ENTITY_LOG");
+    }
+
+    @Test
+    public void testBatchInsert() throws Exception {
+        List<EntityLogItem> items = createItems(25);
+
+        writer.writeInNewTransaction(items);
+
+        assertEquals(25, countRows());
+        assertEquals(3, writer.getBatchCount());
+        assertEquals(25, writer.getWrittenCount());
+
+        EntityLogItem loaded = AppBeans.get(DataManager.class).load(EntityLogItem.class)
+                .id(items.get(0).getId())
+                .one();
+        assertEquals(EntityLogItem.Type.MODIFY, loaded.getType());
+        assertEquals("sec$User", loaded.getEntity());
+        assertNotNull(loaded.getCreateTs());
+    }
+
+    @Test
+    public void testFullQueue() throws Exception {
+        writer.writeAsync(createItems(5));
+
+        // the queue holds 2 items, the rest is written by the calling thread
+        assertEquals(2, writer.getQueueSize());
+        assertEquals(3, writer.getOverflowCount());
+        assertEquals(3, countRows());
+
+        writer.drainQueue();
+
+        assertEquals(0, writer.getQueueSize());
+        assertEquals(5, countRows());
+        assertEquals(0, writer.getFailedCount());
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws Exception {
+        writer = new TestEntityLogWriter(10, 10);
+        List<EntityLogItem> items = createItems(5);
+        writer.failingItems.add(items.get(2).getId());
+
+        writer.writeAsync(items);
+        writer.drainQueue();
+
+        assertEquals(4, countRows());
+        assertEquals(5, writer.getRetriedCount());
+        assertEquals(1, writer.getFailedCount());
+        assertTrue(writer.printStatistics().contains("failed items: 1"));
+    }
+
+    private List<EntityLogItem> createItems(int count) {
+        Metadata metadata = AppBeans.get(Metadata.class);
+        List<EntityLogItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            EntityLogItem item = metadata.create(EntityLogItem.class);
+            item.setEventTs(AppBeans.get(TimeSource.class).currentTimestamp());
+            item.setType(EntityLogItem.Type.MODIFY);
+            item.setEntity("sec$User");
+            item.setEntityInstanceName("user-" + i);
+            item.setObjectEntityId(UUID.randomUUID());
+            item.setChanges("email=user-" + i + "@test.com");
+            items.add(item);
+        }
+        return items;
+    }
+
+    private long countRows() throws SQLException {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        Object[] row = runner.query("select count(*) from SEC_ENTITY_LOG", new ArrayHandler());
+        return ((Number) row[0]).longValue();
+    }
+
+    private static class TestEntityLogWriter extends EntityLogWriter {
+
+        private Set<UUID> failingItems = new HashSet<>();
+
+        private TestEntityLogWriter(int batchSize, int queueCapacity) {
+            super(AppBeans.get(Configuration.class));
+            persistence = AppBeans.get(Persistence.class);
+            metadata = AppBeans.get(Metadata.class);
+            timeSource = AppBeans.get(TimeSource.class);
+            auditInfoProvider = AppBeans.get(AuditInfoProvider.NAME);
+            config = new MockUp<EntityLogConfig>() {
+                @Mock
+                boolean getAsyncWrite() {
+                    return true;
+                }
+
+                @Mock
+                int getAsyncQueueCapacity() {
+                    return queueCapacity;
+                }
+
+                @Mock
+                int getBatchSize() {
+                    return batchSize;
+                }
+            }.getMockInstance();
+        }
+
+        @Override
+        protected void scheduleQueueWriting() {
+            // the queue is drained by the test thread
+        }
+
+        @Override
+        protected void internalWrite(EntityManager em, Collection<EntityLogItem> items) {
+            for (EntityLogItem item : items) {
+                if (failingItems.contains(item.getId())) {
+                    throw new RuntimeException("Test failure of item " + item.getId());
+                }
+            }
+            super.internalWrite(em, items);
+        }
+
+        private void drainQueue() {
+            writeQueue();
+        }
+
+        private void stop() {
+            applicationStopped();
+        }
+
+        private long getBatchCount() {
+            return batchCount.sum();
+        }
+
+        private long getWrittenCount() {
+            return writtenCount.sum();
+        }
+
+        private long getOverflowCount() {
+            return overflowCount.sum();
+        }
+
+        private long getRetriedCount() {
+            return retriedCount.sum();
+        }
+
+        private long getFailedCount() {
+            return failedCount.sum();
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package com.haulmont.cuba.security;
 
 import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.PersistenceSecurity;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.security.auth.AuthenticationManager;
 import com.haulmont.cuba.security.auth.Credentials;
@@ -32,12 +34,10 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
+import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class InMemoryConstraintTest {
 
@@ -357,7 +357,76 @@ public class InMemoryConstraintTest {
         }
     }
 
+    @Test
+    public void testFilterByConstraintsInBulk() throws LoginException {
+        AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
+        Credentials credentials = new LoginPasswordCredentials("constraintUser3", PASSWORD, Locale.getDefault());
+        UserSession userSession = lw.login(credentials).getSession();
+        assertNotNull(userSession);
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        try {
+            PersistenceSecurity persistenceSecurity = AppBeans.get(PersistenceSecurity.class);
+
+            List<Entity> entities = new ArrayList<>(usersList);
+            entities.add(constraintUser3);
+            assertTrue(persistenceSecurity.filterByConstraints(entities));
+            assertEquals(38, entities.size());
+            for (Entity entity : entities) {
+                assertTrue(((User) entity).getLogin().contains("3"));
+            }
+
+            assertTrue(persistenceSecurity.filterByConstraints(constraintUser3));
+            assertFalse(persistenceSecurity.filterByConstraints(usersList.get(2)));
+        } finally {
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
+
+    @Test
+    public void testLoadStreamSkipsFilteredChunks() throws LoginException {
+        AuthenticationManager lw = AppBeans.get(AuthenticationManager.NAME);
+        Credentials credentials = new LoginPasswordCredentials("constraintUser1", PASSWORD, Locale.getDefault());
+        UserSession userSession = lw.login(credentials).getSession();
+        assertNotNull(userSession);
 
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        try {
+            DataManager dataManager = AppBeans.<DataManager>get(DataManager.NAME).secure();
+
+            // the first chunks (user1, user10, user100, ...) are filtered out completely
+            List<String> expected = dataManager.load(User.class)
+                    .query("select u from sec$User u where u.login like 'user%' order by u.login")
+                    .view(View.LOCAL)
+                    .list().stream()
+                    .map(User::getLogin)
+                    .collect(Collectors.toList());
+            assertEquals(11, expected.size());
+
+            List<String> streamed = dataManager.load(User.class)
+                    .query("select u from sec$User u where u.login like 'user%' order by u.login")
+                    .view(View.LOCAL)
+                    .stream(5)
+                    .map(User::getLogin)
+                    .collect(Collectors.toList());
+            assertEquals(expected, streamed);
+
+            // chunks selected by primary key
+            Set<String> streamedByKey = dataManager.load(User.class)
+                    .query("select u from sec$User u where u.login like 'user%'")
+                    .view(View.LOCAL)
+                    .stream(5)
+                    .map(User::getLogin)
+                    .collect(Collectors.toSet());
+            assertEquals(new HashSet<>(expected), streamedByKey);
+        } finally {
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
 
     @After
     public void tearDown() throws Exception {
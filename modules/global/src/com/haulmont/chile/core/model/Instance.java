@@ -47,6 +47,20 @@ public interface Instance extends Serializable {
     @Nullable
     <T> T getValue(String name);
 
+    /**
+     * Get an attribute value.
+     * <br>
+     * Should be preferred to {@link #getValue(String)} in loops over meta-class properties: implementations can
+     * read the value without resolving the attribute by name.
+     *
+     * @param property meta-property of the attribute
+     * @return attribute value
+     */
+    @Nullable
+    default <T> T getValue(MetaProperty property) {
+        return getValue(property.getName());
+    }
+
     /**
      * Set an attribute value.
      * <br>
@@ -59,6 +73,20 @@ public interface Instance extends Serializable {
      */
     void setValue(String name, Object value);
 
+    /**
+     * Set an attribute value.
+     * <br>
+     * Should be preferred to {@link #setValue(String, Object)} in loops over meta-class properties: implementations
+     * can write the value without resolving the attribute by name.
+     *
+     * @param property meta-property of the attribute
+     * @param value    attribute value
+     * @see #setValue(String, Object)
+     */
+    default void setValue(MetaProperty property, Object value) {
+        setValue(property.getName(), value);
+    }
+
     /**
      * Get an attribute value. Locates the attribute by the given path in object graph starting from this instance.
      * <br>
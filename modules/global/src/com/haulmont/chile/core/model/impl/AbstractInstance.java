@@ -18,6 +18,7 @@
 package com.haulmont.chile.core.model.impl;
 
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.chile.core.model.utils.MethodsCache;
 import com.haulmont.cuba.core.global.MetadataTools;
@@ -99,8 +100,22 @@ public abstract class AbstractInstance implements Instance {
         return (T) getter.apply(this);
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T getValue(MetaProperty property) {
+        MetaPropertyImpl accessors = getAccessors(property);
+        Function getter = accessors != null ? accessors.getGetter() : null;
+        if (getter == null) {
+            return getValue(property.getName());
+        }
+        return (T) getter.apply(this);
+    }
+
     protected MethodsCache getMethodsCache() {
-        Class cls = getClass();
+        return getMethodsCache(getClass());
+    }
+
+    static MethodsCache getMethodsCache(Class cls) {
         MethodsCache cache = methodCacheMap.get(cls);
         if (cache == null) {
             cache = new MethodsCache(cls);
@@ -109,6 +124,20 @@ public abstract class AbstractInstance implements Instance {
         return cache;
     }
 
+    /**
+     * @return the property if its compiled accessors can be applied to this instance, null otherwise
+     */
+    @Nullable
+    protected MetaPropertyImpl getAccessors(MetaProperty property) {
+        if (property instanceof MetaPropertyImpl) {
+            Class domainClass = property.getDomain().getJavaClass();
+            if (domainClass != null && domainClass.isInstance(this)) {
+                return (MetaPropertyImpl) property;
+            }
+        }
+        return null;
+    }
+
     @Override
     public void setValue(String name, Object value) {
         setValue(name, value, true);
@@ -133,6 +162,22 @@ public abstract class AbstractInstance implements Instance {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public void setValue(MetaProperty property, Object value) {
+        MetaPropertyImpl accessors = getAccessors(property);
+        BiConsumer setter = accessors != null ? accessors.getSetter() : null;
+        Function getter = accessors != null ? accessors.getGetter() : null;
+        if (setter == null || getter == null) {
+            setValue(property.getName(), value);
+            return;
+        }
+        Object oldValue = getter.apply(this);
+        if (!InstanceUtils.propertyValueEquals(oldValue, value)) {
+            setter.accept(this, value);
+        }
+    }
+
     @Override
     public <T> T getValueEx(String name) {
         return InstanceUtils.getValueEx(this, name);
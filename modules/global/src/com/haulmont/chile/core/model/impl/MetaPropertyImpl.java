@@ -18,12 +18,17 @@
 package com.haulmont.chile.core.model.impl;
 
 import com.haulmont.chile.core.model.*;
+import com.haulmont.chile.core.model.utils.MethodsCache;
+
+import javax.annotation.Nullable;
 
 import java.io.InvalidObjectException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @SuppressWarnings({"TransientFieldNotInitialized"})
 public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty {
@@ -42,6 +47,10 @@ public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty
     private transient Class<?> javaType;
     private transient Class<?> declaringClass;
 
+    private transient volatile boolean accessorsResolved;
+    private transient Function getter;
+    private transient BiConsumer setter;
+
     private static final long serialVersionUID = -2827471157045502206L;
 
     public MetaPropertyImpl(MetaClass domain, String name) {
@@ -72,6 +81,7 @@ public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty
 
     public void setDomain(MetaClass domain) {
         this.domain = domain;
+        this.accessorsResolved = false;
     }
 
     @Override
@@ -151,6 +161,42 @@ public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty
         this.readOnly = readOnly;
     }
 
+    /**
+     * @return getter compiled for the Java class of the domain or null if the class has no getter for the property
+     */
+    @Nullable
+    public Function getGetter() {
+        if (!accessorsResolved) {
+            resolveAccessors();
+        }
+        return getter;
+    }
+
+    /**
+     * @return setter compiled for the Java class of the domain or null if the class has no setter for the property
+     */
+    @Nullable
+    public BiConsumer getSetter() {
+        if (!accessorsResolved) {
+            resolveAccessors();
+        }
+        return setter;
+    }
+
+    protected void resolveAccessors() {
+        Class javaClass = domain.getJavaClass();
+        if (javaClass != null) {
+            try {
+                MethodsCache methodsCache = AbstractInstance.getMethodsCache(javaClass);
+                getter = methodsCache.getGetter(name);
+                setter = methodsCache.getSetter(name);
+            } catch (RuntimeException e) {
+                // leave accessors empty, values will be accessed by name
+            }
+        }
+        accessorsResolved = true;
+    }
+
     @Override
     public String toString() {
         return domain.getName() + "." + name;
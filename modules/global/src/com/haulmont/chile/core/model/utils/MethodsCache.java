@@ -19,6 +19,7 @@ package com.haulmont.chile.core.model.utils;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.annotation.Nullable;
 import java.lang.invoke.*;
 import java.lang.reflect.Method;
 import java.util.HashMap;
@@ -114,6 +115,24 @@ public class MethodsCache {
         getSetterNN(property).accept(object, value);
     }
 
+    /**
+     * @param property name of property associated with getter
+     * @return lambda {@link Function} which represents getter or null if not found
+     */
+    @Nullable
+    public Function getGetter(String property) {
+        return getters.get(property);
+    }
+
+    /**
+     * @param property name of property associated with setter
+     * @return lambda {@link BiConsumer} which represents setter or null if not found
+     */
+    @Nullable
+    public BiConsumer getSetter(String property) {
+        return setters.get(property);
+    }
+
     /**
      * @param property name of property associated with getter
      * @return lambda {@link Function} which represents getter
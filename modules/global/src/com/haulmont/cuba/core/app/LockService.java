@@ -20,6 +20,7 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.LockInfo;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -50,6 +51,15 @@ public interface LockService {
     @Nullable
     LockInfo lock(Entity entity);
 
+    /**
+     * Try to lock a set of entities. Either all the entities are locked or none of them.
+     * Entities for which locking is not configured are skipped.
+     * @param entities entity instances
+     * @return - empty list in case of successful lock,<br>
+     * - {@link LockInfo} instances of the entities already locked by someone, in this case nothing is locked
+     */
+    List<LockInfo> lock(Collection<? extends Entity> entities);
+
     /**
      * Unlock an arbitrary object.
      * @param name locking object name
@@ -63,6 +73,12 @@ public interface LockService {
      */
     void unlock(Entity entity);
 
+    /**
+     * Unlock a set of entities.
+     * @param entities entity instances
+     */
+    void unlock(Collection<? extends Entity> entities);
+
     /**
      * Get locking status for particular object
      * @param name locking object name
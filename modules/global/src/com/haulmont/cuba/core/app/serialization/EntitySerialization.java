@@ -22,6 +22,8 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -42,12 +44,15 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
@@ -134,6 +139,50 @@ public class EntitySerialization implements EntitySerializationAPI {
         return createGsonForDeserialization(metaClass, options).fromJson(json, collectionType);
     }
 
+    @Override
+    public <T extends Entity> void entitiesCollectionFromJson(Reader reader,
+                                                              @Nullable MetaClass metaClass,
+                                                              int chunkSize,
+                                                              Consumer<List<T>> chunkConsumer,
+                                                              EntitySerializationOption... options) {
+        Preconditions.checkNotNullArgument(reader, "reader is null");
+        Preconditions.checkNotNullArgument(chunkConsumer, "chunkConsumer is null");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+
+        // references to repeated entities in compact JSON can point to any preceding chunk
+        boolean compactRepeatedEntities = options != null
+                && Arrays.asList(options).contains(EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+
+        context.remove();
+        try {
+            Gson gson = createGsonForDeserialization(metaClass, options);
+            JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.beginArray();
+            List<T> chunk = new ArrayList<>();
+            while (jsonReader.hasNext()) {
+                T entity = gson.fromJson(jsonReader, Entity.class);
+                chunk.add(entity);
+                if (chunk.size() >= chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new ArrayList<>();
+                    if (!compactRepeatedEntities) {
+                        context.remove();
+                    }
+                }
+            }
+            jsonReader.endArray();
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to read entities from JSON", e);
+        } finally {
+            context.remove();
+        }
+    }
+
     @Override
     public <T> T objectFromJson(String json, Class<T> clazz, EntitySerializationOption... options) {
         context.remove();
@@ -300,7 +349,7 @@ public class EntitySerialization implements EntitySerializationAPI {
                         }
                     }
 
-                    Object fieldValue = entity.getValue(metaProperty.getName());
+                    Object fieldValue = entity.getValue(metaProperty);
 
                     //always write nulls here. GSON will not serialize them to the result if
                     //EntitySerializationOptions.SERIALIZE_NULLS was not set.
@@ -20,9 +20,15 @@ package com.haulmont.cuba.core.app.serialization;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Class that is used for serialization and deserialization of entities to JSON.
@@ -127,6 +133,50 @@ public interface EntitySerializationAPI {
                                                                 @Nullable MetaClass metaClass,
                                                                 EntitySerializationOption... options);
 
+    /**
+     * Deserializes a JSON array of objects read from the {@code reader} without loading the whole JSON into memory.
+     * Deserialized entities are passed to the {@code chunkConsumer} by lists of at most {@code chunkSize} elements.
+     * <p>
+     * References in JSON serialized with {@link EntitySerializationOption#COMPACT_REPEATED_ENTITIES} may point to
+     * any preceding entity, so all deserialized entities are kept until the end of the array and the memory is not
+     * bounded by the chunk size. Without this option, entities are kept only within a chunk.
+     * <p>
+     * The default implementation reads the whole JSON into memory. The reader is not closed by this method.
+     *
+     * @param reader        a reader providing a JSON array of objects
+     * @param metaClass     a metaClass of the entities that will be created
+     * @param chunkSize     max number of entities passed to the consumer at once
+     * @param chunkConsumer a consumer of deserialized entities
+     * @param options       options specifying how a JSON object graph was serialized
+     */
+    default <T extends Entity> void entitiesCollectionFromJson(Reader reader,
+                                                               @Nullable MetaClass metaClass,
+                                                               int chunkSize,
+                                                               Consumer<List<T>> chunkConsumer,
+                                                               EntitySerializationOption... options) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        String json;
+        try {
+            json = IOUtils.toString(reader);
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to read entities from JSON", e);
+        }
+        Collection<T> entities = entitiesCollectionFromJson(json, metaClass, options);
+        List<T> chunk = new ArrayList<>();
+        for (T entity : entities) {
+            chunk.add(entity);
+            if (chunk.size() >= chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
     /**
      * Deserializes an object of any class from JSON. Date fields are deserialized according to the {@link
      * com.haulmont.chile.core.datatypes.impl.DateTimeDatatype} format, entities object and fields of Entity type are
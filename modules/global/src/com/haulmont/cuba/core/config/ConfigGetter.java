@@ -19,6 +19,7 @@
 
 package com.haulmont.cuba.core.config;
 
+import com.google.common.primitives.Primitives;
 import com.haulmont.cuba.core.config.type.TypeFactory;
 
 import java.lang.reflect.Method;
@@ -38,6 +39,8 @@ public class ConfigGetter extends ConfigAccessorMethod {
 
     private TypeFactory factory;
 
+    private final boolean cacheable;
+
     /**
      * Create a new ConfigGetter instance.
      *
@@ -51,6 +54,22 @@ public class ConfigGetter extends ConfigAccessorMethod {
         sourceType = ConfigUtil.getSourceType(configInterface, method);
 //        if (!String.class.equals(method.getReturnType()))
         factory = TypeFactory.getInstance(configInterface, method);
+        cacheable = isImmutable(method.getReturnType());
+    }
+
+    public SourceType getSourceType() {
+        return sourceType;
+    }
+
+    /**
+     * @return true if values returned by the getter are immutable and can be shared between invocations
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive() || Primitives.isWrapperType(type) || type.isEnum() || String.class.equals(type);
     }
 
     /**
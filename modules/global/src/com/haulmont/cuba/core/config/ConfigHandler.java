@@ -21,6 +21,8 @@ package com.haulmont.cuba.core.config;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Configuration interface method handler.
@@ -35,6 +37,14 @@ public class ConfigHandler implements InvocationHandler {
      * The configuration interface.
      */
     private final Class<?> configInterface;
+    /**
+     * Method implementations of the configuration interface.
+     */
+    private final Map<Method, ConfigMethod> methods = new ConcurrentHashMap<>();
+    /**
+     * Snapshot of typed values returned by getters, checked against the persister version.
+     */
+    private final Map<Method, CachedValue> values = new ConcurrentHashMap<>();
 
     /**
      * Create a new ConfigHandler instance.
@@ -75,7 +85,37 @@ public class ConfigHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        ConfigMethod configMethod = ConfigMethods.getInstance(configInterface, method);
+        ConfigMethod configMethod = methods.get(method);
+        if (configMethod == null) {
+            configMethod = ConfigMethods.getInstance(configInterface, method);
+            methods.put(method, configMethod);
+        }
+
+        if (configMethod instanceof ConfigGetter && (args == null || args.length == 0)) {
+            ConfigGetter getter = (ConfigGetter) configMethod;
+            if (getter.isCacheable()) {
+                long version = persister.getVersion(getter.getSourceType());
+                if (version != ConfigPersister.NO_VERSION) {
+                    CachedValue cachedValue = values.get(method);
+                    if (cachedValue != null && cachedValue.version == version) {
+                        return cachedValue.value;
+                    }
+                    Object value = getter.invoke(this, args, proxy);
+                    values.put(method, new CachedValue(version, value));
+                    return value;
+                }
+            }
+        }
         return configMethod.invoke(this, args, proxy);
-  }
+    }
+
+    private static final class CachedValue {
+        private final long version;
+        private final Object value;
+
+        private CachedValue(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
 }
\ No newline at end of file
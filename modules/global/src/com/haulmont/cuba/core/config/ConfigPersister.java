@@ -17,7 +17,24 @@
 package com.haulmont.cuba.core.config;
 
 public interface ConfigPersister {
+
+    /**
+     * Version returned by {@link #getVersion(SourceType)} if property values cannot be cached.
+     */
+    long NO_VERSION = -1;
+
     String getProperty(SourceType sourceType, String name);
 
     void setProperty(SourceType sourceType, String name, String value);
+
+    /**
+     * Returns the current version of property values of the given source type. The version is changed every time
+     * a value of this source type can be changed, so the values read with the same version can be reused.
+     *
+     * @param sourceType source type
+     * @return version or {@link #NO_VERSION} if the values cannot be cached
+     */
+    default long getVersion(SourceType sourceType) {
+        return NO_VERSION;
+    }
 }
\ No newline at end of file
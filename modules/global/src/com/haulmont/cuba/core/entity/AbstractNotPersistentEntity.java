@@ -16,8 +16,8 @@
  */
 package com.haulmont.cuba.core.entity;
 
-import com.haulmont.chile.core.annotations.MetaProperty;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.impl.AbstractInstance;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.annotation.SystemLevel;
@@ -68,7 +68,7 @@ public abstract class AbstractNotPersistentEntity
         return metadata.getSession().getClassNN(getClass());
     }
 
-    @MetaProperty
+    @com.haulmont.chile.core.annotations.MetaProperty
     @Override
     public UUID getId() {
         return id;
@@ -78,6 +78,12 @@ public abstract class AbstractNotPersistentEntity
         this.id = id;
     }
 
+    @Override
+    public void setValue(MetaProperty property, Object value) {
+        // setter of a not enhanced entity must be followed by property change notification
+        setValue(property.getName(), value);
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public void setValue(String property, Object obj, boolean checkEquals) {
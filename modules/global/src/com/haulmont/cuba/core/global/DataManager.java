@@ -26,6 +26,8 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -62,6 +64,32 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances lazily, in chunks of {@link EntityLoadSpliterator#DEFAULT_CHUNK_SIZE} instances.
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @return          a stream of detached instances
+     * @see #loadStream(LoadContext, int)
+     */
+    @CheckReturnValue
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context) {
+        return loadStream(context, EntityLoadSpliterator.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Loads entity instances lazily, in chunks of the given size. Use it to process large result sets:
+     * each chunk is loaded by {@link #loadList(LoadContext)} when the stream reaches it, so the whole
+     * result is never kept in memory unless collected by the caller.
+     * <p>If the query is not sorted, the instances are returned in the order of primary key, and subsequent
+     * chunks are selected by the last loaded key. First and max results of the query are respected.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param chunkSize max number of instances loaded at once
+     * @return          a stream of detached instances
+     */
+    @CheckReturnValue
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return StreamSupport.stream(new EntityLoadSpliterator<>(this, context, chunkSize), false);
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.security.entity.ConstraintOperationType;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * Spliterator loading entities by {@link DataManager#loadList(LoadContext)} in chunks of a limited size.
+ * Each chunk is loaded, detached and processed by the data store separately, so only one chunk is kept in memory.
+ * <p>
+ * If the query is not sorted and the entity has a simple primary key, chunks are ordered by the primary key
+ * and the next chunk is selected by the condition on the last loaded key instead of the first result,
+ * so loading of the last chunk takes as much time as loading of the first one.
+ * Otherwise, the chunks are selected by first result.
+ * <p>
+ * If the entity has in-memory read constraints, identifiers of each chunk are loaded first by
+ * {@link DataManager#loadValues(ValueLoadContext)} and then the entities are loaded by the identifiers,
+ * so chunks are selected by database rows even if the constraints filter out some or all of the entities.
+ *
+ * @param <E> entity type
+ * @see DataManager#loadStream(LoadContext, int)
+ */
+public class EntityLoadSpliterator<E extends Entity> extends Spliterators.AbstractSpliterator<E> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    public static final String LAST_ID_PARAM = "loadStreamLastId";
+
+    public static final String IDS_PARAM = "loadStreamIds";
+
+    private static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\border\\s+by\\b", Pattern.CASE_INSENSITIVE);
+
+    protected final DataManager dataManager;
+    protected final LoadContext<E> context;
+    protected final int chunkSize;
+
+    protected final MetaClass metaClass;
+    protected final String idName;
+    protected final String pkName;
+    protected final boolean loadIdsFirst;
+    protected final int maxResults;
+
+    protected Iterator<E> chunk;
+    protected int loaded;
+    protected int nextFirstResult;
+    protected Object lastId;
+    protected boolean finished;
+
+    public EntityLoadSpliterator(DataManager dataManager, LoadContext<E> context, int chunkSize) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        checkNotNullArgument(dataManager, "dataManager is null");
+        checkNotNullArgument(context, "context is null");
+        checkNotNullArgument(context.getQuery(), "context must contain a query");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+
+        this.dataManager = dataManager;
+        this.context = context;
+        this.chunkSize = chunkSize;
+        this.maxResults = context.getQuery().getMaxResults();
+        this.nextFirstResult = context.getQuery().getFirstResult();
+
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        this.metaClass = metadata.getClassNN(context.getMetaClass());
+        this.idName = getSimplePrimaryKeyName(metadata);
+        this.pkName = getKeysetPrimaryKeyName();
+        this.loadIdsFirst = idName != null && hasInMemoryConstraints();
+    }
+
+    /**
+     * @return name of the primary key if it is not embedded, or null otherwise
+     */
+    @Nullable
+    protected String getSimplePrimaryKeyName(Metadata metadata) {
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || !primaryKey.getRange().isDatatype()) {
+            return null;
+        }
+        return primaryKey.getName();
+    }
+
+    /**
+     * @return name of the primary key to continue loading by, or null if the chunks must be selected by first result
+     */
+    @Nullable
+    protected String getKeysetPrimaryKeyName() {
+        LoadContext.Query query = context.getQuery();
+        if (query.getSort() != null || ORDER_BY_PATTERN.matcher(query.getQueryString()).find()) {
+            return null;
+        }
+        return idName;
+    }
+
+    /**
+     * @return true if the data store can filter out loaded entities, so a chunk can contain less entities than rows
+     */
+    protected boolean hasInMemoryConstraints() {
+        UserSessionSource userSessionSource = AppBeans.get(UserSessionSource.NAME);
+        if (!userSessionSource.checkCurrentUserSession()) {
+            return false;
+        }
+        Security security = AppBeans.get(Security.NAME);
+        return security.hasInMemoryConstraints(metaClass, ConstraintOperationType.READ, ConstraintOperationType.ALL);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        while (chunk == null || !chunk.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            chunk = loadNextChunk().iterator();
+        }
+
+        action.accept(chunk.next());
+        return true;
+    }
+
+    protected List<E> loadNextChunk() {
+        int size = chunkSize;
+        if (maxResults > 0) {
+            size = Math.min(size, maxResults - loaded);
+        }
+
+        List<E> entities;
+        int rowCount;
+        if (loadIdsFirst) {
+            List<Object> ids = loadIds(size);
+            rowCount = ids.size();
+            entities = loadByIds(ids);
+            if (!ids.isEmpty()) {
+                lastId = ids.get(ids.size() - 1);
+            }
+        } else {
+            entities = dataManager.loadList(createChunkContext(size));
+            rowCount = entities.size();
+            if (pkName != null && !entities.isEmpty()) {
+                lastId = getId(entities.get(entities.size() - 1));
+            }
+        }
+
+        // the position is advanced by database rows, not by entities left after in-memory constraints
+        loaded += rowCount;
+        nextFirstResult += rowCount;
+        if (rowCount < size || (maxResults > 0 && loaded >= maxResults)) {
+            finished = true;
+        }
+        return entities;
+    }
+
+    protected List<Object> loadIds(int size) {
+        LoadContext.Query chunkQuery = createChunkContext(size).getQuery();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(chunkQuery.getQueryString());
+        transformer.replaceWithSelectId(idName);
+
+        ValueLoadContext.Query query = ValueLoadContext.createQuery(transformer.getResult())
+                .setParameters(new HashMap<>(chunkQuery.getParameters()))
+                .setCondition(chunkQuery.getCondition())
+                .setSort(chunkQuery.getSort())
+                .setFirstResult(chunkQuery.getFirstResult())
+                .setMaxResults(chunkQuery.getMaxResults());
+        ValueLoadContext idsContext = ValueLoadContext.create()
+                .setQuery(query)
+                .setStoreName(AppBeans.get(Metadata.class).getTools().getStoreName(metaClass))
+                .setSoftDeletion(context.isSoftDeletion())
+                .setJoinTransaction(context.isJoinTransaction())
+                .addProperty(idName);
+
+        List<Object> ids = new ArrayList<>();
+        for (KeyValueEntity keyValueEntity : dataManager.loadValues(idsContext)) {
+            Object id = keyValueEntity.getValue(idName);
+            ids.add(id instanceof IdProxy ? ((IdProxy) id).get() : id);
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected List<E> loadByIds(List<Object> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        LoadContext<E> idsContext = (LoadContext<E>) context.copy();
+        idsContext.setLoadPartialEntities(context.isLoadPartialEntities());
+        LoadContext.Query query = idsContext.getQuery();
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+        transformer.addWhere("{E}." + idName + " in :" + IDS_PARAM);
+        query.setQueryString(transformer.getResult());
+        query.setParameter(IDS_PARAM, ids);
+        query.setFirstResult(0);
+        query.setMaxResults(0);
+
+        Map<Object, E> entitiesById = new HashMap<>();
+        for (E entity : dataManager.loadList(idsContext)) {
+            entitiesById.put(getId(entity), entity);
+        }
+        // keep the order of the identifiers
+        List<E> entities = new ArrayList<>(entitiesById.size());
+        for (Object id : ids) {
+            E entity = entitiesById.get(id);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected LoadContext<E> createChunkContext(int size) {
+        LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+        chunkContext.setLoadPartialEntities(context.isLoadPartialEntities());
+        LoadContext.Query query = chunkContext.getQuery();
+
+        if (pkName != null) {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+            if (lastId != null) {
+                transformer.addWhere("{E}." + pkName + " > :" + LAST_ID_PARAM);
+                query.setParameter(LAST_ID_PARAM, lastId);
+            }
+            transformer.addOrderByIdIfNotExists(pkName);
+            query.setQueryString(transformer.getResult());
+
+            query.setFirstResult(lastId == null ? context.getQuery().getFirstResult() : 0);
+        } else {
+            query.setFirstResult(nextFirstResult);
+        }
+        query.setMaxResults(size);
+
+        return chunkContext;
+    }
+
+    protected Object getId(E entity) {
+        Object id = entity.getValue(idName);
+        return id instanceof IdProxy ? ((IdProxy) id).get() : id;
+    }
+}
@@ -195,7 +195,7 @@ public class EntityStates {
                 View propertyView = property.getView();
 
                 if (propertyView != null && metadataTools.isPersistent(metaProperty)) {
-                    Object value = entity.getValue(metaProperty.getName());
+                    Object value = entity.getValue(metaProperty);
 
                     if (value != null) {
                         if (!metaProperty.getRange().getCardinality().isMany()) {
@@ -267,7 +267,7 @@ public class EntityStates {
                 View propertyView = property.getView();
 
                 if (propertyView != null && metadataTools.isPersistent(metaProperty)) {
-                    Object value = entity.getValue(metaProperty.getName());
+                    Object value = entity.getValue(metaProperty);
 
                     if (value != null) {
                         if (!metaProperty.getRange().getCardinality().isMany()) {
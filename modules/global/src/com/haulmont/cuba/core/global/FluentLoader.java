@@ -24,6 +24,7 @@ import com.haulmont.cuba.core.global.queryconditions.Condition;
 import javax.annotation.CheckReturnValue;
 import javax.persistence.TemporalType;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class FluentLoader<E extends Entity<K>, K> {
 
@@ -80,6 +81,28 @@ public class FluentLoader<E extends Entity<K>, K> {
         return dataManager.loadList(loadContext);
     }
 
+    /**
+     * Loads entities lazily in chunks.
+     *
+     * @see DataManager#loadStream(LoadContext)
+     */
+    @CheckReturnValue
+    public Stream<E> stream() {
+        LoadContext<E> loadContext = createLoadContext();
+        return dataManager.loadStream(loadContext);
+    }
+
+    /**
+     * Loads entities lazily in chunks of the given size.
+     *
+     * @see DataManager#loadStream(LoadContext, int)
+     */
+    @CheckReturnValue
+    public Stream<E> stream(int chunkSize) {
+        LoadContext<E> loadContext = createLoadContext();
+        return dataManager.loadStream(loadContext, chunkSize);
+    }
+
     /**
      * Loads a single instance and wraps it in Optional.
      */
@@ -270,6 +293,26 @@ public class FluentLoader<E extends Entity<K>, K> {
             return loader.dataManager.loadList(loadContext);
         }
 
+        /**
+         * Loads entities lazily in chunks.
+         *
+         * @see DataManager#loadStream(LoadContext)
+         */
+        public Stream<E> stream() {
+            LoadContext<E> loadContext = createLoadContext();
+            return loader.dataManager.loadStream(loadContext);
+        }
+
+        /**
+         * Loads entities lazily in chunks of the given size.
+         *
+         * @see DataManager#loadStream(LoadContext, int)
+         */
+        public Stream<E> stream(int chunkSize) {
+            LoadContext<E> loadContext = createLoadContext();
+            return loader.dataManager.loadStream(loadContext, chunkSize);
+        }
+
         /**
          * Loads a single instance and wraps it in Optional.
          */
@@ -175,6 +175,15 @@ public interface GlobalConfig extends Config {
     @DefaultInt(100)
     int getNumberIdCacheSize();
 
+    /**
+     * @return number of ids remaining in the cached block at which the next block is requested in background.
+     * Zero disables prefetching. A value not less than {@code cuba.numberIdCacheSize} requests the next block
+     * as soon as the current one is taken in use.
+     */
+    @Property("cuba.numberIdCachePrefetchThreshold")
+    @DefaultInt(0)
+    int getNumberIdCachePrefetchThreshold();
+
     @Property("cuba.anonymousSessionId")
     @Factory(factory = UuidTypeFactory.class)
     UUID getAnonymousSessionId();
@@ -239,4 +248,11 @@ public interface GlobalConfig extends Config {
     @Factory(factory = CommaSeparatedStringListTypeFactory.class)
     @Stringify(stringify = CommaSeparatedStringListStringify.class)
     List<String> getDisableEscapingLikeForDataStores();
-}
\ No newline at end of file
+
+    /**
+     * @return maximum number of parsed JPQL query trees kept by {@link QueryTransformerFactory}. 0 disables caching.
+     */
+    @Property("cuba.queryTreeCacheMaxSize")
+    @DefaultInt(1000)
+    int getQueryTreeCacheMaxSize();
+}
@@ -23,6 +23,7 @@ import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.DatatypeRegistry;
 import com.haulmont.chile.core.datatypes.TimeZoneAwareDatatype;
 import com.haulmont.chile.core.model.*;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesTools;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesUtils;
 import com.haulmont.cuba.core.app.dynamicattributes.PropertyType;
@@ -44,6 +45,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -101,6 +103,10 @@ public class MetadataTools {
 
     protected volatile Collection<Class> enums;
 
+    protected final Map<MetaClass, InstanceNameFormatter> instanceNameFormatters = new ConcurrentHashMap<>();
+
+    protected volatile Session instanceNameFormattersSession;
+
     /**
      * Default constructor used by container at runtime and in server-side integration tests.
      */
@@ -194,27 +200,156 @@ public class MetadataTools {
     public String getInstanceName(Instance instance) {
         checkNotNullArgument(instance, "instance is null");
 
-        NamePatternRec rec = parseNamePattern(instance.getMetaClass());
+        InstanceNameFormatter formatter = getInstanceNameFormatter(instance.getMetaClass());
+        return formatter.format(instance);
+    }
+
+    /**
+     * Returns a formatter of instance names compiled from the {@link NamePattern} of the given meta-class.
+     * Formatters of the meta-classes of the metadata session are cached until the session is reloaded.
+     *
+     * @param metaClass entity meta-class
+     * @return instance name formatter
+     */
+    public InstanceNameFormatter getInstanceNameFormatter(MetaClass metaClass) {
+        if (!(metaClass instanceof MetaClassImpl)) {
+            // key-value and dynamic attributes meta-classes are created on the fly, don't cache them
+            return createInstanceNameFormatter(metaClass);
+        }
+
+        Session session = metadata.getSession();
+        if (instanceNameFormattersSession != session) {
+            instanceNameFormatters.clear();
+            instanceNameFormattersSession = session;
+        }
+        return instanceNameFormatters.computeIfAbsent(metaClass, this::createInstanceNameFormatter);
+    }
+
+    protected InstanceNameFormatter createInstanceNameFormatter(MetaClass metaClass) {
+        NamePatternRec rec = parseNamePattern(metaClass);
         if (rec == null) {
-            return instance.toString();
-        } else {
-            if (rec.methodName != null) {
+            return new InstanceNameFormatter(null, null, null, null);
+        }
+        if (rec.methodName != null) {
+            Method method = null;
+            Class<?> javaClass = metaClass.getJavaClass();
+            if (javaClass != null) {
                 try {
-                    Method method = instance.getClass().getMethod(rec.methodName);
-                    Object result = method.invoke(instance);
-                    return (String) result;
-                } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
-                    throw new RuntimeException("Error getting instance name", e);
+                    method = javaClass.getMethod(rec.methodName);
+                } catch (NoSuchMethodException e) {
+                    // the method is looked up in the class of the instance when formatting
                 }
             }
+            return new InstanceNameFormatter(rec, method, null, null);
+        }
 
-            Object[] values = new Object[rec.fields.length];
-            for (int i = 0; i < rec.fields.length; i++) {
-                Object value = instance.getValue(rec.fields[i]);
-                values[i] = format(value);
+        MetaProperty[] properties = new MetaProperty[rec.fields.length];
+        for (int i = 0; i < rec.fields.length; i++) {
+            properties[i] = metaClass.getProperty(rec.fields[i]);
+        }
+        return new InstanceNameFormatter(rec, null, properties, parseFormatSegments(rec.format));
+    }
+
+    /**
+     * Splits a format consisting of literal text and {@code %s} specifiers only.
+     *
+     * @return literal segments surrounding the specifiers, or null if the format must be applied by String.format()
+     */
+    @Nullable
+    protected String[] parseFormatSegments(String format) {
+        List<String> segments = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < format.length(); i++) {
+            char c = format.charAt(i);
+            if (c != '%') {
+                sb.append(c);
+                continue;
+            }
+            if (i + 1 >= format.length()) {
+                return null;
+            }
+            char next = format.charAt(++i);
+            if (next == 's') {
+                segments.add(sb.toString());
+                sb.setLength(0);
+            } else if (next == '%') {
+                sb.append('%');
+            } else {
+                return null;
+            }
+        }
+        segments.add(sb.toString());
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * Instance name formatter compiled from the {@link NamePattern} of a meta-class.
+     *
+     * @see #getInstanceNameFormatter(MetaClass)
+     */
+    public class InstanceNameFormatter {
+
+        protected final NamePatternRec rec;
+        protected final Method method;
+        protected final MetaProperty[] properties;
+        protected final String[] segments;
+
+        protected InstanceNameFormatter(@Nullable NamePatternRec rec, @Nullable Method method,
+                                        @Nullable MetaProperty[] properties, @Nullable String[] segments) {
+            this.rec = rec;
+            this.method = method;
+            this.properties = properties;
+            this.segments = segments;
+        }
+
+        /**
+         * @return record containing the name pattern properties, or null if the @NamePattern is not defined
+         */
+        @Nullable
+        public NamePatternRec getNamePatternRec() {
+            return rec;
+        }
+
+        /**
+         * @param instance instance of the meta-class this formatter is compiled for
+         * @return Instance name as defined by {@link NamePattern} or <code>toString()</code>.
+         */
+        public String format(Instance instance) {
+            if (rec == null) {
+                return instance.toString();
+            }
+            if (rec.methodName != null) {
+                return invokeNameMethod(instance);
+            }
+
+            Object[] values = new Object[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                Object value = properties[i] != null
+                        ? instance.getValue(properties[i])
+                        : instance.getValue(rec.fields[i]);
+                values[i] = MetadataTools.this.format(value);
             }
 
-            return String.format(rec.format, values);
+            if (segments == null || segments.length - 1 > values.length) {
+                return String.format(rec.format, values);
+            }
+
+            StringBuilder sb = new StringBuilder(segments[0]);
+            for (int i = 1; i < segments.length; i++) {
+                sb.append(values[i - 1]).append(segments[i]);
+            }
+            return sb.toString();
+        }
+
+        protected String invokeNameMethod(Instance instance) {
+            try {
+                Method nameMethod = method != null && method.getDeclaringClass().isInstance(instance)
+                        ? method
+                        : instance.getClass().getMethod(rec.methodName);
+                return (String) nameMethod.invoke(instance);
+            } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException e) {
+                throw new RuntimeException("Error getting instance name", e);
+            }
         }
     }
 
@@ -1037,7 +1172,7 @@ public class MetadataTools {
             MetaProperty dstProperty = destMetaClass.getProperty(name);
             if (dstProperty != null && !dstProperty.isReadOnly() && persistentAttributesLoadChecker.isLoaded(source, name)) {
                 try {
-                    dest.setValue(name, source.getValue(name));
+                    dest.setValue(dstProperty, source.getValue(srcProperty));
                 } catch (RuntimeException e) {
                     Throwable cause = ExceptionUtils.getRootCause(e);
                     if (cause == null)
@@ -1111,7 +1246,7 @@ public class MetadataTools {
                 continue;
             }
 
-            Object value = source.getValue(name);
+            Object value = source.getValue(srcProperty);
             if (value == null) {
                 continue;
             }
@@ -1167,7 +1302,7 @@ public class MetadataTools {
             visitor.visit(entity, property);
             if (property.getRange().isClass()) {
                 if (persistentAttributesLoadChecker.isLoaded(entity, property.getName())) {
-                    Object value = entity.getValue(property.getName());
+                    Object value = entity.getValue(property);
                     if (value != null) {
                         if (value instanceof Collection) {
                             for (Object item : ((Collection) value)) {
@@ -1207,7 +1342,7 @@ public class MetadataTools {
 
             visitor.visit(entity, metaProperty);
 
-            Object value = entity.getValue(property.getName());
+            Object value = entity.getValue(metaProperty);
 
             if (value != null && propertyView != null) {
                 if (value instanceof Collection) {
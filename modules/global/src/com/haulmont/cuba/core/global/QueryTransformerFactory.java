@@ -16,14 +16,22 @@
  */
 package com.haulmont.cuba.core.global;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.haulmont.cuba.core.sys.jpql.DomainModel;
 import com.haulmont.cuba.core.sys.jpql.DomainModelBuilder;
+import com.haulmont.cuba.core.sys.jpql.QueryTree;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 
 /**
  * Factory to get {@link QueryParser} and {@link QueryTransformer} instances.
+ * <p>
+ * Keeps a bounded cache of parsed query trees, so the same JPQL string is parsed only once. Parsers work with the
+ * cached tree directly, transformers receive a copy of it.
  */
 @Component(QueryTransformerFactory.NAME)
 public class QueryTransformerFactory {
@@ -32,9 +40,15 @@ public class QueryTransformerFactory {
 
     protected volatile DomainModel domainModel;
 
+    protected volatile Cache<String, QueryTree> queryTreeCache;
+    protected volatile boolean queryTreeCacheEnabled;
+
     @Inject
     protected BeanLocator beanLocator;
 
+    @Inject
+    protected Configuration configuration;
+
     public static QueryTransformer createTransformer(String query) {
         return AppBeans.get(NAME, QueryTransformerFactory.class).transformer(query);
     }
@@ -58,4 +72,87 @@ public class QueryTransformerFactory {
         }
         return beanLocator.getPrototype(QueryParser.NAME, domainModel, query);
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns a parsed tree of the query. The tree can be shared with other callers, so it must not be modified.
+     *
+     * @param model domain model used to parse the query
+     * @param query JPQL query string
+     * @return parsed query tree
+     */
+    public QueryTree getQueryTree(DomainModel model, String query) {
+        Cache<String, QueryTree> cache = getQueryTreeCache(model);
+        if (cache == null) {
+            return QueryTree.parse(model, query);
+        }
+        QueryTree queryTree = cache.getIfPresent(query);
+        if (queryTree == null) {
+            queryTree = QueryTree.parse(model, query);
+            cache.put(query, queryTree);
+        }
+        return queryTree;
+    }
+
+    /**
+     * Returns a parsed tree of the query which belongs to the caller exclusively and can be transformed.
+     *
+     * @param model domain model used to parse the query
+     * @param query JPQL query string
+     * @return parsed query tree
+     */
+    public QueryTree getModifiableQueryTree(DomainModel model, String query) {
+        Cache<String, QueryTree> cache = getQueryTreeCache(model);
+        if (cache == null) {
+            return QueryTree.parse(model, query);
+        }
+        return getQueryTree(model, query).copy();
+    }
+
+    /**
+     * @return statistics of the parsed query trees cache, or null if the cache is not initialized yet or disabled
+     */
+    @Nullable
+    public CacheStats getQueryTreeCacheStats() {
+        Cache<String, QueryTree> cache = queryTreeCache;
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * @return number of parsed query trees in the cache
+     */
+    public long getQueryTreeCacheSize() {
+        Cache<String, QueryTree> cache = queryTreeCache;
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * Discards all parsed query trees.
+     */
+    public void clearQueryTreeCache() {
+        Cache<String, QueryTree> cache = queryTreeCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Nullable
+    protected Cache<String, QueryTree> getQueryTreeCache(DomainModel model) {
+        if (model != domainModel) {
+            // the query is parsed against a model the cache is not built for
+            return null;
+        }
+        if (queryTreeCache == null) {
+            synchronized (this) {
+                if (queryTreeCache == null) {
+                    int maxSize = configuration.getConfig(GlobalConfig.class).getQueryTreeCacheMaxSize();
+                    queryTreeCacheEnabled = maxSize > 0;
+                    queryTreeCache = CacheBuilder.newBuilder()
+                            .maximumSize(Math.max(maxSize, 0))
+                            .recordStats()
+                            .build();
+                }
+            }
+        }
+        return queryTreeCacheEnabled ? queryTreeCache : null;
+    }
+}
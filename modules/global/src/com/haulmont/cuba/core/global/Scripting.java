@@ -18,6 +18,8 @@
 package com.haulmont.cuba.core.global;
 
 import groovy.lang.Binding;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 
 import javax.annotation.Nullable;
 import java.util.Map;
@@ -61,6 +63,21 @@ public interface Scripting {
      */
     <T> T evaluateGroovy(String text, Map<String, Object> context);
 
+    /**
+     * Compiles Groovy expression to a script class.
+     * Use it to evaluate the same expression many times: create an instance with
+     * {@link org.codehaus.groovy.runtime.InvokerHelper#createScript(Class, Binding)} and run it
+     * with different variables of the binding.
+     * <p>
+     * Compiled classes are cached by expression text until {@link #clearCache()} is invoked.
+     * The default implementation compiles the expression on each call without the configured imports.
+     * @param text      expression text
+     * @return          compiled script class
+     */
+    default Class<? extends Script> compileGroovy(String text) {
+        return new GroovyShell(Thread.currentThread().getContextClassLoader()).parse(text).getClass();
+    }
+
     /**
      * Runs Groovy script.
      * The script must be located as file under <em>conf</em> directory, or as a classpath resource.
@@ -104,6 +104,18 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient boolean frozen;
+
+    private transient boolean sharedProperties;
+
+    private transient boolean frozenPropertyViews;
+
+    // copy-on-write views handed out for frozen property views while the properties are shared
+    private transient Map<String, ViewProperty> copyOnWriteProperties;
+
+    // view containing this copy-on-write view while the owner's properties are shared
+    private transient View owner;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -155,6 +167,8 @@ public class View implements Serializable {
             for (View view : sources) {
                 putProperties(this.properties, view.getProperties());
             }
+            // properties of frozen sources can be put as is
+            frozenPropertyViews = true;
         }
     }
 
@@ -166,9 +180,16 @@ public class View implements Serializable {
                 View sourcePropertyView = sourceProperty.getView();
 
                 if (sourcePropertyView != null && isNotEmpty(sourcePropertyView.getProperties())) {
-
-                    Map<String, ViewProperty> thisViewProperties = thisProperties.get(sourcePropertyName).getView().properties;
-                    putProperties(thisViewProperties, sourcePropertyView.getProperties());
+                    ViewProperty thisProperty = thisProperties.get(sourcePropertyName);
+                    View thisPropertyView = thisProperty.getView();
+                    if (thisPropertyView.isFrozen()) {
+                        thisPropertyView = copyOnWrite(thisPropertyView);
+                        thisProperties.put(sourcePropertyName,
+                                new ViewProperty(sourcePropertyName, thisPropertyView, thisProperty.getFetchMode()));
+                    }
+                    thisPropertyView.ensurePropertiesOwned();
+                    putProperties(thisPropertyView.properties, sourcePropertyView.getProperties());
+                    thisPropertyView.frozenPropertyViews = true;
                 }
 
             } else {
@@ -186,13 +207,123 @@ public class View implements Serializable {
                 .entityClass(view.getEntityClass())
                 .name(view.getName());
         View copy = new View(viewParams);
-        for (ViewProperty property : view.getProperties()) {
+        for (ViewProperty property : view.properties.values()) {
             copy.addProperty(property.getName(), copy(property.getView()), property.getFetchMode());
         }
 
         return copy;
     }
 
+    /**
+     * Creates a view which shares the properties of the given frozen view instead of copying the whole graph.
+     * The returned view can be modified: its own properties are copied on first modification. Views of the
+     * properties obtained by {@link #getProperty(String)} are returned as copy-on-write views too, and modifying
+     * them copies the containing views. {@link #getProperties()} returns views of the properties frozen.
+     *
+     * @param view frozen view
+     * @return new view instance or null if the passed view is null
+     * @see #freeze()
+     */
+    public static View copyOnWrite(@Nullable View view) {
+        if (view == null) {
+            return null;
+        }
+        if (!view.frozen) {
+            throw new IllegalArgumentException("View " + view + " is not frozen");
+        }
+
+        View result = new View(new View.ViewParams()
+                .entityClass(view.getEntityClass())
+                .name(view.getName()));
+        result.properties = view.properties;
+        result.sharedProperties = true;
+        result.frozenPropertyViews = true;
+        result.loadPartialEntities = view.loadPartialEntities;
+        return result;
+    }
+
+    /**
+     * Makes this view and views of all its properties immutable, so they can be safely shared between threads
+     * and callers. Any attempt to modify a frozen view throws {@code IllegalStateException}.
+     * <p>
+     * Frozen state is not serialized.
+     *
+     * @return this view instance for chaining
+     */
+    public View freeze() {
+        if (!frozen) {
+            frozen = true;
+            for (ViewProperty property : properties.values()) {
+                if (property.getView() != null) {
+                    property.getView().freeze();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the view is immutable
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException(String.format("View %s is shared and cannot be modified, use View.copy()", this));
+        }
+    }
+
+    protected void ensurePropertiesOwned() {
+        checkNotFrozen();
+        if (sharedProperties) {
+            properties = new LinkedHashMap<>(properties);
+            if (copyOnWriteProperties != null) {
+                properties.putAll(copyOnWriteProperties);
+                copyOnWriteProperties = null;
+            }
+            sharedProperties = false;
+        }
+        attachToOwner();
+    }
+
+    /**
+     * Makes the owner of this copy-on-write view hold it in its own properties, so modifications of this view
+     * are seen through the owner.
+     */
+    protected void attachToOwner() {
+        if (owner != null) {
+            View ownerView = owner;
+            owner = null;
+            ownerView.ensurePropertiesOwned();
+        }
+    }
+
+    /**
+     * Returns the property with a copy-on-write view instead of a frozen one, so the caller can modify it.
+     */
+    protected ViewProperty toModifiableProperty(ViewProperty property) {
+        View propertyView = property.getView();
+        if (propertyView == null || !propertyView.frozen) {
+            return property;
+        }
+        if (sharedProperties) {
+            if (copyOnWriteProperties == null) {
+                copyOnWriteProperties = new HashMap<>();
+            }
+            return copyOnWriteProperties.computeIfAbsent(property.getName(), name -> {
+                View copy = copyOnWrite(propertyView);
+                copy.owner = this;
+                return new ViewProperty(name, copy, property.getFetchMode());
+            });
+        }
+        ViewProperty result = new ViewProperty(property.getName(), copyOnWrite(propertyView), property.getFetchMode());
+        properties.put(result.getName(), result);
+        return result;
+    }
+
     /**
      * @return entity class this view belongs to
      */
@@ -208,12 +339,78 @@ public class View implements Serializable {
     }
 
     /**
+     * Returns properties of the view.
+     * <p>
+     * If the view shares properties with a frozen view (see {@link #copyOnWrite(View)}), the collection iterates
+     * over the shared properties, and views of the properties are returned frozen until they are obtained
+     * for modification by {@link #getProperty(String)}. Removing properties through the collection copies
+     * the properties of this view.
+     *
      * @return collection of properties
      */
     public Collection<ViewProperty> getProperties() {
+        if (frozen) {
+            return Collections.unmodifiableCollection(properties.values());
+        }
+        if (sharedProperties) {
+            return new SharedPropertiesCollection();
+        }
+        if (frozenPropertyViews) {
+            for (ViewProperty property : new ArrayList<>(properties.values())) {
+                toModifiableProperty(property);
+            }
+            frozenPropertyViews = false;
+        }
         return properties.values();
     }
 
+    /**
+     * Properties of a copy-on-write view. Iterates over the shared properties without copying them and
+     * copies them on the first removal.
+     */
+    protected class SharedPropertiesCollection extends AbstractCollection<ViewProperty> {
+
+        @Override
+        public Iterator<ViewProperty> iterator() {
+            if (!sharedProperties) {
+                return getProperties().iterator();
+            }
+
+            Iterator<ViewProperty> iterator = properties.values().iterator();
+            return new Iterator<ViewProperty>() {
+                private ViewProperty current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public ViewProperty next() {
+                    current = iterator.next();
+                    Map<String, ViewProperty> modifiedProperties = sharedProperties ? copyOnWriteProperties : properties;
+                    ViewProperty property = modifiedProperties != null ? modifiedProperties.get(current.getName()) : null;
+                    return property != null ? property : current;
+                }
+
+                @Override
+                public void remove() {
+                    if (current == null) {
+                        throw new IllegalStateException();
+                    }
+                    ensurePropertiesOwned();
+                    properties.remove(current.getName());
+                    current = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return properties.size();
+        }
+    }
+
     /**
      * Add a property to this view.
      * @param name  property name
@@ -222,13 +419,13 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
-        properties.put(name, new ViewProperty(name, view, fetchMode));
+        putProperty(new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
-        properties.put(name, new ViewProperty(name, view, lazy));
+        putProperty(new ViewProperty(name, view, lazy));
         return this;
     }
 
@@ -239,7 +436,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
-        properties.put(name, new ViewProperty(name, view));
+        putProperty(new ViewProperty(name, view));
         return this;
     }
 
@@ -249,10 +446,18 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
-        properties.put(name, new ViewProperty(name, null));
+        putProperty(new ViewProperty(name, null));
         return this;
     }
 
+    protected void putProperty(ViewProperty property) {
+        ensurePropertiesOwned();
+        if (property.getView() != null && property.getView().frozen) {
+            frozenPropertyViews = true;
+        }
+        properties.put(property.getName(), property);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -282,7 +487,8 @@ public class View implements Serializable {
      */
     @Nullable
     public ViewProperty getProperty(String name) {
-        return properties.get(name);
+        ViewProperty property = properties.get(name);
+        return property != null && !frozen && frozenPropertyViews ? toModifiableProperty(property) : property;
     }
 
     /**
@@ -312,7 +518,9 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        checkNotFrozen();
         this.loadPartialEntities = loadPartialEntities;
+        attachToOwner();
         return this;
     }
 
@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.ScriptExecutionPolicy;
@@ -69,6 +71,12 @@ public abstract class AbstractScripting implements Scripting {
     protected volatile CubaGroovyClassLoader gcl;
     protected GenericKeyedObjectPool<String, Script> pool;
 
+    protected static final int COMPILED_SCRIPTS_CACHE_SIZE = 1000;
+
+    // keyed by script text, cleared together with other caches on reload
+    protected final Cache<String, Class<? extends Script>> compiledScripts =
+            CacheBuilder.newBuilder().maximumSize(COMPILED_SCRIPTS_CACHE_SIZE).build();
+
     protected GlobalConfig globalConfig;
 
     public AbstractScripting(JavaClassLoader javaClassLoader, Configuration configuration, SpringBeanLoader springBeanLoader) {
@@ -241,6 +249,16 @@ public abstract class AbstractScripting implements Scripting {
         return (T) evaluateGroovy(text, binding);
     }
 
+    @Override
+    public Class<? extends Script> compileGroovy(String text) {
+        Class<? extends Script> scriptClass = compiledScripts.getIfPresent(text);
+        if (scriptClass == null) {
+            scriptClass = createScript(text).getClass();
+            compiledScripts.put(text, scriptClass);
+        }
+        return scriptClass;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T runGroovyScript(String name, Binding binding) {
@@ -317,6 +335,7 @@ public abstract class AbstractScripting implements Scripting {
         getGroovyClassLoader().clearCache();
         javaClassLoader.clearCache();
         getPool().clear();
+        compiledScripts.invalidateAll();
         GroovyScriptEngine gse = getGroovyScriptEngine();
         try {
             Field scriptCacheField = gse.getClass().getDeclaredField("scriptCache");
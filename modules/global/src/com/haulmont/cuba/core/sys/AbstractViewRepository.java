@@ -66,6 +66,12 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Frozen copies of the stored views returned by {@link #findView(MetaClass, String)} without locking.
+     * Keyed by the meta-class the view is stored for. Cleared when deployed views are changed.
+     */
+    protected Map<MetaClass, Map<String, View>> frozenViews = new ConcurrentHashMap<>();
+
     @Inject
     protected Metadata metadata;
 
@@ -97,6 +103,7 @@ public class AbstractViewRepository implements ViewRepository {
         StopWatch initTiming = new Slf4JStopWatch("ViewRepository.init." + getClass().getSimpleName());
 
         storage.clear();
+        frozenViews.clear();
         readFileNames.clear();
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
@@ -180,6 +187,7 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        frozenViews.clear();
     }
 
     /**
@@ -214,7 +222,10 @@ public class AbstractViewRepository implements ViewRepository {
     }
 
     /**
-     * Searches for a View for an entity
+     * Searches for a View for an entity.
+     * <p>
+     * Returned view shares its graph with other callers until it or views of its properties are modified,
+     * see {@link View#copyOnWrite(View)}.
      *
      * @param metaClass entity class
      * @param name      view name
@@ -231,12 +242,26 @@ public class AbstractViewRepository implements ViewRepository {
             return null;
         }
 
+        if (initialized) {
+            Map<String, View> views = frozenViews.get(metaClass);
+            View view = views == null ? null : views.get(name);
+            if (view != null) {
+                return View.copyOnWrite(view);
+            }
+        }
+
         lock.readLock().lock();
         try {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            if (view == null) {
+                return null;
+            }
+
+            View frozenView = copyView(view).freeze();
+            frozenViews.computeIfAbsent(metaClass, k -> new ConcurrentHashMap<>()).put(name, frozenView);
+            return View.copyOnWrite(frozenView);
         } finally {
             lock.readLock().unlock();
         }
@@ -496,6 +521,8 @@ public class AbstractViewRepository implements ViewRepository {
     protected void replaceOverridden(View replacementView) {
         StopWatch replaceTiming = new Slf4JStopWatch("ViewRepository.replaceOverridden");
 
+        frozenViews.clear();
+
         HashSet<View> checked = new HashSet<>();
 
         for (View view : getAllInitialized()) {
@@ -699,7 +726,11 @@ public class AbstractViewRepository implements ViewRepository {
             views = new ConcurrentHashMap<>();
         }
 
-        views.put(view.getName(), view);
+        if (views.put(view.getName(), view) != null) {
+            // the replaced view can be nested in frozen views of other entities or inherited by views
+            // of extended entities
+            frozenViews.clear();
+        }
         storage.put(metaClass, views);
     }
 
@@ -25,6 +25,7 @@ import org.apache.commons.text.StringSubstitutor;
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 /**
@@ -41,6 +42,8 @@ public class AppProperties {
 
     private Map<String, String> systemProperties = new ConcurrentHashMap<>();
 
+    private final AtomicLong version = new AtomicLong();
+
     // Temporary support for deprecated properties: the second element has priority
     private final List<Pair<String, String>> DEPRECATED_PROPERTIES = Arrays.asList(
             new Pair<>("cuba.connectionUrlList", "cuba.connectionUrl"),
@@ -73,6 +76,14 @@ public class AppProperties {
         for (String name : System.getProperties().stringPropertyNames()) {
             systemProperties.put(name, System.getProperty(name));
         }
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return number which is changed every time a property value is changed through this object
+     */
+    public long getVersion() {
+        return version.get();
     }
 
     /**
@@ -226,5 +237,6 @@ public class AppProperties {
             properties.remove(key);
         else
             properties.put(key, value);
+        version.incrementAndGet();
     }
 }
\ No newline at end of file
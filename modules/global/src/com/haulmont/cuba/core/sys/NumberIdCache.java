@@ -17,37 +17,63 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.annotation.IdSequence;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.security.global.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Intermediate cache for generated ids of entities with long/integer PK.
  * The cache size is determined by the {@code cuba.numberIdCacheSize} app property.
+ * <p>
+ * Ids are taken from the current block without locking. If {@code cuba.numberIdCachePrefetchThreshold} is set,
+ * the next block is requested in background when the given number of ids or less remains in the current block.
+ * A threshold not less than the cache size makes the next block requested as soon as a block is taken in use.
  */
 @Component(NumberIdCache.NAME)
 public class NumberIdCache {
 
     public static final String NAME = "cuba_NumberIdCache";
 
+    private static final Logger log = LoggerFactory.getLogger(NumberIdCache.class);
+
     @Inject
     protected Metadata metadata;
 
+    protected static class Block {
+        protected final long end;
+        protected final AtomicLong counter;
+
+        public Block(long sequenceValue, int size) {
+            this.end = sequenceValue + size;
+            this.counter = new AtomicLong(sequenceValue);
+        }
+    }
+
     protected class Generator {
-        protected long counter;
-        protected long sequenceValue;
+        protected volatile Block block;
+        protected volatile Future<Block> nextBlock;
         protected String entityName;
         protected String sequenceName;
         protected boolean cached;
         protected NumberIdSequence numberIdSequence;
 
+        protected LongAdder refills = new LongAdder();
+        protected LongAdder prefetches = new LongAdder();
+        protected LongAdder waits = new LongAdder();
+
         public Generator(String entityName,
                          String sequenceName,
                          boolean cached,
@@ -56,36 +82,84 @@ public class NumberIdCache {
             this.sequenceName = sequenceName;
             this.cached = cached;
             this.numberIdSequence = sequence;
-            if (useIdCache()) {
-                createCachedCounter();
-            }
         }
 
         protected boolean useIdCache() {
             return config.getNumberIdCacheSize() != 0 && cached;
         }
 
-        protected void createCachedCounter() {
-            sequenceValue = numberIdSequence.createCachedLongId(entityName, sequenceName);
-            counter = sequenceValue;
+        protected Block createBlock() {
+            int size = config.getNumberIdCacheSize();
+            return new Block(numberIdSequence.createCachedLongId(entityName, sequenceName), size);
         }
 
-        public synchronized long getNext() {
+        public long getNext() {
             if (!useIdCache()) {
                 return numberIdSequence.createLongId(entityName, sequenceName);
-            } else {
-                long next = ++counter;
-                if (next > sequenceValue + config.getNumberIdCacheSize()) {
-                    createCachedCounter();
-                    next = ++counter;
+            }
+            Block current = block;
+            while (true) {
+                if (current != null) {
+                    long next = current.counter.incrementAndGet();
+                    if (next <= current.end) {
+                        int threshold = config.getNumberIdCachePrefetchThreshold();
+                        if (threshold > 0 && current.end - next <= threshold && nextBlock == null) {
+                            prefetch(current);
+                        }
+                        return next;
+                    }
+                    waits.increment();
+                }
+                current = refill(current);
+            }
+        }
+
+        protected synchronized Block refill(Block exhausted) {
+            if (block != exhausted) {
+                // another thread has already replaced the block
+                return block;
+            }
+            Block newBlock = null;
+            Future<Block> prefetched = nextBlock;
+            if (prefetched != null) {
+                nextBlock = null;
+                try {
+                    newBlock = prefetched.get();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to prefetch ids for {}", entityName, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for ids of " + entityName, e);
                 }
-                return next;
+            }
+            if (newBlock == null) {
+                newBlock = createBlock();
+            }
+            refills.increment();
+            block = newBlock;
+            return newBlock;
+        }
+
+        /**
+         * Requests the block following the given one in the prefetch executor. The block is created without
+         * the caller's transaction: on middleware, {@code Sequences} starts its own transaction in the executor
+         * thread.
+         */
+        protected synchronized void prefetch(Block current) {
+            // the block could be replaced by another thread while waiting for the lock
+            if (nextBlock == null && block == current) {
+                SecurityContext securityContext = AppContext.getSecurityContext();
+                nextBlock = getPrefetchExecutor().submit(() ->
+                        AppContext.withSecurityContext(securityContext, this::createBlock));
+                prefetches.increment();
             }
         }
     }
 
     protected ConcurrentMap<String, Generator> cache = new ConcurrentHashMap<>();
 
+    protected volatile ExecutorService prefetchExecutor;
+
     @Inject
     protected GlobalConfig config;
 
@@ -118,6 +192,19 @@ public class NumberIdCache {
         return gen.getNext();
     }
 
+    /**
+     * @return statistics of block refills, background prefetches and threads waiting for a new block
+     */
+    public String printStatistics() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Generator> entry : cache.entrySet()) {
+            Generator gen = entry.getValue();
+            sb.append(String.format("%s: refills: %s, prefetches: %s, waits: %s\n",
+                    entry.getKey(), gen.refills.sum(), gen.prefetches.sum(), gen.waits.sum()));
+        }
+        return sb.toString();
+    }
+
     /**
      * INTERNAL. Used by tests.
      */
@@ -125,7 +212,28 @@ public class NumberIdCache {
         cache.clear();
     }
 
+    @PreDestroy
+    protected void shutdown() {
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdownNow();
+        }
+    }
+
+    protected ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            synchronized (this) {
+                if (prefetchExecutor == null) {
+                    prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                            .setNameFormat("NumberIdCachePrefetch-%d")
+                            .setDaemon(true)
+                            .build());
+                }
+            }
+        }
+        return prefetchExecutor;
+    }
+
     protected String getCacheKey(String entityName, String sequenceName) {
         return sequenceName == null ? entityName : sequenceName;
     }
-}
\ No newline at end of file
+}
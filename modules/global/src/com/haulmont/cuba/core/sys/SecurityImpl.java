@@ -30,7 +30,10 @@ import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
 import com.haulmont.cuba.security.global.ConstraintData;
 import com.haulmont.cuba.security.global.UserSession;
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import org.apache.commons.lang3.StringUtils;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -88,6 +91,10 @@ public class SecurityImpl implements Security {
 
     @Override
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
+        if (property.indexOf('.') < 0 && metaClass.getProperty(property) != null) {
+            // a direct property of the class, no need to build the property path
+            return isEntityAttrPermittedByName(metaClass, property, access);
+        }
         MetaPropertyPath mpp = metadataTools.resolveMetaPropertyPath(metaClass, property);
         return mpp != null && isEntityAttrPermitted(metaClass, mpp, access);
     }
@@ -129,13 +136,16 @@ public class SecurityImpl implements Security {
     }
 
     protected boolean isEntityAttrPermitted(MetaClass metaClass, MetaPropertyPath propertyPath, EntityAttrAccess access) {
+        return isEntityAttrPermittedByName(metaClass, propertyPath.getMetaProperty().getName(), access);
+    }
+
+    protected boolean isEntityAttrPermittedByName(MetaClass metaClass, String propertyName, EntityAttrAccess access) {
         MetaClass originalMetaClass = extendedEntities.getOriginalMetaClass(metaClass);
         if (originalMetaClass != null) {
             metaClass = originalMetaClass;
         }
 
-        return userSessionSource.getUserSession()
-                .isEntityAttrPermitted(metaClass, propertyPath.getMetaProperty().getName(), access);
+        return userSessionSource.getUserSession().isEntityAttrPermitted(metaClass, propertyName, access);
     }
 
     @Override
@@ -206,15 +216,42 @@ public class SecurityImpl implements Security {
     }
 
     protected boolean isPermitted(Entity entity, Predicate<ConstraintData> predicate) {
-        List<ConstraintData> constraints = getConstraints(entity.getMetaClass(), predicate);
-        for (ConstraintData constraint : constraints) {
-            if (!isPermitted(entity, constraint)) {
+        return isPermitted(entity, createConstraintsEvaluation(predicate));
+    }
+
+    /**
+     * Checks the entity against in-memory constraints selected by the evaluation. Use the same evaluation
+     * to check a number of entities, so the constraints are selected only once.
+     */
+    protected boolean isPermitted(Entity entity, ConstraintsEvaluation evaluation) {
+        for (ConstraintData constraint : evaluation.getConstraints(entity.getMetaClass())) {
+            if (!evaluation.isPermitted(entity, constraint)) {
                 return false;
             }
         }
         return true;
     }
 
+    protected ConstraintsEvaluation createConstraintsEvaluation(Predicate<ConstraintData> predicate) {
+        return new ConstraintsEvaluation(predicate);
+    }
+
+    protected Class<? extends Script> getConstraintScriptClass(String groovyScript) {
+        return scripting.compileGroovy(groovyScript.replace("{E}", "__entity__"));
+    }
+
+    protected Map<String, Object> createConstraintScriptContext() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("parse", new MethodClosure(this, "parseValue"));
+        context.put("userSession", userSessionSource.getUserSession());
+        fillGroovyConstraintsContext(context);
+        return context;
+    }
+
+    /**
+     * Checks the entity against a single constraint. Both single and bulk checks of in-memory constraints
+     * are made by this method.
+     */
     protected boolean isPermitted(Entity entity, ConstraintData constraint) {
         String metaClassName = entity.getMetaClass().getName();
         String groovyScript = constraint.getGroovyScript();
@@ -237,12 +274,9 @@ public class SecurityImpl implements Security {
 
     @Override
     public Object evaluateConstraintScript(Entity entity, String groovyScript) {
-        Map<String, Object> context = new HashMap<>();
-        context.put("__entity__", entity);
-        context.put("parse", new MethodClosure(this, "parseValue"));
-        context.put("userSession", userSessionSource.getUserSession());
-        fillGroovyConstraintsContext(context);
-        return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
+        Binding binding = new Binding(createConstraintScriptContext());
+        binding.setVariable("__entity__", entity);
+        return InvokerHelper.createScript(getConstraintScriptClass(groovyScript), binding).run();
     }
 
     /**
@@ -286,4 +320,76 @@ public class SecurityImpl implements Security {
                     "See the log for details.", clazz, string), null);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Evaluation of in-memory constraints selected by a predicate for a number of entities in one thread.
+     * Constraints of each meta-class are selected once per evaluation, and each constraint is checked by
+     * {@link SecurityImpl#isPermitted(Entity, ConstraintData)} as for a single entity.
+     */
+    protected class ConstraintsEvaluation {
+
+        protected final Predicate<ConstraintData> predicate;
+        protected final Map<MetaClass, List<ConstraintData>> constraints = new HashMap<>();
+        protected final Map<ConstraintData, ConstraintStatistics> statistics = new LinkedHashMap<>();
+
+        protected ConstraintsEvaluation(Predicate<ConstraintData> predicate) {
+            this.predicate = predicate;
+        }
+
+        public List<ConstraintData> getConstraints(MetaClass metaClass) {
+            return constraints.computeIfAbsent(metaClass,
+                    mc -> SecurityImpl.this.getConstraints(mc, predicate));
+        }
+
+        public boolean isPermitted(Entity entity, ConstraintData constraint) {
+            long start = System.nanoTime();
+            try {
+                return SecurityImpl.this.isPermitted(entity, constraint);
+            } finally {
+                statistics.computeIfAbsent(constraint, c -> new ConstraintStatistics())
+                        .add(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Logs the number of evaluations and the time spent on each constraint.
+         */
+        public void logStatistics() {
+            if (log.isDebugEnabled()) {
+                for (Map.Entry<ConstraintData, ConstraintStatistics> entry : statistics.entrySet()) {
+                    ConstraintStatistics stat = entry.getValue();
+                    log.debug("Constraint [{}] evaluated {} times in {} ms",
+                            entry.getKey().getId(), stat.count, stat.nanos / 1_000_000);
+                }
+            }
+        }
+
+        public Map<ConstraintData, ConstraintStatistics> getStatistics() {
+            return Collections.unmodifiableMap(statistics);
+        }
+    }
+
+    public static class ConstraintStatistics {
+        protected int count;
+        protected long nanos;
+
+        protected void add(long elapsedNanos) {
+            count++;
+            nanos += elapsedNanos;
+        }
+
+        /**
+         * @return number of evaluations of the constraint
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return total time of evaluations in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -104,4 +104,18 @@ public class JPATreeNodes {
         node.addChild(createRPAREN());
         return node;
     }
+
+    /**
+     * Creates a deep copy of the given node. Custom nodes duplicate their children themselves, plain ANTLR nodes
+     * are duplicated without children, so the children are copied here.
+     */
+    public static CommonTree copyTree(CommonTree node) {
+        CommonTree copy = (CommonTree) node.dupNode();
+        if (copy.getChildCount() == 0) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                copy.addChild(copyTree((CommonTree) node.getChild(i)));
+            }
+        }
+        return copy;
+    }
 }
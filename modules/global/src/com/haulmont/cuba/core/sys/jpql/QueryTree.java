@@ -26,10 +26,12 @@ import org.antlr.runtime.tree.TreeVisitor;
 import org.antlr.runtime.tree.TreeVisitorAction;
 import org.apache.commons.lang3.StringUtils;
 
-
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
+import static java.lang.String.format;
+
 public class QueryTree {
     protected String queryString;
     protected DomainModel model;
@@ -57,6 +59,41 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Parses the query and checks it for invalid identification variables.
+     *
+     * @throws JpqlSyntaxException if the query cannot be parsed
+     */
+    public static QueryTree parse(DomainModel model, String query) {
+        QueryTree queryTree;
+        try {
+            queryTree = new QueryTree(model, query);
+        } catch (JPA2RecognitionException e) {
+            throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
+        }
+        List<ErrorRec> errors = new ArrayList<>(queryTree.getInvalidIdVarNodes());
+        if (!errors.isEmpty()) {
+            throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]", StringUtils.strip(query)), errors);
+        }
+        return queryTree;
+    }
+
+    /**
+     * @return deep copy of this tree that can be transformed without affecting the original one
+     */
+    public QueryTree copy() {
+        return new QueryTree(model, queryString, JPATreeNodes.copyTree(tree));
+    }
+
     public DomainModel getModel() {
         return model;
     }
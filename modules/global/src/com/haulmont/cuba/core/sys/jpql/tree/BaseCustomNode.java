@@ -18,10 +18,10 @@
 package com.haulmont.cuba.core.sys.jpql.tree;
 
 import com.haulmont.cuba.core.sys.jpql.ErrorRec;
+import com.haulmont.cuba.core.sys.jpql.JPATreeNodes;
 import com.haulmont.cuba.core.sys.jpql.QueryBuilder;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.tree.CommonTree;
-import org.antlr.runtime.tree.Tree;
 
 import java.util.List;
 
@@ -53,10 +53,11 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null) {
+            return;
+        }
         for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+            result.addChild(JPATreeNodes.copyTree((CommonTree) child));
         }
     }
 }
\ No newline at end of file
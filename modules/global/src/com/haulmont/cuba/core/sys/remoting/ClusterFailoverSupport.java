@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.google.common.io.CountingInputStream;
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.util.StopWatch;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Executes HTTP invoker requests on a server selected by {@link ServerSelector}. If a request fails with
+ * {@link IOException}, it is repeated on the next available server.
+ * <p>
+ * Used by {@link ClusteredHttpInvokerRequestExecutor} and {@link PooledHttpInvokerRequestExecutor}, which differ
+ * only in how a request is sent.
+ */
+public class ClusterFailoverSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterFailoverSupport.class);
+
+    protected ServerSelector serverSelector;
+
+    public ClusterFailoverSupport(ServerSelector serverSelector) {
+        this.serverSelector = serverSelector;
+    }
+
+    /**
+     * A single attempt to execute an invocation on a server.
+     */
+    public interface Request extends AutoCloseable {
+
+        /**
+         * Sends the invocation and validates the response.
+         *
+         * @return response body
+         */
+        InputStream execute() throws IOException;
+
+        /**
+         * Reads the invocation result from the response body returned by {@link #execute()}.
+         */
+        RemoteInvocationResult readResult(InputStream responseBody) throws IOException, ClassNotFoundException;
+
+        /**
+         * Releases resources of the attempt. Invoked after the result is read or the attempt has failed.
+         */
+        @Override
+        default void close() {
+        }
+    }
+
+    public interface RequestFactory {
+
+        /**
+         * @param serverUrl  URL of the selected server
+         * @param serviceUrl URL of the service on the selected server
+         */
+        Request create(String serverUrl, String serviceUrl) throws IOException;
+    }
+
+    public RemoteInvocationResult execute(HttpInvokerClientConfiguration config, RequestFactory requestFactory)
+            throws IOException, ClassNotFoundException {
+        Object context = serverSelector.initContext();
+        String serverUrl = serverSelector.getUrl(context);
+        if (serverUrl == null)
+            throw new IllegalStateException("Server URL list is empty");
+
+        while (true) {
+            String url = serverUrl + "/" + config.getServiceUrl();
+            try (Request request = requestFactory.create(serverUrl, url)) {
+                StopWatch sw = new StopWatch();
+                sw.start("waiting time");
+                CountingInputStream responseInputStream = new CountingInputStream(request.execute());
+                sw.stop();
+
+                serverSelector.success(context);
+
+                sw.start("reading time");
+                RemoteInvocationResult result = request.readResult(responseInputStream);
+                sw.stop();
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
+                            responseInputStream.getCount(), printStopWatch(sw)));
+                }
+                return result;
+            } catch (IOException e) {
+                log.info(String.format("Invocation of %s failed: %s", url, e));
+
+                serverSelector.fail(context);
+                serverUrl = serverSelector.getUrl(context);
+                if (serverUrl != null) {
+                    log.info("Trying to invoke the next available URL: " + serverUrl + "/" + config.getServiceUrl());
+                    continue;
+                }
+                log.info("No more URL available");
+                throw e;
+            }
+        }
+    }
+
+    protected String printStopWatch(StopWatch sw) {
+        StringBuilder sb = new StringBuilder();
+        StopWatch.TaskInfo[] tasks = sw.getTaskInfo();
+        for (int i = 0; i < tasks.length; i++) {
+            StopWatch.TaskInfo task = tasks[i];
+            sb.append(task.getTaskName()).append(" ").append(task.getTimeMillis());
+            if (i < tasks.length - 1) {
+                sb.append(", ");
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -17,23 +17,14 @@
 
 package com.haulmont.cuba.core.sys.remoting;
 
-import com.google.common.io.CountingInputStream;
-import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
 import org.springframework.remoting.httpinvoker.SimpleHttpInvokerRequestExecutor;
 import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationResult;
-import org.springframework.util.StopWatch;
 
-import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
@@ -44,73 +35,37 @@ import java.net.URLConnection;
  */
 public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
 
-    private ServerSelector serverSelector;
+    protected ClusterFailoverSupport failoverSupport;
 
-    private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
+    public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector, RemotingConfig remotingConfig) {
+        this.failoverSupport = new ClusterFailoverSupport(serverSelector);
 
-    public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector) {
-        this.serverSelector = serverSelector;
-
-        String connectTimeoutProp = AppContext.getProperty("cuba.connectionTimeout");
-        setConnectTimeout(connectTimeoutProp == null ? -1 : Integer.parseInt(connectTimeoutProp));
-
-        String readTimeoutProp = AppContext.getProperty("cuba.connectionReadTimeout");
-        setReadTimeout(readTimeoutProp == null ? -1 : Integer.parseInt(readTimeoutProp));
+        setConnectTimeout(remotingConfig.getConnectionTimeout());
+        setReadTimeout(remotingConfig.getConnectionReadTimeout());
     }
 
     @Override
     protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config, ByteArrayOutputStream baos)
             throws IOException, ClassNotFoundException {
-
-        RemoteInvocationResult result;
-
-        Object context = serverSelector.initContext();
-        String url = currentServiceUrl(serverSelector.getUrl(context), config);
-        if (url == null)
-            throw new IllegalStateException("Server URL list is empty");
-
-        while (true) {
-            HttpURLConnection con = openConnection(url);
-            try {
-                StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
-                sw.start("waiting time");
-                validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
-                sw.stop();
-
-                serverSelector.success(context);
-
-                sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
+        return failoverSupport.execute(config, (serverUrl, serviceUrl) -> {
+            HttpURLConnection con = openConnection(serviceUrl);
+            return new ClusterFailoverSupport.Request() {
+                @Override
+                public InputStream execute() throws IOException {
+                    prepareConnection(con, baos.size());
+                    writeRequestBody(config, con, baos);
+                    validateResponse(config, con);
+                    return readResponseBody(config, con);
                 }
-                sw.stop();
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
-                            responseInputStream.getCount(), printStopWatch(sw)));
-                }
-                break;
-            } catch (IOException e) {
-                log.info(String.format("Invocation of %s failed: %s", url, e));
 
-                serverSelector.fail(context);
-                url = currentServiceUrl(serverSelector.getUrl(context), config);
-                if (url != null) {
-                    log.info("Trying to invoke the next available URL: " + url);
-                    continue;
+                @Override
+                public RemoteInvocationResult readResult(InputStream responseBody) throws IOException, ClassNotFoundException {
+                    try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+                        return doReadRemoteInvocationResult(ois);
+                    }
                 }
-                log.info("No more URL available");
-                throw e;
-            }
-        }
-        return result;
-    }
-
-    @Nullable
-    protected String currentServiceUrl(String url, HttpInvokerClientConfiguration config) {
-        return url == null ? null :  url + "/" + config.getServiceUrl();
+            };
+        });
     }
 
     protected HttpURLConnection openConnection(String serviceUrl) throws IOException {
@@ -130,17 +85,4 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
     protected RemoteInvocationResult doReadRemoteInvocationResult(ObjectInputStream ois) throws IOException, ClassNotFoundException {
         return (RemoteInvocationResult) SerializationSupport.deserialize(ois);
     }
-
-    protected String printStopWatch(StopWatch sw) {
-        StringBuilder sb = new StringBuilder();
-        StopWatch.TaskInfo[] tasks = sw.getTaskInfo();
-        for (int i = 0; i < tasks.length; i++) {
-            StopWatch.TaskInfo task = tasks[i];
-            sb.append(task.getTaskName()).append(" ").append(task.getTimeMillis());
-            if (i < tasks.length - 1) {
-                sb.append(", ");
-            }
-        }
-        return sb.toString();
-    }
 }
@@ -17,22 +17,48 @@
 
 package com.haulmont.cuba.core.sys.remoting;
 
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.RemoteException;
 import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.remoting.httpinvoker.HttpInvokerProxyFactoryBean;
 import org.springframework.remoting.support.RemoteInvocationResult;
 import org.springframework.remoting.support.RemoteInvocationUtils;
 
 import java.lang.reflect.InvocationTargetException;
 
-public class HttpServiceProxy extends HttpInvokerProxyFactoryBean {
+public class HttpServiceProxy extends HttpInvokerProxyFactoryBean implements DisposableBean {
 
+    /**
+     * Creates the proxy when the application context is already initialized.
+     */
     public HttpServiceProxy(ServerSelector selector) {
+        this(selector, AppBeans.get(Configuration.class).getConfig(RemotingConfig.class));
+    }
+
+    public HttpServiceProxy(ServerSelector selector, RemotingConfig remotingConfig) {
         setRemoteInvocationFactory(new CubaRemoteInvocationFactory());
 
-        ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(selector);
-        executor.setBeanClassLoader(getBeanClassLoader());
-        setHttpInvokerRequestExecutor(executor);
+        if (remotingConfig.getRemotingConnectionPoolEnabled()) {
+            PooledHttpInvokerRequestExecutor executor = new PooledHttpInvokerRequestExecutor(selector, remotingConfig);
+            executor.setBeanClassLoader(getBeanClassLoader());
+            setHttpInvokerRequestExecutor(executor);
+        } else {
+            ClusteredHttpInvokerRequestExecutor executor = new ClusteredHttpInvokerRequestExecutor(selector, remotingConfig);
+            executor.setBeanClassLoader(getBeanClassLoader());
+            setHttpInvokerRequestExecutor(executor);
+        }
+    }
+
+    /**
+     * Releases resources of the request executor, e.g. pooled connections.
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (getHttpInvokerRequestExecutor() instanceof DisposableBean) {
+            ((DisposableBean) getHttpInvokerRequestExecutor()).destroy();
+        }
     }
 
     @Override
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.remoting.discovery.ServerSelector;
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.StatusLine;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.httpinvoker.HttpInvokerRequestExecutor;
+import org.springframework.remoting.rmi.CodebaseAwareObjectInputStream;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.*;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
+ * topology, provided by {@link ServerSelector}.
+ * <p>
+ * Unlike {@link ClusteredHttpInvokerRequestExecutor}, uses persistent connections from a pool and writes the
+ * invocation directly to the request body. Responses compressed by the server are accepted, and once a server has
+ * sent a compressed response, requests to it are compressed too.
+ * <p>
+ * The pool is owned by the executor, its size is determined by {@link RemotingConfig#getRemotingMaxConnections()}.
+ * The pool is closed by {@link #destroy()}.
+ */
+public class PooledHttpInvokerRequestExecutor implements HttpInvokerRequestExecutor, BeanClassLoaderAware,
+        DisposableBean {
+
+    protected static final String CONTENT_TYPE_SERIALIZED_OBJECT = "application/x-java-serialized-object";
+
+    protected static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * Server URLs which are known to accept compressed requests.
+     */
+    protected final Set<String> compressingServers = ConcurrentHashMap.newKeySet();
+
+    protected ClusterFailoverSupport failoverSupport;
+
+    protected CloseableHttpClient httpClient;
+
+    protected RequestConfig requestConfig;
+
+    protected ClassLoader beanClassLoader;
+
+    public PooledHttpInvokerRequestExecutor(ServerSelector serverSelector, RemotingConfig remotingConfig) {
+        this.failoverSupport = new ClusterFailoverSupport(serverSelector);
+        this.httpClient = createHttpClient(remotingConfig.getRemotingMaxConnections());
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout(remotingConfig.getConnectionTimeout())
+                .setSocketTimeout(remotingConfig.getConnectionReadTimeout())
+                .build();
+    }
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.beanClassLoader = classLoader;
+    }
+
+    /**
+     * Closes the pooled connections.
+     */
+    @Override
+    public void destroy() throws IOException {
+        httpClient.close();
+    }
+
+    @Override
+    public RemoteInvocationResult executeRequest(HttpInvokerClientConfiguration config, RemoteInvocation invocation)
+            throws Exception {
+        return failoverSupport.execute(config,
+                (serverUrl, serviceUrl) -> new PooledRequest(serverUrl, serviceUrl, invocation, config.getCodebaseUrl()));
+    }
+
+    protected HttpPost createHttpPost(String url, RemoteInvocation invocation, boolean compress) {
+        HttpPost httpPost = new HttpPost(url);
+        httpPost.setConfig(requestConfig);
+        httpPost.addHeader(HttpHeaders.ACCEPT_ENCODING, ENCODING_GZIP);
+        httpPost.setEntity(new RemoteInvocationEntity(invocation, compress));
+        return httpPost;
+    }
+
+    protected void validateResponse(HttpResponse response) throws IOException {
+        StatusLine status = response.getStatusLine();
+        if (status.getStatusCode() >= 300) {
+            throw new NoHttpResponseException(
+                    "Did not receive successful HTTP response: status code = " + status.getStatusCode() +
+                            ", status message = [" + status.getReasonPhrase() + "]");
+        }
+    }
+
+    protected boolean isGzipResponse(HttpResponse response) {
+        Header encodingHeader = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+        return encodingHeader != null && encodingHeader.getValue() != null
+                && encodingHeader.getValue().toLowerCase().contains(ENCODING_GZIP);
+    }
+
+    protected ObjectInputStream createObjectInputStream(InputStream is, String codebaseUrl) throws IOException {
+        return new CodebaseAwareObjectInputStream(is, beanClassLoader, codebaseUrl);
+    }
+
+    protected void writeRemoteInvocation(RemoteInvocation invocation, OutputStream os) throws IOException {
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            SerializationSupport.serialize(invocation, oos);
+        }
+    }
+
+    protected RemoteInvocationResult doReadRemoteInvocationResult(ObjectInputStream ois) throws IOException {
+        return (RemoteInvocationResult) SerializationSupport.deserialize(ois);
+    }
+
+    protected CloseableHttpClient createHttpClient(int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        return HttpClientBuilder.create()
+                .setConnectionManager(connectionManager)
+                // compression is negotiated by the executor
+                .disableContentCompression()
+                .build();
+    }
+
+    /**
+     * Execution of the invocation on a single server. Remembers whether the server compresses responses.
+     */
+    protected class PooledRequest implements ClusterFailoverSupport.Request {
+
+        protected final String serverUrl;
+        protected final String codebaseUrl;
+        protected final HttpPost httpPost;
+        protected boolean gzipResponse;
+
+        public PooledRequest(String serverUrl, String serviceUrl, RemoteInvocation invocation, String codebaseUrl) {
+            this.serverUrl = serverUrl;
+            this.codebaseUrl = codebaseUrl;
+            this.httpPost = createHttpPost(serviceUrl, invocation, compressingServers.contains(serverUrl));
+        }
+
+        @Override
+        public InputStream execute() throws IOException {
+            HttpResponse response = httpClient.execute(httpPost);
+            validateResponse(response);
+
+            gzipResponse = isGzipResponse(response);
+            if (gzipResponse) {
+                compressingServers.add(serverUrl);
+            }
+            return response.getEntity().getContent();
+        }
+
+        @Override
+        public RemoteInvocationResult readResult(InputStream responseBody) throws IOException {
+            InputStream is = gzipResponse ? new GZIPInputStream(responseBody) : responseBody;
+            try (ObjectInputStream ois = createObjectInputStream(is, codebaseUrl)) {
+                return doReadRemoteInvocationResult(ois);
+            }
+        }
+
+        @Override
+        public void close() {
+            httpPost.releaseConnection();
+        }
+    }
+
+    /**
+     * Request body which serializes the invocation directly into the connection output stream.
+     * The invocation is serialized again if the request is repeated on another server.
+     */
+    protected class RemoteInvocationEntity extends AbstractHttpEntity {
+
+        protected final RemoteInvocation invocation;
+        protected final boolean compress;
+
+        public RemoteInvocationEntity(RemoteInvocation invocation, boolean compress) {
+            this.invocation = invocation;
+            this.compress = compress;
+            setContentType(CONTENT_TYPE_SERIALIZED_OBJECT);
+            if (compress) {
+                setContentEncoding(ENCODING_GZIP);
+            }
+            setChunked(true);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        /**
+         * The HTTP client sends the entity by {@link #writeTo(OutputStream)}. The content is buffered only if it is
+         * requested explicitly, e.g. by a request interceptor.
+         */
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            writeTo(buffer);
+            return new ByteArrayInputStream(buffer.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            writeRemoteInvocation(invocation, compress ? new GZIPOutputStream(outStream, 8192) : outStream);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
@@ -69,7 +70,9 @@ public class RemoteProxyBeanCreator implements BeanFactoryPostProcessor, Applica
 
             String serviceUrl = name;
             String serviceInterface = entry.getValue();
-            BeanDefinition definition = new RootBeanDefinition(HttpServiceProxy.class);
+            RootBeanDefinition definition = new RootBeanDefinition(HttpServiceProxy.class);
+            // RemotingConfig argument is resolved by the bean factory, as the context is not initialized yet
+            definition.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
             definition.getConstructorArgumentValues().addIndexedArgumentValue(0, serverSelector);
             MutablePropertyValues propertyValues = definition.getPropertyValues();
             propertyValues.add("serviceUrl", serviceUrl);
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.config.Config;
+import com.haulmont.cuba.core.config.Property;
+import com.haulmont.cuba.core.config.Source;
+import com.haulmont.cuba.core.config.SourceType;
+import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
+
+/**
+ * Configuration parameters of the HTTP remoting between client blocks and middleware.
+ */
+@Source(type = SourceType.APP)
+public interface RemotingConfig extends Config {
+
+    /**
+     * @return whether client blocks send requests to middleware through a pool of persistent connections.
+     * If false, a new connection is opened for each request.
+     */
+    @Property("cuba.remotingConnectionPoolEnabled")
+    @DefaultBoolean(false)
+    boolean getRemotingConnectionPoolEnabled();
+
+    /**
+     * @return maximum number of pooled connections to middleware for each remote service proxy
+     */
+    @Property("cuba.remotingMaxConnections")
+    @DefaultInt(100)
+    int getRemotingMaxConnections();
+
+    /**
+     * @return whether middleware compresses service results for clients accepting gzip encoding.
+     * Clients using the connection pool start compressing their requests after the first compressed response.
+     */
+    @Property("cuba.remotingCompressionEnabled")
+    @DefaultBoolean(false)
+    boolean getRemotingCompressionEnabled();
+
+    /**
+     * @return timeout in milliseconds for opening a connection to middleware, -1 for the system default
+     */
+    @Property("cuba.connectionTimeout")
+    @DefaultInt(-1)
+    int getConnectionTimeout();
+
+    /**
+     * @return timeout in milliseconds for reading a response from middleware, -1 for the system default
+     */
+    @Property("cuba.connectionReadTimeout")
+    @DefaultInt(-1)
+    int getConnectionReadTimeout();
+}
@@ -26,6 +26,8 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -58,12 +60,17 @@ public class UserSession implements Serializable {
 
     protected transient Map<String, Object> localAttributes;
 
+    protected transient AtomicReference<EntityPermissionMatrix> entityPermissionMatrix;
+    protected transient AtomicLong entityPermissionsVersion;
+
     /**
      * INTERNAL
      * Used only for kryo serialization
      */
     public UserSession() {
         localAttributes = new ConcurrentHashMap<>();
+        entityPermissionMatrix = new AtomicReference<>();
+        entityPermissionsVersion = new AtomicLong();
     }
 
     /**
@@ -93,6 +100,8 @@ public class UserSession implements Serializable {
         constraints = new HashMap<>();
         attributes = new ConcurrentHashMap<>();
         localAttributes = new ConcurrentHashMap<>();
+        entityPermissionMatrix = new AtomicReference<>();
+        entityPermissionsVersion = new AtomicLong();
     }
 
     /**
@@ -116,6 +125,8 @@ public class UserSession implements Serializable {
         locale = src.locale;
         timeZone = src.timeZone;
         permissions = src.permissions;
+        entityPermissionMatrix = src.entityPermissionMatrix;
+        entityPermissionsVersion = src.entityPermissionsVersion;
         constraints = src.constraints;
         attributes = src.attributes;
         roleTypes = src.roleTypes;
@@ -127,6 +138,8 @@ public class UserSession implements Serializable {
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
         stream.defaultReadObject();
         localAttributes = new ConcurrentHashMap<>();
+        entityPermissionMatrix = new AtomicReference<>();
+        entityPermissionsVersion = new AtomicLong();
     }
 
     /**
@@ -264,6 +277,7 @@ public class UserSession implements Serializable {
             permissions[type.ordinal()].put(target, value);
             if (extTarget != null)
                 permissions[type.ordinal()].put(extTarget, value);
+            resetEntityPermissionMatrix(type);
         }
     }
 
@@ -272,6 +286,7 @@ public class UserSession implements Serializable {
      */
     public void removePermission(PermissionType type, String target) {
         permissions[type.ordinal()].remove(target);
+        resetEntityPermissionMatrix(type);
     }
 
     /**
@@ -299,17 +314,103 @@ public class UserSession implements Serializable {
      * Check user permission for the entity operation
      */
     public boolean isEntityOpPermitted(MetaClass metaClass, EntityOp entityOp) {
-        return isPermitted(PermissionType.ENTITY_OP,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + entityOp.getId());
+        return getEntityPermissions(metaClass.getName()).isOpPermitted(entityOp);
     }
 
     /**
      * Check user permission for the entity attribute
      */
     public boolean isEntityAttrPermitted(MetaClass metaClass, String property, EntityAttrAccess access) {
-        return isPermitted(PermissionType.ENTITY_ATTR,
-                metaClass.getName() + Permission.TARGET_PATH_DELIMETER + property,
-                access.getId());
+        return getEntityPermissions(metaClass.getName()).isAttrPermitted(property, access);
+    }
+
+    protected EntityPermissions getEntityPermissions(String entityName) {
+        EntityPermissionMatrix matrix = entityPermissionMatrix.get();
+        if (matrix == null || matrix.version != entityPermissionsVersion.get()) {
+            EntityPermissionMatrix staleMatrix = matrix;
+            matrix = compileEntityPermissionMatrix();
+            // a matrix compiled concurrently with a permission change is published too,
+            // but it is rejected by the version check on the next call
+            entityPermissionMatrix.compareAndSet(staleMatrix, matrix);
+        }
+        EntityPermissions entityPermissions = matrix.entities.get(entityName);
+        return entityPermissions != null ? entityPermissions : matrix.defaults;
+    }
+
+    protected void resetEntityPermissionMatrix(PermissionType type) {
+        if (type == PermissionType.ENTITY_OP || type == PermissionType.ENTITY_ATTR) {
+            entityPermissionsVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * INTERNAL
+     * Compiles entity operation and attribute permissions of the session to the form checked without building
+     * permission targets. Invoked on the first check if not invoked explicitly after the permissions are changed.
+     */
+    public void compileEntityPermissions() {
+        entityPermissionMatrix.set(compileEntityPermissionMatrix());
+    }
+
+    protected EntityPermissionMatrix compileEntityPermissionMatrix() {
+        // the version is taken before reading permissions, so changes made during compilation invalidate the result
+        long version = entityPermissionsVersion.get();
+
+        Map<String, Map<String, Integer>> attrValues = new HashMap<>();
+        for (String target : permissions[PermissionType.ENTITY_ATTR.ordinal()].keySet()) {
+            int pos = target.indexOf(Permission.TARGET_PATH_DELIMETER);
+            if (pos > 0) {
+                String property = target.substring(pos + 1);
+                Integer value = getEffectivePermissionValue(PermissionType.ENTITY_ATTR, target);
+                if (value != null) {
+                    attrValues.computeIfAbsent(target.substring(0, pos), name -> new HashMap<>())
+                            .put(property, value);
+                }
+            }
+        }
+
+        Set<String> entityNames = new HashSet<>(attrValues.keySet());
+        for (String target : permissions[PermissionType.ENTITY_OP.ordinal()].keySet()) {
+            int pos = target.indexOf(Permission.TARGET_PATH_DELIMETER);
+            if (pos > 0) {
+                entityNames.add(target.substring(0, pos));
+            }
+        }
+
+        Map<String, EntityPermissions> entities = new HashMap<>(entityNames.size());
+        for (String entityName : entityNames) {
+            entities.put(entityName, compileEntityPermissions(entityName,
+                    attrValues.getOrDefault(entityName, Collections.emptyMap())));
+        }
+        // permissions of entities not mentioned in the session are defined by the role types only
+        EntityPermissions defaults = compileEntityPermissions("", Collections.emptyMap());
+
+        return new EntityPermissionMatrix(version, entities, defaults);
+    }
+
+    protected EntityPermissions compileEntityPermissions(String entityName, Map<String, Integer> attrValues) {
+        int permittedOps = 0;
+        for (EntityOp entityOp : EntityOp.values()) {
+            if (isPermitted(PermissionType.ENTITY_OP, entityName + Permission.TARGET_PATH_DELIMETER + entityOp.getId())) {
+                permittedOps |= 1 << entityOp.ordinal();
+            }
+        }
+        return new EntityPermissions(permittedOps, attrValues);
+    }
+
+    @Nullable
+    protected Integer getEffectivePermissionValue(PermissionType type, String target) {
+        if (roleTypes.contains(RoleType.SUPER))
+            return null;
+
+        Integer v = permissions[type.ordinal()].get(target);
+        for (RoleType roleType : roleTypes) {
+            Integer v1 = roleType.permissionValue(type, target);
+            if (v1 != null && (v == null || v < v1)) {
+                v = v1;
+            }
+        }
+        return v;
     }
 
     /**
@@ -356,15 +457,8 @@ public class UserSession implements Serializable {
         // If we have super-role no need to check anything
         if (roleTypes.contains(RoleType.SUPER))
             return true;
-        // Get permission value assigned by the set of permissions
-        Integer v = permissions[type.ordinal()].get(target);
-        // Get permission value assigned by non-standard roles
-        for (RoleType roleType : roleTypes) {
-            Integer v1 = roleType.permissionValue(type, target);
-            if (v1 != null && (v == null || v < v1)) {
-                v = v1;
-            }
-        }
+        // Get permission value assigned by the set of permissions and by non-standard roles
+        Integer v = getEffectivePermissionValue(type, target);
         // Return true if no value set for this target, or if the value is more than requested
         return v == null || v >= value;
     }
@@ -535,6 +629,45 @@ public class UserSession implements Serializable {
         return system;
     }
 
+    /**
+     * Compiled entity operation and attribute permissions of the session. Valid while the permissions version of
+     * the session is equal to {@link #version}.
+     */
+    protected static class EntityPermissionMatrix {
+        protected final long version;
+        protected final Map<String, EntityPermissions> entities;
+        protected final EntityPermissions defaults;
+
+        protected EntityPermissionMatrix(long version, Map<String, EntityPermissions> entities,
+                                         EntityPermissions defaults) {
+            this.version = version;
+            this.entities = entities;
+            this.defaults = defaults;
+        }
+    }
+
+    /**
+     * Compiled permissions of an entity: a bit per permitted {@link EntityOp} and permission values of attributes.
+     */
+    protected static class EntityPermissions {
+        protected final int permittedOps;
+        protected final Map<String, Integer> attrValues;
+
+        protected EntityPermissions(int permittedOps, Map<String, Integer> attrValues) {
+            this.permittedOps = permittedOps;
+            this.attrValues = attrValues;
+        }
+
+        public boolean isOpPermitted(EntityOp entityOp) {
+            return (permittedOps & (1 << entityOp.ordinal())) != 0;
+        }
+
+        public boolean isAttrPermitted(String property, EntityAttrAccess access) {
+            Integer v = attrValues.get(property);
+            return v == null || v >= access.getId();
+        }
+    }
+
     @Override
     public String toString() {
         return id + " ["
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.config;
+
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
+import com.haulmont.cuba.core.config.defaults.DefaultString;
+import com.haulmont.cuba.core.config.type.Factory;
+import com.haulmont.cuba.core.config.type.StringListTypeFactory;
+import com.haulmont.cuba.core.sys.AppComponents;
+import com.haulmont.cuba.core.sys.AppProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConfigHandlerTest {
+
+    private AppProperties appProperties;
+
+    @Before
+    public void setUp() {
+        appProperties = new AppProperties(new AppComponents("core"));
+        appProperties.setProperty("test.stringProp", "abc");
+        appProperties.setProperty("test.listProp", "a|b");
+    }
+
+    @Test
+    public void testValueIsUpdatedAfterChange() {
+        TestConfig config = createConfig(true);
+
+        assertEquals(10, config.getIntProp());
+        assertEquals("abc", config.getStringProp());
+
+        appProperties.setProperty("test.intProp", "20");
+        assertEquals(20, config.getIntProp());
+
+        config.setStringProp("def");
+        assertEquals("def", config.getStringProp());
+
+        appProperties.setProperty("test.stringProp", null);
+        assertEquals("default", config.getStringProp());
+    }
+
+    @Test
+    public void testMutableValueIsNotShared() {
+        TestConfig config = createConfig(true);
+
+        List<String> list = config.getListProp();
+        list.clear();
+
+        assertEquals(2, config.getListProp().size());
+    }
+
+    @Test
+    public void testSnapshotIsUsedUntilVersionChanges() {
+        TestConfigPersister persister = new TestConfigPersister(true);
+        TestConfig config = createConfig(persister);
+
+        assertEquals(10, config.getIntProp());
+        int lookups = persister.getLookups("test.intProp");
+        assertTrue(lookups > 0);
+
+        assertEquals(10, config.getIntProp());
+        assertEquals(10, config.getIntProp());
+        assertEquals(lookups, persister.getLookups("test.intProp"));
+
+        // e.g. ConfigStorageAPI.getCacheVersion() has changed after the DB properties cache was cleared
+        persister.cacheVersion++;
+        assertEquals(10, config.getIntProp());
+        assertEquals(2 * lookups, persister.getLookups("test.intProp"));
+
+        appProperties.setProperty("test.otherProp", "value");
+        assertEquals(10, config.getIntProp());
+        assertEquals(3 * lookups, persister.getLookups("test.intProp"));
+    }
+
+    @Test
+    public void testNoSnapshotWithoutVersion() {
+        TestConfigPersister persister = new TestConfigPersister(false);
+        TestConfig config = createConfig(persister);
+
+        assertEquals(10, config.getIntProp());
+        int lookups = persister.getLookups("test.intProp");
+
+        assertEquals(10, config.getIntProp());
+        assertEquals(2 * lookups, persister.getLookups("test.intProp"));
+    }
+
+    @Test
+    public void testMutableValueIsReadEveryTime() {
+        TestConfigPersister persister = new TestConfigPersister(true);
+        TestConfig config = createConfig(persister);
+
+        config.getListProp();
+        int lookups = persister.getLookups("test.listProp");
+
+        config.getListProp();
+        assertEquals(2 * lookups, persister.getLookups("test.listProp"));
+    }
+
+    private TestConfig createConfig(boolean versioned) {
+        return createConfig(new TestConfigPersister(versioned));
+    }
+
+    private TestConfig createConfig(TestConfigPersister persister) {
+        ConfigHandler handler = new ConfigHandler(persister, TestConfig.class);
+        return (TestConfig) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{TestConfig.class}, handler);
+    }
+
+    @Source(type = SourceType.APP)
+    public interface TestConfig extends Config {
+
+        @Property("test.intProp")
+        @DefaultInt(10)
+        int getIntProp();
+
+        @Property("test.stringProp")
+        @DefaultString("default")
+        String getStringProp();
+
+        void setStringProp(String value);
+
+        @Property("test.listProp")
+        @Factory(factory = StringListTypeFactory.class)
+        List<String> getListProp();
+    }
+
+    private class TestConfigPersister implements ConfigPersister {
+
+        private final boolean versioned;
+
+        private final Map<String, Integer> lookups = new HashMap<>();
+
+        private long cacheVersion;
+
+        private TestConfigPersister(boolean versioned) {
+            this.versioned = versioned;
+        }
+
+        private int getLookups(String name) {
+            return lookups.getOrDefault(name, 0);
+        }
+
+        @Override
+        public String getProperty(SourceType sourceType, String name) {
+            lookups.merge(name, 1, Integer::sum);
+            return appProperties.getProperty(name);
+        }
+
+        @Override
+        public void setProperty(SourceType sourceType, String name, String value) {
+            appProperties.setProperty(name, value);
+        }
+
+        @Override
+        public long getVersion(SourceType sourceType) {
+            return versioned ? appProperties.getVersion() + cacheVersion : NO_VERSION;
+        }
+    }
+}
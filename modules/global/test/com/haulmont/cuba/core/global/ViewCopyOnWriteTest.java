@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.Role;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.entity.UserRole;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class ViewCopyOnWriteTest {
+
+    @Test
+    public void testFrozenViewCannotBeModified() {
+        View view = createView().freeze();
+
+        assertTrue(view.isFrozen());
+        assertTrue(view.getProperty("group").getView().isFrozen());
+
+        try {
+            view.addProperty("email");
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            view.getProperty("group").getView().addProperty("parent");
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        View frozenView = createView().freeze();
+
+        View view = View.copyOnWrite(frozenView);
+        assertFalse(view.isFrozen());
+        assertEquals(frozenView, view);
+        assertSame(frozenView.getProperty("login"), view.getProperty("login"));
+
+        view.addProperty("email");
+        view.setLoadPartialEntities(true);
+
+        assertTrue(view.containsProperty("email"));
+        assertFalse(frozenView.containsProperty("email"));
+        assertFalse(frozenView.loadPartialEntities());
+        assertEquals(frozenView.getProperties().size() + 1, view.getProperties().size());
+    }
+
+    @Test
+    public void testMergeWithFrozenSources() {
+        View frozenView = createView().freeze();
+        View other = new View(User.class, false)
+                .addProperty("group", new View(Group.class, false)
+                        .addProperty("parent"));
+
+        View.ViewParams params = new View.ViewParams().entityClass(User.class);
+        params.src(Arrays.asList(frozenView, other));
+        View view = new View(params);
+
+        assertTrue(view.getProperty("group").getView().containsProperty("name"));
+        assertTrue(view.getProperty("group").getView().containsProperty("parent"));
+        assertFalse(frozenView.getProperty("group").getView().containsProperty("parent"));
+    }
+
+    @Test
+    public void testNestedCopyOnWrite() {
+        View frozenView = createView().freeze();
+        View view = View.copyOnWrite(frozenView);
+
+        View groupView = view.getProperty("group").getView();
+        assertFalse(groupView.isFrozen());
+        assertSame(groupView, view.getProperty("group").getView());
+
+        groupView.addProperty("parent");
+        view.getProperty("userRoles").getView().getProperty("role").getView().addProperty("description");
+
+        assertTrue(view.getProperty("group").getView().containsProperty("parent"));
+        assertTrue(view.getProperty("userRoles").getView().getProperty("role").getView().containsProperty("description"));
+        assertFalse(frozenView.getProperty("group").getView().containsProperty("parent"));
+        assertFalse(frozenView.getProperty("userRoles").getView().getProperty("role").getView().containsProperty("description"));
+
+        View copy = View.copy(view);
+        assertTrue(copy.getProperty("group").getView().containsProperty("parent"));
+        assertTrue(copy.getProperty("userRoles").getView().getProperty("role").getView().containsProperty("description"));
+    }
+
+    @Test
+    public void testTraversal() throws Exception {
+        View frozenView = createView().freeze();
+        View view = View.copyOnWrite(frozenView);
+
+        Iterator<ViewProperty> frozenProperties = frozenView.getProperties().iterator();
+        for (ViewProperty property : view.getProperties()) {
+            // shared properties are iterated as is
+            assertSame(frozenProperties.next(), property);
+            if (property.getView() != null) {
+                assertTrue(property.getView().isFrozen());
+            }
+        }
+        assertFalse(frozenProperties.hasNext());
+        assertSame(getPropertiesMap(frozenView), getPropertiesMap(view));
+
+        View groupView = view.getProperty("group").getView();
+        groupView.setLoadPartialEntities(true);
+
+        for (ViewProperty property : view.getProperties()) {
+            if (property.getName().equals("group")) {
+                assertSame(groupView, property.getView());
+            }
+        }
+        assertFalse(frozenView.getProperty("group").getView().loadPartialEntities());
+    }
+
+    @Test
+    public void testRemoveSharedProperties() throws Exception {
+        View frozenView = createView().freeze();
+        View view = View.copyOnWrite(frozenView);
+
+        view.getProperties().removeIf(property -> property.getName().equals("login"));
+        assertFalse(view.containsProperty("login"));
+        assertTrue(frozenView.containsProperty("login"));
+        assertNotSame(getPropertiesMap(frozenView), getPropertiesMap(view));
+
+        View otherView = View.copyOnWrite(frozenView);
+        otherView.getProperties().clear();
+        assertTrue(otherView.getProperties().isEmpty());
+        assertEquals(4, frozenView.getProperties().size());
+
+        try {
+            frozenView.getProperties().clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRemoveNestedSharedProperties() {
+        View frozenView = createView().freeze();
+        View view = View.copyOnWrite(frozenView);
+
+        view.getProperty("userRoles").getView().getProperty("role").getView().getProperties().clear();
+
+        assertTrue(view.getProperty("userRoles").getView().getProperty("role").getView().getProperties().isEmpty());
+        assertEquals(2, frozenView.getProperty("userRoles").getView().getProperty("role").getView().getProperties().size());
+    }
+
+    @Test
+    public void testLoadPartialEntitiesDoesNotCopyProperties() throws Exception {
+        View frozenView = createView().freeze();
+        View view = View.copyOnWrite(frozenView);
+
+        view.setLoadPartialEntities(true);
+
+        assertSame(getPropertiesMap(frozenView), getPropertiesMap(view));
+        assertTrue(view.loadPartialEntities());
+        assertFalse(frozenView.loadPartialEntities());
+    }
+
+    @Test
+    public void testCopyOnWriteAllocatesLessThanCopy() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        long threadId = Thread.currentThread().getId();
+
+        View frozenView = createView().freeze();
+        int count = 100_000;
+
+        for (int i = 0; i < count; i++) {
+            View.copy(frozenView);
+            View.copyOnWrite(frozenView);
+        }
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            View.copy(frozenView);
+        }
+        long copyBytes = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            View.copyOnWrite(frozenView);
+        }
+        long sharedBytes = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue(String.format("copy-on-write allocated %d bytes per view, deep copy %d bytes",
+                sharedBytes / count, copyBytes / count), sharedBytes < copyBytes);
+    }
+
+    private Object getPropertiesMap(View view) throws Exception {
+        Field propertiesField = View.class.getDeclaredField("properties");
+        propertiesField.setAccessible(true);
+        return propertiesField.get(view);
+    }
+
+    private View createView() {
+        return new View(User.class, "test", false)
+                .addProperty("login")
+                .addProperty("name")
+                .addProperty("group", new View(Group.class, false)
+                        .addProperty("name"))
+                .addProperty("userRoles", new View(UserRole.class, false)
+                        .addProperty("role", new View(Role.class, false)
+                                .addProperty("name")
+                                .addProperty("type")));
+    }
+}
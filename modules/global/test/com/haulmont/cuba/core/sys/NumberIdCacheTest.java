@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.global.GlobalConfig;
+import com.haulmont.cuba.core.global.Metadata;
+import mockit.Mock;
+import mockit.MockUp;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class NumberIdCacheTest {
+
+    private static final String ENTITY_NAME = "test$Entity";
+
+    private NumberIdCache cache;
+
+    private TestSequence sequence = new TestSequence();
+
+    @After
+    public void tearDown() {
+        if (cache != null) {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void testSequenceAcrossBlocks() {
+        createCache(10, 0);
+
+        for (long i = 1; i <= 35; i++) {
+            assertEquals(i, (long) cache.createLongId(ENTITY_NAME, sequence));
+        }
+        assertEquals(4, sequence.calls.get());
+    }
+
+    @Test
+    public void testConcurrentCallers() throws Exception {
+        createCache(10, 3);
+
+        int threads = 8;
+        int idsPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> ids = new ArrayList<>(idsPerThread);
+                    for (int i = 0; i < idsPerThread; i++) {
+                        ids.add(cache.createLongId(ENTITY_NAME, sequence));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                ids.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+            assertEquals(threads * idsPerThread, ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        createCache(10, 3);
+
+        for (long i = 1; i <= 6; i++) {
+            assertEquals(i, (long) cache.createLongId(ENTITY_NAME, sequence));
+        }
+        assertNull(getGenerator().nextBlock);
+
+        assertEquals(7L, (long) cache.createLongId(ENTITY_NAME, sequence));
+        getGenerator().nextBlock.get(10, TimeUnit.SECONDS);
+        assertEquals(2, sequence.calls.get());
+
+        for (long i = 8; i <= 15; i++) {
+            assertEquals(i, (long) cache.createLongId(ENTITY_NAME, sequence));
+        }
+        // the prefetched block is taken without calling the sequence
+        assertEquals(2, sequence.calls.get());
+        assertEquals(1, getGenerator().prefetches.sum());
+        assertEquals(2, getGenerator().refills.sum());
+    }
+
+    @Test
+    public void testPrefetchThresholdNotLessThanCacheSize() throws Exception {
+        createCache(10, 20);
+
+        assertEquals(1L, (long) cache.createLongId(ENTITY_NAME, sequence));
+        getGenerator().nextBlock.get(10, TimeUnit.SECONDS);
+        assertEquals(2, sequence.calls.get());
+
+        for (long i = 2; i <= 11; i++) {
+            assertEquals(i, (long) cache.createLongId(ENTITY_NAME, sequence));
+        }
+        getGenerator().nextBlock.get(10, TimeUnit.SECONDS);
+        assertEquals(3, sequence.calls.get());
+        assertEquals(2, getGenerator().prefetches.sum());
+    }
+
+    private void createCache(int cacheSize, int prefetchThreshold) {
+        cache = new NumberIdCache();
+        cache.metadata = new MockUp<Metadata>() {
+            @Mock
+            MetaClass getClass(String name) {
+                return null;
+            }
+        }.getMockInstance();
+        cache.config = new MockUp<GlobalConfig>() {
+            @Mock
+            int getNumberIdCacheSize() {
+                return cacheSize;
+            }
+
+            @Mock
+            int getNumberIdCachePrefetchThreshold() {
+                return prefetchThreshold;
+            }
+        }.getMockInstance();
+        sequence.cacheSize = cacheSize;
+    }
+
+    private NumberIdCache.Generator getGenerator() {
+        return cache.cache.get(ENTITY_NAME);
+    }
+
+    /**
+     * Imitates a database sequence starting with 0 and incremented by the cache size.
+     */
+    private static class TestSequence implements NumberIdSequence {
+
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile int cacheSize;
+
+        @Override
+        public Long createLongId(String entityName, String sequenceName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Long createCachedLongId(String entityName, String sequenceName) {
+            calls.incrementAndGet();
+            return value.getAndAdd(cacheSize);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.security.global;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaModel;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
+import com.haulmont.chile.core.model.impl.MetaModelImpl;
+import com.haulmont.chile.core.model.impl.SessionImpl;
+import com.haulmont.cuba.security.entity.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class UserSessionPermissionsTest {
+
+    private MetaClass fooMetaClass;
+    private MetaClass barMetaClass;
+
+    @Before
+    public void setUp() throws Exception {
+        MetaModel model = new MetaModelImpl(new SessionImpl(), "test");
+        fooMetaClass = new MetaClassImpl(model, "test$Foo");
+        barMetaClass = new MetaClassImpl(model, "test$Bar");
+    }
+
+    private UserSession createSession(RoleType roleType) {
+        Role role = new Role();
+        role.setName("role");
+        role.setType(roleType);
+
+        return new UserSession(UUID.randomUUID(), new User(), Collections.singletonList(role), Locale.ENGLISH, false);
+    }
+
+    @Test
+    public void testEntityOpPermissions() {
+        UserSession session = createSession(RoleType.STANDARD);
+        session.addPermission(PermissionType.ENTITY_OP, "test$Foo:create", null, 0);
+        session.compileEntityPermissions();
+
+        assertFalse(session.isEntityOpPermitted(fooMetaClass, EntityOp.CREATE));
+        assertTrue(session.isEntityOpPermitted(fooMetaClass, EntityOp.READ));
+        assertTrue(session.isEntityOpPermitted(barMetaClass, EntityOp.CREATE));
+
+        session.removePermission(PermissionType.ENTITY_OP, "test$Foo:create");
+        assertTrue(session.isEntityOpPermitted(fooMetaClass, EntityOp.CREATE));
+    }
+
+    @Test
+    public void testEntityAttrPermissions() {
+        UserSession session = createSession(RoleType.STANDARD);
+        session.addPermission(PermissionType.ENTITY_ATTR, "test$Foo:name", null, 1);
+
+        assertTrue(session.isEntityAttrPermitted(fooMetaClass, "name", EntityAttrAccess.VIEW));
+        assertFalse(session.isEntityAttrPermitted(fooMetaClass, "name", EntityAttrAccess.MODIFY));
+        assertTrue(session.isEntityAttrPermitted(fooMetaClass, "code", EntityAttrAccess.MODIFY));
+        assertTrue(session.isEntityAttrPermitted(barMetaClass, "name", EntityAttrAccess.MODIFY));
+
+        session.addPermission(PermissionType.ENTITY_ATTR, "test$Foo:name", null, 2);
+        assertTrue(session.isEntityAttrPermitted(fooMetaClass, "name", EntityAttrAccess.MODIFY));
+    }
+
+    @Test
+    public void testRoleTypes() {
+        UserSession readonlySession = createSession(RoleType.READONLY);
+        UserSession denyingSession = createSession(RoleType.DENYING);
+        denyingSession.addPermission(PermissionType.ENTITY_OP, "test$Foo:read", null, 1);
+        UserSession superSession = createSession(RoleType.SUPER);
+        superSession.addPermission(PermissionType.ENTITY_ATTR, "test$Foo:name", null, 0);
+
+        for (UserSession session : new UserSession[]{readonlySession, denyingSession, superSession}) {
+            for (MetaClass metaClass : new MetaClass[]{fooMetaClass, barMetaClass}) {
+                for (EntityOp entityOp : EntityOp.values()) {
+                    assertEquals(session.isPermitted(PermissionType.ENTITY_OP,
+                            metaClass.getName() + Permission.TARGET_PATH_DELIMETER + entityOp.getId()),
+                            session.isEntityOpPermitted(metaClass, entityOp));
+                }
+                for (EntityAttrAccess access : EntityAttrAccess.values()) {
+                    assertEquals(session.isPermitted(PermissionType.ENTITY_ATTR,
+                            metaClass.getName() + Permission.TARGET_PATH_DELIMETER + "name", access.getId()),
+                            session.isEntityAttrPermitted(metaClass, "name", access));
+                }
+            }
+        }
+
+        assertTrue(readonlySession.isEntityOpPermitted(fooMetaClass, EntityOp.READ));
+        assertFalse(readonlySession.isEntityOpPermitted(fooMetaClass, EntityOp.UPDATE));
+        assertTrue(denyingSession.isEntityOpPermitted(fooMetaClass, EntityOp.READ));
+        assertFalse(denyingSession.isEntityOpPermitted(barMetaClass, EntityOp.READ));
+        assertTrue(superSession.isEntityAttrPermitted(fooMetaClass, "name", EntityAttrAccess.MODIFY));
+    }
+
+    @Test
+    public void testCopiedSession() {
+        UserSession session = createSession(RoleType.STANDARD);
+        UserSession copy = new UserSession(session);
+        assertTrue(copy.isEntityOpPermitted(fooMetaClass, EntityOp.DELETE));
+
+        session.addPermission(PermissionType.ENTITY_OP, "test$Foo:delete", null, 0);
+        assertFalse(copy.isEntityOpPermitted(fooMetaClass, EntityOp.DELETE));
+    }
+
+    @Test
+    public void testPermissionChangedDuringCompilation() {
+        Role role = new Role();
+        role.setName("role");
+        role.setType(RoleType.STANDARD);
+
+        UserSession session = new UserSession(UUID.randomUUID(), new User(), Collections.singletonList(role),
+                Locale.ENGLISH, false) {
+            private boolean changed;
+
+            @Override
+            protected EntityPermissions compileEntityPermissions(String entityName, Map<String, Integer> attrValues) {
+                EntityPermissions entityPermissions = super.compileEntityPermissions(entityName, attrValues);
+                // emulates a concurrent change made after the entity is compiled but before the matrix is published
+                if (!changed) {
+                    changed = true;
+                    removePermission(PermissionType.ENTITY_OP, "test$Foo:create");
+                }
+                return entityPermissions;
+            }
+        };
+        session.addPermission(PermissionType.ENTITY_OP, "test$Foo:create", null, 0);
+
+        session.isEntityOpPermitted(fooMetaClass, EntityOp.CREATE);
+        assertTrue(session.isEntityOpPermitted(fooMetaClass, EntityOp.CREATE));
+    }
+}
@@ -128,6 +128,31 @@ public interface DataGridItems<T> extends DataUnit {
         void resetSortOrder();
     }
 
+    /**
+     * The DataGridItems that loads items from the data store on demand, page by page.
+     * {@link #size()} returns the total number of items in the data store and
+     * {@link #getItems(int, int)} loads the items of the requested range if they are not loaded yet.
+     *
+     * @param <T> items type
+     */
+    interface Lazy<T> extends DataGridItems<T> {
+
+        /**
+         * @return number of items loaded from the data store at once, in addition to the requested ones
+         */
+        int getPageSize();
+
+        /**
+         * Sets the number of items loaded from the data store at once, in addition to the requested ones.
+         */
+        void setPageSize(int pageSize);
+
+        /**
+         * Resets the cached total number of items, so it is requested from the data store next time.
+         */
+        void resetTotalCount();
+    }
+
     /**
      * An event that is fired when value of item property is changed.
      *
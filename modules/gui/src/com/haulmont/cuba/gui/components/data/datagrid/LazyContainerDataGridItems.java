@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.components.data.datagrid;
+
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.global.Sort;
+import com.haulmont.cuba.gui.components.data.DataGridItems;
+import com.haulmont.cuba.gui.model.CollectionChangeType;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * {@link DataGridItems} that loads entities on demand through the {@link CollectionLoader} of the container.
+ * <br>
+ * The container keeps only a window of rows around the range requested by the DataGrid, extended by
+ * {@link #getPageSize()} rows in both directions. When rows outside of the window are requested, the loader is
+ * executed again with the corresponding first and max results. Sorting is performed by the loader query.
+ * <br>
+ * The total number of rows is requested by {@link DataManager#getCount(LoadContext)} or by the
+ * {@link #setTotalCountDelegate(Function) delegate} and cached until the container is reloaded or modified
+ * outside of this object.
+ *
+ * @param <E> entity type
+ */
+public class LazyContainerDataGridItems<E extends Entity> extends ContainerDataGridItems<E>
+        implements DataGridItems.Lazy<E> {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    protected CollectionLoader<E> loader;
+    protected Function<LoadContext<E>, Long> totalCountDelegate;
+
+    protected int pageSize = DEFAULT_PAGE_SIZE;
+    protected int windowStart;
+    protected int totalCount = -1;
+    protected boolean windowLoading;
+
+    public LazyContainerDataGridItems(CollectionContainer<E> container, CollectionLoader<E> loader) {
+        super(container);
+        checkNotNullArgument(loader, "loader is null");
+
+        this.loader = loader;
+        this.windowStart = loader.getFirstResult();
+    }
+
+    public CollectionLoader<E> getLoader() {
+        return loader;
+    }
+
+    @Nullable
+    public Function<LoadContext<E>, Long> getTotalCountDelegate() {
+        return totalCountDelegate;
+    }
+
+    /**
+     * Sets a function returning the total number of rows instead of {@link DataManager#getCount(LoadContext)}.
+     */
+    public void setTotalCountDelegate(@Nullable Function<LoadContext<E>, Long> totalCountDelegate) {
+        this.totalCountDelegate = totalCountDelegate;
+        resetTotalCount();
+    }
+
+    @Override
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void resetTotalCount() {
+        totalCount = -1;
+    }
+
+    @Override
+    protected void containerCollectionChanged(CollectionContainer.CollectionChangeEvent<E> e) {
+        if (windowLoading) {
+            return;
+        }
+        if (e.getChangeType() == CollectionChangeType.REFRESH) {
+            windowStart = loader.getFirstResult();
+        }
+        resetTotalCount();
+
+        super.containerCollectionChanged(e);
+    }
+
+    @Override
+    public int size() {
+        if (totalCount < 0) {
+            totalCount = loadTotalCount();
+        }
+        return totalCount;
+    }
+
+    protected int loadTotalCount() {
+        LoadContext<E> context = loader.createLoadContext();
+        context.getQuery().setFirstResult(0);
+        context.getQuery().setMaxResults(0);
+
+        long count = totalCountDelegate != null
+                ? totalCountDelegate.apply(context)
+                : getDataManager().getCount(context);
+        return Math.toIntExact(count);
+    }
+
+    protected DataManager getDataManager() {
+        return AppBeans.get(DataManager.NAME);
+    }
+
+    @Override
+    public int indexOfItem(E item) {
+        int index = container.getItemIndex(item.getId());
+        return index < 0 ? -1 : windowStart + index;
+    }
+
+    @Nullable
+    @Override
+    public E getItemByIndex(int index) {
+        List<E> items = getItems(index, 1);
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    @Override
+    public List<E> getItems(int startIndex, int numberOfItems) {
+        int endIndex = (int) Math.min((long) startIndex + numberOfItems, size());
+        if (startIndex < 0 || startIndex >= endIndex) {
+            return Collections.emptyList();
+        }
+
+        if (!isLoaded(startIndex, endIndex)) {
+            loadWindow(startIndex, endIndex - startIndex);
+        }
+
+        List<E> items = container.getItems();
+        int from = Math.min(startIndex - windowStart, items.size());
+        int to = Math.min(endIndex - windowStart, items.size());
+        return items.subList(from, to);
+    }
+
+    protected boolean isLoaded(int startIndex, int endIndex) {
+        return startIndex >= windowStart
+                && endIndex <= windowStart + container.getItems().size();
+    }
+
+    /**
+     * Loads the requested range of rows together with the adjacent pages.
+     * The container change caused by loading is not propagated as an item set change.
+     */
+    protected void loadWindow(int offset, int limit) {
+        int start = Math.max(0, offset - pageSize);
+        long end = (long) offset + limit + pageSize;
+
+        loader.setFirstResult(start);
+        loader.setMaxResults((int) Math.min(end - start, Integer.MAX_VALUE));
+
+        windowLoading = true;
+        try {
+            loader.load();
+        } finally {
+            windowLoading = false;
+        }
+        windowStart = start;
+    }
+
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        loader.setSort(createSort(propertyId, ascending));
+        reloadFirstPage();
+    }
+
+    @Override
+    public void resetSortOrder() {
+        loader.setSort(Sort.UNSORTED);
+        reloadFirstPage();
+    }
+
+    protected void reloadFirstPage() {
+        loadWindow(0, pageSize);
+
+        // sorting doesn't change the total number of rows, so the count is kept
+        events.publish(DataGridItems.ItemSetChangeEvent.class, new DataGridItems.ItemSetChangeEvent<>(this));
+    }
+}
@@ -61,8 +61,8 @@ public abstract class AbstractComparator<T> implements Comparator<T> {
             } else {
                 c = 0;
                 for (MetaProperty property : namePatternProperties) {
-                    Object v1 = ((Instance) o1).getValue(property.getName());
-                    Object v2 = ((Instance) o2).getValue(property.getName());
+                    Object v1 = ((Instance) o1).getValue(property);
+                    Object v2 = ((Instance) o2).getValue(property);
                     c = compareAsc(v1, v2);
                     if (c != 0)
                         break;
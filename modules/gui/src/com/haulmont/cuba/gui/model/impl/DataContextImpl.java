@@ -266,14 +266,14 @@ public class DataContextImpl implements DataContext {
                     && (srcNew || entityStates.isLoaded(srcEntity, propertyName))          // loaded src
                     && (dstNew || entityStates.isLoaded(dstEntity, propertyName))) {       // loaded dst
 
-                Object value = srcEntity.getValue(propertyName);
+                Object value = srcEntity.getValue(property);
 
                 // ignore null values in new source entities
                 if (srcNew && value == null) {
                     continue;
                 }
 
-                dstEntity.setValue(propertyName, value);
+                dstEntity.setValue(property, value);
             }
         }
 
@@ -284,7 +284,7 @@ public class DataContextImpl implements DataContext {
                     && (srcNew || entityStates.isLoaded(srcEntity, propertyName))          // loaded src
                     && (dstNew || entityStates.isLoaded(dstEntity, propertyName))) {       // loaded dst
 
-                Object value = srcEntity.getValue(propertyName);
+                Object value = srcEntity.getValue(property);
 
                 // ignore null values in new source entities
                 if (srcNew && value == null) {
@@ -292,7 +292,7 @@ public class DataContextImpl implements DataContext {
                 }
 
                 if (value == null) {
-                    dstEntity.setValue(propertyName, null);
+                    dstEntity.setValue(property, null);
                     continue;
                 }
 
@@ -85,7 +85,7 @@ public class DataGridDataProvider<T> extends AbstractDataProvider<T, Serializabl
 
     @Override
     public boolean isInMemory() {
-        return true;
+        return !(dataGridItems instanceof DataGridItems.Lazy);
     }
 
     @Override
@@ -104,6 +104,10 @@ public class DataGridDataProvider<T> extends AbstractDataProvider<T, Serializabl
             return Stream.empty();
         }
 
+        if (dataGridItems instanceof DataGridItems.Lazy) {
+            return dataGridItems.getItems(query.getOffset(), query.getLimit()).stream();
+        }
+
         return dataGridItems.getItems()
                 .skip(query.getOffset())
                 .limit(query.getLimit());
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.components.datagrid
+
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.gui.components.data.DataGridItems
+import com.haulmont.cuba.gui.components.data.datagrid.LazyContainerDataGridItems
+import com.haulmont.cuba.gui.model.CollectionContainer
+import com.haulmont.cuba.gui.model.CollectionLoader
+import com.haulmont.cuba.gui.model.DataComponents
+import com.haulmont.cuba.web.testmodel.datacontext.Foo
+import com.haulmont.cuba.web.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.function.Consumer
+
+class LazyContainerDataGridItemsTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataComponents factory
+    private List<Foo> data
+    private List<LoadContext.Query> queries
+    private int countQueries
+
+    void setup() {
+        factory = cont.getBean(DataComponents)
+
+        data = (0..<1000).collect { new Foo(name: "foo$it") }
+        queries = []
+        countQueries = 0
+    }
+
+    private LazyContainerDataGridItems<Foo> createItems() {
+        CollectionContainer<Foo> container = factory.createCollectionContainer(Foo)
+        CollectionLoader<Foo> loader = factory.createCollectionLoader()
+        loader.setContainer(container)
+        loader.setLoadDelegate({ LoadContext<Foo> context ->
+            queries << context.query
+            int first = context.query.firstResult
+            int max = context.query.maxResults
+            data.subList(first, Math.min(first + max, data.size()))
+        })
+
+        def items = new LazyContainerDataGridItems<Foo>(container, loader)
+        items.setTotalCountDelegate({ LoadContext<Foo> context ->
+            countQueries++
+            (long) data.size()
+        })
+        items.setPageSize(50)
+        return items
+    }
+
+    def "total count is cached"() {
+        def items = createItems()
+
+        expect:
+        items.size() == 1000
+        items.size() == 1000
+        countQueries == 1
+    }
+
+    def "rows are loaded with adjacent pages"() {
+        def items = createItems()
+
+        when:
+        def page = items.getItems(500, 20)
+
+        then:
+        page == data.subList(500, 520)
+        queries.size() == 1
+        queries[0].firstResult == 450
+        queries[0].maxResults == 120
+
+        when:
+        page = items.getItems(540, 20)
+
+        then:
+        page == data.subList(540, 560)
+        queries.size() == 1
+        items.indexOfItem(data[545]) == 545
+        items.getItemByIndex(460) == data[460]
+
+        when:
+        page = items.getItems(990, 20)
+
+        then:
+        page == data.subList(990, 1000)
+        queries.size() == 2
+    }
+
+    def "loading of rows doesn't fire item set change"() {
+        def items = createItems()
+        Consumer listener = Mock()
+        items.addItemSetChangeListener(listener)
+
+        when:
+        items.getItems(0, 20)
+        items.getItems(700, 20)
+
+        then:
+        0 * listener.accept(_)
+    }
+
+    def "sorting reloads the first page and keeps the total count"() {
+        def items = createItems()
+        items.size()
+        items.getItems(500, 20)
+
+        Consumer listener = Mock()
+        items.addItemSetChangeListener(listener)
+
+        when:
+        items.sort(['name'] as Object[], [false] as boolean[])
+
+        then:
+        1 * listener.accept(_ as DataGridItems.ItemSetChangeEvent)
+        queries.last().firstResult == 0
+        queries.last().sort != null
+        items.size() == 1000
+        countQueries == 1
+    }
+
+    def "reloading by the loader resets the total count"() {
+        def items = createItems()
+        items.size()
+
+        when:
+        items.getLoader().load()
+        data = data.subList(0, 10)
+
+        then:
+        items.size() == 10
+        countQueries == 2
+    }
+}